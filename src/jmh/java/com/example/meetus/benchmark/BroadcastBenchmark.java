@@ -0,0 +1,118 @@
+package com.example.meetus.benchmark;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.example.meetus.model.OutboundEvents.Chat;
+import com.example.meetus.model.User;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.socketio.OutboundQueues;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One chat message broadcast to a room, excluding the sender, four ways: the
+ * original loop over the room's members with a UUID parse and client lookup
+ * per member, netty-socketio's room operations, OutboundQueues with the
+ * payload encoded per recipient, and the OutboundQueues path room broadcasts
+ * take today, which encodes it once. Every recipient encodes its frame. Run
+ * with {@code -prof gc} to compare allocation per broadcast.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+
+    static final String MESSAGE = "Has everyone got the slides? I'll share my screen in a minute, then we can go through the numbers.";
+
+    @Param({"2", "10", "50", "200"})
+    int roomSize;
+
+    ExpiryService expiry;
+    SocketIOServer server;
+    RoomService roomService;
+    OutboundQueues outboundQueues;
+    FakeClient sender;
+    String senderId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        expiry = Fixtures.expiryService(100);
+        server = new SocketIOServer(new Configuration());
+        roomService = Fixtures.roomService(expiry);
+        Fixtures.set(roomService, "maxUsersPerRoom", roomSize);
+        outboundQueues = new OutboundQueues(server);
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+
+        for (int i = 0; i < roomSize; i++) {
+            FakeClient client = FakeClient.encoding(server, jsonSupport);
+            roomService.joinRoom("room", client.getSessionId().toString(), "user-" + i, null, client);
+            client.joinRoom("room");
+            if (i == 0) {
+                sender = client;
+                senderId = client.getSessionId().toString();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expiry.stop();
+    }
+
+    @Benchmark
+    public int perMemberLoop() {
+        Map<String, Object> message = new HashMap<>();
+        message.put("username", "user-0");
+        message.put("message", MESSAGE);
+        message.put("timestamp", 1_700_000_000_000L);
+
+        int recipients = 0;
+        for (User user : roomService.getRoom("room").getUsers()) {
+            if (!user.getId().equals(senderId)) {
+                SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
+                if (userClient != null) {
+                    userClient.sendEvent("chat-message", message);
+                    recipients++;
+                }
+            }
+        }
+        return recipients;
+    }
+
+    @Benchmark
+    public void roomOperations() {
+        server.getRoomOperations("room").sendEvent("chat-message", sender,
+                new Chat("user-0", MESSAGE, 1_700_000_000_000L));
+    }
+
+    @Benchmark
+    public int outboundQueuesPerRecipient() {
+        Chat message = new Chat("user-0", MESSAGE, 1_700_000_000_000L);
+        int recipients = 0;
+        for (SocketIOClient client : server.getRoomOperations("room").getClients()) {
+            if (!client.getSessionId().equals(sender.getSessionId())) {
+                outboundQueues.send(client, "chat-message", message);
+                recipients++;
+            }
+        }
+        return recipients;
+    }
+
+    @Benchmark
+    public int outboundQueues() {
+        return outboundQueues.sendToRoom("room", "chat-message", new Chat("user-0", MESSAGE, 1_700_000_000_000L),
+                sender);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.meetus.benchmark;
+
+import com.example.meetus.model.ArchivedChatMessage;
+import com.example.meetus.persistence.ChatArchive;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Newest page of a quiet room (100 messages) whose shard has since archived
+ * {@code busyMessages} messages of another room.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatArchiveBenchmark {
+
+    @Param({"1000", "100000"})
+    int busyMessages;
+
+    Path directory;
+    ChatArchive archive;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("chat-archive-benchmark");
+        ChatArchive writer = archive();
+        for (int i = 0; i < 100; i++) {
+            writer.append("quiet", "alice", "message " + i, (long) i);
+        }
+        for (int i = 0; i < busyMessages; i++) {
+            writer.append("busy", "bob", "message " + i, (long) i);
+        }
+        writer.stop();
+        archive = archive();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        archive.stop();
+    }
+
+    @Benchmark
+    public List<ArchivedChatMessage> quietRoomPage() throws IOException {
+        return archive.page("quiet", null, 50);
+    }
+
+    private ChatArchive archive() throws IOException {
+        ChatArchive archive = Fixtures.chatArchive(directory, 1, 64);
+        Fixtures.set(archive, "segmentSizeMb", 64);
+        Fixtures.set(archive, "queueCapacity", 1 << 20);
+        archive.start();
+        return archive;
+    }
+}
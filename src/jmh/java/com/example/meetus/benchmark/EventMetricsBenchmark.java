@@ -0,0 +1,96 @@
+package com.example.meetus.benchmark;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.example.meetus.cluster.ClusterRelay;
+import com.example.meetus.cluster.InMemoryClusterBus;
+import com.example.meetus.cluster.InMemoryClusterDirectory;
+import com.example.meetus.model.OutboundEvents.IceCandidate;
+import com.example.meetus.model.OutboundEvents.Offer;
+import com.example.meetus.model.RawJson;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.socketio.EventMetrics;
+import com.example.meetus.socketio.OutboundQueues;
+import com.example.meetus.socketio.SocketIOHandler.SignalingData;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-event metrics on the relay path: an offer and an ICE
+ * candidate relayed through listeners wrapped the way SocketIOHandler wraps
+ * them (received, then timed), with ClusterRelay counting the relay, and the
+ * target encoding its frame. Compare {@code metrics=true} with
+ * {@code metrics=false}, where every wrapper returns the bare listener.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventMetricsBenchmark {
+
+    @Param({"false", "true"})
+    boolean metrics;
+
+    ExpiryService expiry;
+    FakeClient sender;
+    DataListener<SignalingData> offerListener;
+    DataListener<SignalingData> iceListener;
+    SignalingData offer;
+    SignalingData candidate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        expiry = Fixtures.expiryService(100);
+        SocketIOServer server = new SocketIOServer(new Configuration());
+        RoomService roomService = Fixtures.roomService(expiry);
+        EventMetrics eventMetrics = Fixtures.set(new EventMetrics(server, roomService), "enabled", metrics);
+        // As configured by default: one handler latency in 16 is timed
+        Fixtures.set(eventMetrics, "latencySample", 16);
+        ClusterRelay clusterRelay = new ClusterRelay(server, InMemoryClusterBus.shared(),
+                InMemoryClusterDirectory.shared(), new OutboundQueues(server), roomService, eventMetrics);
+
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        sender = FakeClient.encoding(server, jsonSupport);
+        FakeClient target = FakeClient.encoding(server, jsonSupport);
+        String senderId = sender.getSessionId().toString();
+        String targetId = target.getSessionId().toString();
+        roomService.joinRoom("room", senderId, "alice", null, sender);
+        roomService.joinRoom("room", targetId, "bob", null, target);
+
+        offer = new SignalingData();
+        offer.setTo(targetId);
+        offer.setOffer(new RawJson("{\"type\":\"offer\",\"sdp\":" + Payloads.quote(Payloads.sdp(6 * 1024)) + "}"));
+        candidate = new SignalingData();
+        candidate.setTo(targetId);
+        candidate.setCandidate(new RawJson("{\"candidate\":\"candidate:1 1 udp 2122260223 192.168.1.20 54321 typ host\","
+                + "\"sdpMid\":\"0\",\"sdpMLineIndex\":0}"));
+
+        offerListener = eventMetrics.received("offer", eventMetrics.timed("offer", (client, data, ackSender) ->
+                clusterRelay.sendToSession(data.getTo(), "offer", new Offer(senderId, data.getOffer(), "alice"))));
+        iceListener = eventMetrics.received("ice-candidate", eventMetrics.timed("ice-candidate", (client, data, ackSender) ->
+                clusterRelay.sendToSession(data.getTo(), "ice-candidate", new IceCandidate(senderId, data.getCandidate()))));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expiry.stop();
+    }
+
+    @Benchmark
+    public void offer() throws Exception {
+        offerListener.onData(sender, offer, null);
+    }
+
+    @Benchmark
+    public void iceCandidate() throws Exception {
+        iceListener.onData(sender, candidate, null);
+    }
+}
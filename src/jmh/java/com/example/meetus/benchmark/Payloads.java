@@ -0,0 +1,39 @@
+package com.example.meetus.benchmark;
+
+/**
+ * Representative signaling payloads.
+ */
+final class Payloads {
+
+    private static final String[] SDP_LINES = {
+            "a=candidate:842163049 1 udp 1677729535 203.0.113.7 54400 typ srflx raddr 10.0.0.2 rport 54400",
+            "a=rtpmap:111 opus/48000/2",
+            "a=fmtp:111 minptime=10;useinbandfec=1",
+            "a=ssrc:3735928559 cname:4TOk42mSjXCkVIa6",
+            "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid",
+            "a=fingerprint:sha-256 7B:8B:F0:65:5F:78:E2:51:3B:AC:6F:F3:3F:46:1B:35:DC:B8:5F:64:1A:24:C2:43",
+    };
+
+    private Payloads() {
+    }
+
+    // A session description of roughly the given size, with CRLF line breaks as browsers send them
+    static String sdp(int bytes) {
+        StringBuilder sdp = new StringBuilder(bytes + 128);
+        sdp.append("v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n");
+        for (int i = 0; sdp.length() < bytes; i++) {
+            sdp.append(SDP_LINES[i % SDP_LINES.length]).append("\r\n");
+        }
+        return sdp.toString();
+    }
+
+    static String candidate(int index) {
+        return "{\"candidate\":\"candidate:" + index + " 1 udp 2122260223 192.168.1." + (index % 250)
+                + " 5" + (1000 + index) + " typ host generation 0 ufrag EsAw network-id 1\","
+                + "\"sdpMid\":\"0\",\"sdpMLineIndex\":0}";
+    }
+
+    static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\r", "\\r").replace("\n", "\\n") + "\"";
+    }
+}
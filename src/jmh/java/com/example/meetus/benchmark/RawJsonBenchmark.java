@@ -0,0 +1,110 @@
+package com.example.meetus.benchmark;
+
+import com.corundumstudio.socketio.protocol.Event;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.example.meetus.model.OutboundEvents.Offer;
+import com.example.meetus.socketio.RawJsonSupport;
+import com.example.meetus.socketio.SocketIOHandler.SignalingData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding an inbound offer and encoding the relayed one, for the original
+ * Object/Map binding, RawJson copied token by token (no frame published) and
+ * RawJson sliced out of the frame by {@link RawJsonSupport}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RawJsonBenchmark {
+
+    // The original binding: the offer becomes whatever Jackson makes of it, here nested maps
+    public static class MapSignalingData {
+        public String to;
+        public Object offer;
+    }
+
+    @Param({"1024", "6144"})
+    int sdpBytes;
+
+    JacksonJsonSupport mapSupport = new JacksonJsonSupport();
+    JacksonJsonSupport tokenCopySupport = new JacksonJsonSupport();
+    RawJsonSupport sliceSupport = new RawJsonSupport();
+    ByteBuf frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapSupport.addEventMapping("", "offer", MapSignalingData.class);
+        tokenCopySupport.addEventMapping("", "offer", SignalingData.class);
+        sliceSupport.addEventMapping("", "offer", SignalingData.class);
+        String json = "[\"offer\",{\"to\":\"4b4cbd2c-8a5e-4a5f-9d0e-5b1f0c6f3e21\",\"offer\":{\"type\":\"offer\",\"sdp\":"
+                + Payloads.quote(Payloads.sdp(sdpBytes)) + "}}]";
+        frame = Unpooled.unreleasableBuffer(Unpooled.directBuffer().writeBytes(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public Object decodeMap() throws IOException {
+        return decode(mapSupport);
+    }
+
+    @Benchmark
+    public Object decodeRawTokenCopy() throws IOException {
+        return decode(tokenCopySupport);
+    }
+
+    @Benchmark
+    public Object decodeRawSlice() throws IOException {
+        return decode(sliceSupport);
+    }
+
+    @Benchmark
+    public int relayMap() throws IOException {
+        MapSignalingData data = (MapSignalingData) decode(mapSupport);
+        Map<String, Object> response = new HashMap<>();
+        response.put("from", "0f3c1e52-7d4b-4b53-a3b6-8f0a2d1c9e77");
+        response.put("offer", data.offer);
+        response.put("username", "alice");
+        return encode(mapSupport, response);
+    }
+
+    @Benchmark
+    public int relayRawTokenCopy() throws IOException {
+        SignalingData data = (SignalingData) decode(tokenCopySupport);
+        return encode(tokenCopySupport, new Offer("0f3c1e52-7d4b-4b53-a3b6-8f0a2d1c9e77", data.getOffer(), "alice"));
+    }
+
+    @Benchmark
+    public int relayRawSlice() throws IOException {
+        SignalingData data = (SignalingData) decode(sliceSupport);
+        return encode(sliceSupport, new Offer("0f3c1e52-7d4b-4b53-a3b6-8f0a2d1c9e77", data.getOffer(), "alice"));
+    }
+
+    private Object decode(JacksonJsonSupport support) throws IOException {
+        Event event = support.readValue("", new ByteBufInputStream(frame.duplicate()), Event.class);
+        return event.getArgs().get(0);
+    }
+
+    private static int encode(JacksonJsonSupport support, Object payload) throws IOException {
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            support.writeValue(out, List.of("offer", payload));
+            return buffer.readableBytes();
+        } finally {
+            buffer.release();
+        }
+    }
+}
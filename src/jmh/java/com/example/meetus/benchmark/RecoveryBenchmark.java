@@ -0,0 +1,116 @@
+package com.example.meetus.benchmark;
+
+import com.example.meetus.model.Room;
+import com.example.meetus.persistence.RoomJournal;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.service.Secrets;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Restart time for a journal holding {@code rooms} rooms of two members each,
+ * every fourth with a password, either as one journal generation to replay or
+ * compacted into a snapshot. {@code recover} only reads the files;
+ * {@code restore} is the whole RoomService start-up, timers included.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+
+    private static final int SEGMENT_SIZE_MB = 256;
+
+    @Param({"100000"})
+    int rooms;
+
+    @Param({"journal", "snapshot"})
+    String layout;
+
+    Path pristine;
+    Path directory;
+    ExpiryService expiry;
+    RoomJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pristine = Files.createTempDirectory("recovery-benchmark");
+        RoomJournal writer = Fixtures.journal(pristine, SEGMENT_SIZE_MB);
+        writer.recover();
+        String passwordHash = Secrets.hashPassword("secret");
+        for (int i = 0; i < rooms; i++) {
+            String roomId = "room-" + i;
+            String creator = UUID.randomUUID().toString();
+            Room room = new Room(roomId);
+            room.setCreatedBy(creator);
+            writer.roomCreated(room);
+            if (i % 4 == 0) {
+                writer.passwordSet(roomId, passwordHash);
+            }
+            writer.userJoined(roomId, creator, "alice", Secrets.tokenDigest(Secrets.newToken()));
+            writer.userJoined(roomId, UUID.randomUUID().toString(), "bob", Secrets.tokenDigest(Secrets.newToken()));
+        }
+        if (layout.equals("snapshot")) {
+            List<Room> state = Fixtures.journal(pristine, SEGMENT_SIZE_MB).recover();
+            writer.snapshot(() -> state);
+        }
+        writer.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(pristine);
+    }
+
+    // Each start-up gets its own copy: recovery opens a new generation and the first snapshot compacts
+    @Setup(Level.Invocation)
+    public void copyFiles() throws IOException {
+        directory = Files.createTempDirectory("recovery-benchmark");
+        try (Stream<Path> files = Files.list(pristine)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, directory.resolve(file.getFileName()));
+            }
+        }
+        expiry = Fixtures.expiryService(100);
+        journal = Fixtures.journal(directory, SEGMENT_SIZE_MB);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeJournal() throws IOException {
+        journal.shutdown();
+        expiry.stop();
+        delete(directory);
+    }
+
+    @Benchmark
+    public List<Room> recover() throws IOException {
+        return journal.recover();
+    }
+
+    @Benchmark
+    public RoomService restore() {
+        RoomService roomService = Fixtures.roomService(journal, expiry);
+        roomService.restoreFromJournal();
+        return roomService;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
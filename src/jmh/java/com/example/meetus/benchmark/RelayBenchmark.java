@@ -0,0 +1,119 @@
+package com.example.meetus.benchmark;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.example.meetus.cluster.ClusterRelay;
+import com.example.meetus.cluster.InMemoryClusterBus;
+import com.example.meetus.cluster.InMemoryClusterDirectory;
+import com.example.meetus.model.OutboundEvents.Offer;
+import com.example.meetus.model.RawJson;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.socketio.EventMetrics;
+import com.example.meetus.socketio.OutboundQueues;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of relaying an offer, split into its parts: building the
+ * payload, finding the target client and encoding the frame, plus the whole
+ * relay through ClusterRelay and OutboundQueues.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RelayBenchmark {
+
+    static final String SDP = Payloads.sdp(6 * 1024);
+
+    ExpiryService expiry;
+    SocketIOServer server;
+    RoomService roomService;
+    ClusterRelay clusterRelay;
+    JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+    FakeClient sender;
+    FakeClient target;
+    String senderId;
+    String targetId;
+    RawJson offer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        expiry = Fixtures.expiryService(100);
+        server = new SocketIOServer(new Configuration());
+        roomService = Fixtures.roomService(expiry);
+        EventMetrics eventMetrics = Fixtures.set(new EventMetrics(server, roomService), "enabled", true);
+        OutboundQueues outboundQueues = new OutboundQueues(server);
+        clusterRelay = new ClusterRelay(server, InMemoryClusterBus.shared(), InMemoryClusterDirectory.shared(),
+                outboundQueues, roomService, eventMetrics);
+
+        sender = FakeClient.encoding(server, jsonSupport);
+        target = FakeClient.encoding(server, jsonSupport);
+        senderId = sender.getSessionId().toString();
+        targetId = target.getSessionId().toString();
+        roomService.joinRoom("room", senderId, "alice", null, sender);
+        roomService.joinRoom("room", targetId, "bob", null, target);
+        offer = new RawJson("{\"type\":\"offer\",\"sdp\":" + Payloads.quote(SDP) + "}");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expiry.stop();
+    }
+
+    @Benchmark
+    public Object payloadMap() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("from", senderId);
+        response.put("offer", offer);
+        response.put("username", "alice");
+        return response;
+    }
+
+    @Benchmark
+    public Object payloadRecord() {
+        return new Offer(senderId, offer, "alice");
+    }
+
+    @Benchmark
+    public SocketIOClient lookupByUuidParse() {
+        return server.getClient(UUID.fromString(targetId));
+    }
+
+    @Benchmark
+    public SocketIOClient lookupBySessionTable() {
+        return roomService.getUserSession(targetId).getClient();
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            jsonSupport.writeValue(out, List.of("offer", new Offer(senderId, offer, "alice")));
+            return buffer.readableBytes();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public boolean relay() {
+        return clusterRelay.sendToSession(targetId, "offer", new Offer(senderId, offer, "alice"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.meetus.benchmark;
+
+import com.example.meetus.model.RoomPage;
+import com.example.meetus.model.RoomQuery;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomDirectory;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room directory reads with {@code roomCount} rooms of one member each, where
+ * one room in 500 has a password and three members. {@code sparseFilter} asks
+ * for exactly those; {@code firstPage} is an unfiltered page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoomDirectoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int roomCount;
+
+    ExpiryService expiry;
+    RoomDirectory directory;
+    RoomQuery sparse = new RoomQuery();
+    RoomQuery unfiltered = new RoomQuery();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        expiry = Fixtures.expiryService(100);
+        RoomService roomService = Fixtures.roomService(expiry);
+        for (int i = 0; i < roomCount; i++) {
+            boolean passworded = i % 500 == 0;
+            for (int u = 0; u < (passworded ? 3 : 1); u++) {
+                roomService.joinRoom(String.format("room-%06d", i), UUID.randomUUID().toString(), "user-" + u,
+                        passworded ? "secret" : null);
+            }
+        }
+        directory = new RoomDirectory(roomService);
+        Fixtures.set(directory, "coalesceMs", 10L);
+        Fixtures.set(directory, "historySize", 256);
+        Fixtures.set(directory, "defaultPageSize", 50);
+        Fixtures.set(directory, "maxPageSize", 500);
+        directory.start();
+        while (directory.query(unfiltered).rooms().isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        sparse.setHasPassword(true);
+        sparse.setMinUsers(3);
+        sparse.setNotFull(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        directory.stop();
+        expiry.stop();
+    }
+
+    @Benchmark
+    public RoomPage sparseFilter() {
+        return directory.query(sparse);
+    }
+
+    @Benchmark
+    public RoomPage firstPage() {
+        return directory.query(unfiltered);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.meetus.benchmark;
+
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Join/leave throughput and latency of RoomService, and the cost of listing
+ * rooms. Run with {@code -t <threads>} to put joins and leaves under
+ * contention; {@code rooms=1} puts every thread in the same room.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Rooms {
+        @Param({"1", "1000"})
+        int rooms;
+
+        ExpiryService expiry;
+        RoomService roomService;
+        String[] roomIds;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            expiry = Fixtures.expiryService(100);
+            roomService = Fixtures.roomService(expiry);
+            Fixtures.set(roomService, "maxUsersPerRoom", Integer.MAX_VALUE);
+            roomIds = new String[rooms];
+            for (int i = 0; i < rooms; i++) {
+                roomIds[i] = "room-" + i;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            expiry.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        final String sessionId = UUID.randomUUID().toString();
+        final String username = "user-" + sessionId.substring(0, 8);
+        int next;
+    }
+
+    @Benchmark
+    public Object joinThenLeave(Rooms state, Session session) throws Exception {
+        String roomId = state.roomIds[session.next++ % state.roomIds.length];
+        Object room = state.roomService.joinRoom(roomId, session.sessionId, session.username, null);
+        state.roomService.leaveRoom(session.sessionId);
+        return room;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Listing {
+        @Param({"10", "1000", "100000"})
+        int roomCount;
+
+        ExpiryService expiry;
+        RoomService roomService;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            expiry = Fixtures.expiryService(100);
+            roomService = Fixtures.roomService(expiry);
+            for (int i = 0; i < roomCount; i++) {
+                roomService.joinRoom("room-" + i, UUID.randomUUID().toString(), "user", i % 4 == 0 ? "secret" : null);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            expiry.stop();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<Map<String, Object>> getRoomList(Listing state) {
+        return state.roomService.getRoomList();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.meetus.benchmark;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.socketio.RoomShards;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Join-then-leave throughput from four threads, either calling RoomService
+ * directly under its room locks or handing each pair to the room's actor
+ * shard and waiting for a batch to finish. {@code rooms=1} puts every join in
+ * the same room.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RoomShardsBenchmark {
+
+    private static final int BATCH = 100;
+
+    public record Visit(String roomId, String username, CountDownLatch done) {
+    }
+
+    @State(Scope.Benchmark)
+    public static class Rooms {
+        @Param({"1", "1000"})
+        int rooms;
+
+        ExpiryService expiry;
+        RoomService roomService;
+        RoomShards roomShards;
+        SocketIOServer server;
+        DataListener<Visit> visit;
+        String[] roomIds;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            expiry = Fixtures.expiryService(100);
+            roomService = Fixtures.roomService(expiry);
+            Fixtures.set(roomService, "maxUsersPerRoom", Integer.MAX_VALUE);
+            roomShards = new RoomShards();
+            Fixtures.set(roomShards, "enabled", true);
+            Fixtures.set(roomShards, "shardCount", 4);
+            roomShards.start();
+            server = new SocketIOServer(new Configuration());
+            visit = roomShards.inRoom(Visit::roomId, (client, data, ackSender) -> {
+                String sessionId = client.getSessionId().toString();
+                roomService.joinRoom(data.roomId(), sessionId, data.username(), null);
+                roomService.leaveRoom(sessionId);
+                data.done().countDown();
+            });
+            roomIds = new String[rooms];
+            for (int i = 0; i < rooms; i++) {
+                roomIds[i] = "room-" + i;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            roomShards.stop();
+            expiry.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        FakeClient client;
+        String sessionId;
+        String username;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Rooms state) {
+            client = FakeClient.recording(state.server);
+            sessionId = client.getSessionId().toString();
+            username = "user-" + sessionId.substring(0, 8);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void locks(Rooms state, Session session) throws Exception {
+        for (int i = 0; i < BATCH; i++) {
+            String roomId = state.roomIds[session.next++ % state.roomIds.length];
+            state.roomService.joinRoom(roomId, session.sessionId, session.username, null);
+            state.roomService.leaveRoom(session.sessionId);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void actors(Rooms state, Session session) throws Exception {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            String roomId = state.roomIds[session.next++ % state.roomIds.length];
+            state.visit.onData(session.client, new Visit(roomId, session.username, done), null);
+        }
+        done.await();
+    }
+}
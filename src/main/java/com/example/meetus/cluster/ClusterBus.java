@@ -0,0 +1,18 @@
+package com.example.meetus.cluster;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Node-to-node transport for forwarded events. Messages are published in
+ * batches addressed to a single node, and each node must see its batches in
+ * publish order.
+ */
+public interface ClusterBus {
+
+    void publish(String nodeId, List<ClusterMessage> batch);
+
+    void subscribe(String nodeId, Consumer<List<ClusterMessage>> consumer);
+
+    void unsubscribe(String nodeId);
+}
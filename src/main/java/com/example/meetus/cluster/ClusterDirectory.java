@@ -0,0 +1,60 @@
+package com.example.meetus.cluster;
+
+import com.example.meetus.model.User;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cluster-wide view of where sessions live and of every room's membership:
+ * which node holds each session, and for each room its settings and its
+ * members on every node. Any node can seat a member in any room; admission
+ * (password, free username, capacity) is decided here so that it holds across
+ * nodes, while each node keeps the state of its own members.
+ */
+public interface ClusterDirectory {
+
+    /**
+     * A room's settings, fixed by the session that created it on whichever node
+     * it joined: the password hash (see Secrets), null for an open room, and the
+     * creator's session id.
+     */
+    record SharedRoom(String passwordHash, String createdBy) {
+    }
+
+    enum Admission {
+        JOINED,
+        // The room was created, deleted or re-created since the caller read it
+        ROOM_CHANGED,
+        USERNAME_TAKEN,
+        FULL
+    }
+
+    void registerSession(String sessionId, String nodeId);
+
+    void unregisterSession(String sessionId);
+
+    String nodeOf(String sessionId);
+
+    // Null when the room has no members on any node
+    SharedRoom room(String roomId);
+
+    /**
+     * Atomically records a member of the room on {@code nodeId}. A room without
+     * members is created with the given settings, but only by the session they
+     * name as creator. An existing room must still have exactly these settings,
+     * i.e. the ones the caller checked the password against. The username must
+     * not belong to another member on any node (ignoring case) and the room must
+     * have fewer than {@code maxUsers} members, unless the session already has a
+     * seat. Nothing is recorded unless the result is {@code JOINED}.
+     */
+    Admission joinRoom(String roomId, SharedRoom settings, String nodeId, String sessionId, String username,
+                       int maxUsers);
+
+    void leaveRoom(String roomId, String nodeId, String sessionId);
+
+    Set<String> nodesInRoom(String roomId);
+
+    // Members on every node, in the order they joined
+    List<User> members(String roomId);
+}
@@ -0,0 +1,23 @@
+package com.example.meetus.cluster;
+
+/**
+ * A Socket.IO event forwarded to another node. Exactly one of
+ * {@code targetSessionId} or {@code roomId} is set: the former for a direct
+ * relay, the latter for a room broadcast delivered to the node's local members.
+ *
+ * The payload is the outbound event object itself (an OutboundEvents record,
+ * RawJson, a list or a map) and is handed over by reference, which only
+ * {@link InMemoryClusterBus} can do. A bus that crosses a process boundary has
+ * to encode it, e.g. with {@code RawJson.encode}, and send the decoded side on
+ * as RawJson, which Socket.IO writes out unchanged.
+ */
+public record ClusterMessage(String event, Object payload, String targetSessionId, String roomId) {
+
+    public static ClusterMessage toSession(String sessionId, String event, Object payload) {
+        return new ClusterMessage(event, payload, sessionId, null);
+    }
+
+    public static ClusterMessage toRoom(String roomId, String event, Object payload) {
+        return new ClusterMessage(event, payload, null, roomId);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.meetus.cluster;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.meetus.cluster.ClusterDirectory.SharedRoom;
+import com.example.meetus.model.Room;
+import com.example.meetus.model.User;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.service.RoomService.UserSession;
+import com.example.meetus.service.Secrets;
+import com.example.meetus.socketio.EventMetrics;
+import com.example.meetus.socketio.OutboundQueues;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Single outbound path for relays and room broadcasts. Local recipients are
+ * served through their per-session {@link OutboundQueues}. When clustering is enabled, the
+ * relay also forwards to sessions held by other nodes, sending one message per
+ * remote node for each room broadcast rather than one per user.
+ *
+ * Any node can seat a member in any room. Admission goes through the
+ * {@link ClusterDirectory}, which holds each room's password hash, creator and
+ * members on every node; each node keeps a local copy of the room for its own
+ * members, created with the shared settings. A room deleted or expired on one
+ * node is dropped on every node, and room broadcasts arriving from other nodes
+ * count as activity in the local copy. Room lists and queries only cover the
+ * local copies, with their local member counts.
+ */
+@Slf4j
+@Component
+public class ClusterRelay {
+
+    private final SocketIOServer server;
+    private final ClusterBus bus;
+    private final ClusterDirectory directory;
+    private final OutboundQueues outboundQueues;
+    private final RoomService roomService;
+    private final EventMetrics eventMetrics;
+
+    @Value("${meetus.cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.cluster.node-id:}")
+    private String nodeId;
+
+    @Autowired
+    public ClusterRelay(SocketIOServer server, ClusterBus bus, ClusterDirectory directory,
+                        OutboundQueues outboundQueues, RoomService roomService, EventMetrics eventMetrics) {
+        this.server = server;
+        this.bus = bus;
+        this.directory = directory;
+        this.outboundQueues = outboundQueues;
+        this.roomService = roomService;
+        this.eventMetrics = eventMetrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        if (enabled) {
+            bus.subscribe(nodeId, this::deliver);
+            log.info("Cluster mode enabled, node id {}", nodeId);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (enabled) {
+            bus.unsubscribe(nodeId);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void sessionConnected(String sessionId) {
+        if (enabled) {
+            directory.registerSession(sessionId, nodeId);
+        }
+    }
+
+    public void sessionDisconnected(String sessionId) {
+        if (enabled) {
+            directory.unregisterSession(sessionId);
+        }
+    }
+
+    /**
+     * Seats a session in a room. With clustering enabled the password, username
+     * and capacity are checked against the room's members on every node before
+     * the session is seated locally; otherwise this is RoomService's own join.
+     */
+    public Room joinRoom(String roomId, String sessionId, String username, String password,
+                         SocketIOClient client) throws Exception {
+        if (!enabled) {
+            return roomService.joinRoom(roomId, sessionId, username, password, client);
+        }
+        roomService.checkJoin(roomId, username);
+        int maxUsers = roomService.getMaxUsersPerRoom();
+        while (true) {
+            // The password is checked before, and outside, the atomic admission; the admission
+            // then fails if the room's settings changed in between
+            SharedRoom settings = directory.room(roomId);
+            if (settings == null) {
+                settings = new SharedRoom(roomService.hashPassword(password), sessionId);
+            } else if (settings.passwordHash() != null && !Secrets.passwordMatches(settings.passwordHash(), password)) {
+                throw new Exception("Invalid password");
+            }
+
+            switch (directory.joinRoom(roomId, settings, nodeId, sessionId, username, maxUsers)) {
+                case JOINED -> {
+                    try {
+                        return roomService.joinAdmitted(roomId, sessionId, username, settings.passwordHash(),
+                                settings.createdBy(), client);
+                    } catch (Exception e) {
+                        directory.leaveRoom(roomId, nodeId, sessionId);
+                        throw e;
+                    }
+                }
+                case ROOM_CHANGED -> {
+                }
+                case USERNAME_TAKEN -> throw new Exception("Username '" + username + "' is already taken in this room");
+                case FULL -> throw new Exception("Room is full (max " + maxUsers + " users)");
+            }
+        }
+    }
+
+    // Members on every node when clustering is enabled, in join order
+    public List<User> members(Room room) {
+        return enabled ? directory.members(room.getRoomId()) : room.getUsers();
+    }
+
+    public void roomLeft(String roomId, String sessionId) {
+        if (enabled) {
+            directory.leaveRoom(roomId, nodeId, sessionId);
+        }
+    }
+
+    /**
+     * Sends an event to one session wherever it lives. Returns false when the
+     * session is not known to this node or to the cluster.
+     */
+    public boolean sendToSession(String sessionId, String event, Object payload) {
+        SocketIOClient client = localClient(sessionId);
+        if (client != null) {
+            outboundQueues.send(client, event, payload);
+            eventMetrics.relayed(event);
+            return true;
+        }
+        if (enabled) {
+            String owner = directory.nodeOf(sessionId);
+            if (owner != null && !owner.equals(nodeId)) {
+                bus.publish(owner, List.of(ClusterMessage.toSession(sessionId, event, payload)));
+                eventMetrics.relayed(event);
+                return true;
+            }
+        }
+        eventMetrics.lookupFailed(event);
+        return false;
+    }
+
+    /**
+     * Broadcasts an event to every member of a room, optionally skipping the
+     * sender, which is always a local client.
+     */
+    public void broadcastToRoom(String roomId, String event, Object payload, SocketIOClient excludedClient) {
+        int recipients = outboundQueues.sendToRoom(roomId, event, payload, excludedClient);
+
+        if (enabled) {
+            List<ClusterMessage> batch = List.of(ClusterMessage.toRoom(roomId, event, payload));
+            for (String remoteNode : directory.nodesInRoom(roomId)) {
+                if (!remoteNode.equals(nodeId)) {
+                    bus.publish(remoteNode, batch);
+                    recipients++;
+                }
+            }
+        }
+        // Fan-out counts local recipients plus one per remote node
+        eventMetrics.broadcast(event, recipients);
+    }
+
+    private void deliver(List<ClusterMessage> batch) {
+        for (ClusterMessage message : batch) {
+            if (message.targetSessionId() != null) {
+                SocketIOClient client = localClient(message.targetSessionId());
+                if (client != null) {
+                    outboundQueues.send(client, message.event(), message.payload());
+                } else {
+                    log.debug("Forwarded {} for unknown session {}", message.event(), message.targetSessionId());
+                }
+            } else {
+                outboundQueues.sendToRoom(message.roomId(), message.event(), message.payload(), null);
+                if (message.event().equals("room-deleted")) {
+                    dropRoom(message.roomId());
+                } else {
+                    roomService.touchRoom(message.roomId());
+                }
+            }
+        }
+    }
+
+    // The room's members here have been told; their seats and socket room go with it
+    private void dropRoom(String roomId) {
+        for (User user : roomService.removeRoom(roomId)) {
+            directory.leaveRoom(roomId, nodeId, user.getId());
+        }
+        for (SocketIOClient client : server.getRoomOperations(roomId).getClients()) {
+            client.leaveRoom(roomId);
+        }
+    }
+
+    // Seated targets come straight from the session registry; others go through the server's UUID map
+    private SocketIOClient localClient(String sessionId) {
+        UserSession session = roomService.getUserSession(sessionId);
+        if (session != null && session.getClient() != null && session.getClient().isChannelOpen()) {
+            return session.getClient();
+        }
+        try {
+            return server.getClient(UUID.fromString(sessionId));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
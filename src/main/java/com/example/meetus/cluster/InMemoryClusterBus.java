@@ -0,0 +1,62 @@
+package com.example.meetus.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * JVM-local bus. Every node in the same process shares one instance, and each
+ * subscriber gets its own delivery thread. Delivery is asynchronous like a
+ * real network hop, and batches for one node keep their publish order. This
+ * lets multi-node behaviour run inside a single JVM.
+ */
+@Slf4j
+public class InMemoryClusterBus implements ClusterBus {
+
+    private static final InMemoryClusterBus SHARED = new InMemoryClusterBus();
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    private record Subscriber(Consumer<List<ClusterMessage>> consumer, ExecutorService executor) {
+    }
+
+    public static InMemoryClusterBus shared() {
+        return SHARED;
+    }
+
+    @Override
+    public void publish(String nodeId, List<ClusterMessage> batch) {
+        Subscriber subscriber = subscribers.get(nodeId);
+        if (subscriber == null) {
+            log.warn("Dropping {} cluster messages for unknown node {}", batch.size(), nodeId);
+            return;
+        }
+        subscriber.executor().execute(() -> subscriber.consumer().accept(batch));
+    }
+
+    @Override
+    public void subscribe(String nodeId, Consumer<List<ClusterMessage>> consumer) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-bus-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Subscriber previous = subscribers.put(nodeId, new Subscriber(consumer, executor));
+        if (previous != null) {
+            previous.executor().shutdown();
+        }
+    }
+
+    @Override
+    public void unsubscribe(String nodeId) {
+        Subscriber removed = subscribers.remove(nodeId);
+        if (removed != null) {
+            removed.executor().shutdown();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.meetus.cluster;
+
+import com.example.meetus.model.RoomMembers;
+import com.example.meetus.model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM-local directory shared by every node in the process, the companion of
+ * {@link InMemoryClusterBus}.
+ */
+public class InMemoryClusterDirectory implements ClusterDirectory {
+
+    private static final InMemoryClusterDirectory SHARED = new InMemoryClusterDirectory();
+
+    private final Map<String, String> sessionNodes = new ConcurrentHashMap<>();
+    private final Map<String, RoomEntry> rooms = new ConcurrentHashMap<>();
+
+    // Changed only inside rooms.compute for its id; read under its own monitor
+    private static final class RoomEntry {
+        final SharedRoom settings;
+        // sessionId -> member, in join order
+        final Map<String, Member> members = new LinkedHashMap<>();
+        // RoomMembers.usernameKey -> sessionId
+        final Map<String, String> usernames = new HashMap<>();
+        // nodeId -> members held by the node
+        final Map<String, Integer> nodes = new HashMap<>();
+
+        RoomEntry(SharedRoom settings) {
+            this.settings = settings;
+        }
+    }
+
+    private record Member(String username, String nodeId) {
+    }
+
+    public static InMemoryClusterDirectory shared() {
+        return SHARED;
+    }
+
+    @Override
+    public void registerSession(String sessionId, String nodeId) {
+        sessionNodes.put(sessionId, nodeId);
+    }
+
+    @Override
+    public void unregisterSession(String sessionId) {
+        sessionNodes.remove(sessionId);
+    }
+
+    @Override
+    public String nodeOf(String sessionId) {
+        return sessionNodes.get(sessionId);
+    }
+
+    @Override
+    public SharedRoom room(String roomId) {
+        RoomEntry entry = rooms.get(roomId);
+        return entry != null ? entry.settings : null;
+    }
+
+    @Override
+    public Admission joinRoom(String roomId, SharedRoom settings, String nodeId, String sessionId, String username,
+                              int maxUsers) {
+        Admission[] admission = new Admission[1];
+        rooms.compute(roomId, (r, entry) -> {
+            if (entry == null) {
+                if (!sessionId.equals(settings.createdBy())) {
+                    admission[0] = Admission.ROOM_CHANGED;
+                    return null;
+                }
+                entry = new RoomEntry(settings);
+            } else if (!entry.settings.equals(settings)) {
+                admission[0] = Admission.ROOM_CHANGED;
+                return entry;
+            }
+            synchronized (entry) {
+                admission[0] = admit(entry, nodeId, sessionId, username, maxUsers);
+                return entry.members.isEmpty() ? null : entry;
+            }
+        });
+        return admission[0];
+    }
+
+    private static Admission admit(RoomEntry entry, String nodeId, String sessionId, String username, int maxUsers) {
+        String key = RoomMembers.usernameKey(username);
+        String owner = entry.usernames.get(key);
+        if (owner != null && !owner.equals(sessionId)) {
+            return Admission.USERNAME_TAKEN;
+        }
+        boolean seated = entry.members.containsKey(sessionId);
+        if (!seated && entry.members.size() >= maxUsers) {
+            return Admission.FULL;
+        }
+        if (seated) {
+            remove(entry, sessionId);
+        }
+        entry.members.put(sessionId, new Member(username, nodeId));
+        entry.usernames.put(key, sessionId);
+        entry.nodes.merge(nodeId, 1, Integer::sum);
+        return Admission.JOINED;
+    }
+
+    @Override
+    public void leaveRoom(String roomId, String nodeId, String sessionId) {
+        rooms.computeIfPresent(roomId, (r, entry) -> {
+            synchronized (entry) {
+                Member member = entry.members.get(sessionId);
+                if (member != null && member.nodeId().equals(nodeId)) {
+                    remove(entry, sessionId);
+                }
+                return entry.members.isEmpty() ? null : entry;
+            }
+        });
+    }
+
+    private static void remove(RoomEntry entry, String sessionId) {
+        Member member = entry.members.remove(sessionId);
+        entry.usernames.remove(RoomMembers.usernameKey(member.username()), sessionId);
+        entry.nodes.computeIfPresent(member.nodeId(), (n, count) -> count > 1 ? count - 1 : null);
+    }
+
+    @Override
+    public Set<String> nodesInRoom(String roomId) {
+        RoomEntry entry = rooms.get(roomId);
+        if (entry == null) {
+            return Set.of();
+        }
+        synchronized (entry) {
+            return Set.copyOf(entry.nodes.keySet());
+        }
+    }
+
+    @Override
+    public List<User> members(String roomId) {
+        RoomEntry entry = rooms.get(roomId);
+        if (entry == null) {
+            return List.of();
+        }
+        synchronized (entry) {
+            List<User> users = new ArrayList<>(entry.members.size());
+            entry.members.forEach((sessionId, member) -> users.add(new User(sessionId, member.username())));
+            return users;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.meetus.config;
+
+import com.example.meetus.cluster.ClusterBus;
+import com.example.meetus.cluster.ClusterDirectory;
+import com.example.meetus.cluster.InMemoryClusterBus;
+import com.example.meetus.cluster.InMemoryClusterDirectory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterConfig {
+
+    // The in-memory bus joins every node started in the same JVM. Other transports plug in by
+    // choosing a different meetus.cluster.bus value and providing their own beans.
+    @Bean
+    @ConditionalOnProperty(name = "meetus.cluster.bus", havingValue = "memory", matchIfMissing = true)
+    public ClusterBus clusterBus() {
+        return InMemoryClusterBus.shared();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "meetus.cluster.bus", havingValue = "memory", matchIfMissing = true)
+    public ClusterDirectory clusterDirectory() {
+        return InMemoryClusterDirectory.shared();
+    }
+}
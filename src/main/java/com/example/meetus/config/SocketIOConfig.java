@@ -1,7 +1,11 @@
 package com.example.meetus.config;
 
 import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketConfig;
 import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.Transport;
+import com.example.meetus.socketio.RawJsonSupport;
+import io.netty.channel.epoll.Epoll;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +25,89 @@ public class SocketIOConfig {
     @Value("${frontend.origin}")
     private String frontendOrigin;
 
+    // Transport tuning: each setting falls back to the preset when left unset
+    @Value("${socket.io.transport.preset:default}")
+    private String transportPreset;
+
+    @Value("${socket.io.transport.native-epoll:#{null}}")
+    private Boolean nativeEpoll;
+
+    @Value("${socket.io.transport.boss-threads:#{null}}")
+    private Integer bossThreads;
+
+    @Value("${socket.io.transport.worker-threads:#{null}}")
+    private Integer workerThreads;
+
+    @Value("${socket.io.transport.prefer-direct-buffer:#{null}}")
+    private Boolean preferDirectBuffer;
+
+    @Value("${socket.io.transport.tcp-no-delay:#{null}}")
+    private Boolean tcpNoDelay;
+
+    @Value("${socket.io.transport.accept-backlog:#{null}}")
+    private Integer acceptBacklog;
+
+    @Value("${socket.io.transport.send-buffer-size:#{null}}")
+    private Integer sendBufferSize;
+
+    @Value("${socket.io.transport.receive-buffer-size:#{null}}")
+    private Integer receiveBufferSize;
+
+    @Value("${socket.io.transport.write-buffer-low:#{null}}")
+    private Integer writeBufferLow;
+
+    @Value("${socket.io.transport.write-buffer-high:#{null}}")
+    private Integer writeBufferHigh;
+
+    @Value("${socket.io.transport.websocket-only:#{null}}")
+    private Boolean websocketOnly;
+
+    @Value("${socket.io.transport.max-frame-payload-length:#{null}}")
+    private Integer maxFramePayloadLength;
+
+    /**
+     * Baseline transport settings. A value of 0 or -1 keeps the netty-socketio
+     * (or OS) default.
+     */
+    private enum TransportPreset {
+        // Same as netty-socketio's own defaults
+        DEFAULT(false, 0, 0, true, true, 1024, -1, -1, -1, -1, false, 64 * 1024),
+        // Many mostly idle websocket connections per node: epoll, one acceptor, a worker per core,
+        // a deep accept queue and small per-channel write buffers so slow peers hit backpressure early
+        HIGH_CONNECTIONS(true, 1, 2 * Runtime.getRuntime().availableProcessors(), true, true, 8192,
+                -1, -1, 16 * 1024, 32 * 1024, true, 64 * 1024);
+
+        final boolean nativeEpoll;
+        final int bossThreads;
+        final int workerThreads;
+        final boolean preferDirectBuffer;
+        final boolean tcpNoDelay;
+        final int acceptBacklog;
+        final int sendBufferSize;
+        final int receiveBufferSize;
+        final int writeBufferLow;
+        final int writeBufferHigh;
+        final boolean websocketOnly;
+        final int maxFramePayloadLength;
+
+        TransportPreset(boolean nativeEpoll, int bossThreads, int workerThreads, boolean preferDirectBuffer,
+                        boolean tcpNoDelay, int acceptBacklog, int sendBufferSize, int receiveBufferSize,
+                        int writeBufferLow, int writeBufferHigh, boolean websocketOnly, int maxFramePayloadLength) {
+            this.nativeEpoll = nativeEpoll;
+            this.bossThreads = bossThreads;
+            this.workerThreads = workerThreads;
+            this.preferDirectBuffer = preferDirectBuffer;
+            this.tcpNoDelay = tcpNoDelay;
+            this.acceptBacklog = acceptBacklog;
+            this.sendBufferSize = sendBufferSize;
+            this.receiveBufferSize = receiveBufferSize;
+            this.writeBufferLow = writeBufferLow;
+            this.writeBufferHigh = writeBufferHigh;
+            this.websocketOnly = websocketOnly;
+            this.maxFramePayloadLength = maxFramePayloadLength;
+        }
+    }
+
     @Bean
     public SocketIOServer socketIOServer() {
         Configuration config = new Configuration();
@@ -50,6 +137,60 @@ public class SocketIOConfig {
 
         config.setAllowCustomRequests(true);
 
+        // Relayed SDP/ICE payloads are sliced out of the inbound frame instead of re-tokenized
+        config.setJsonSupport(new RawJsonSupport());
+
+        configureTransport(config);
+
         return new SocketIOServer(config);
     }
+
+    private void configureTransport(Configuration config) {
+        TransportPreset preset = TransportPreset.valueOf(
+                transportPreset.trim().toUpperCase().replace('-', '_'));
+
+        boolean epoll = orDefault(nativeEpoll, preset.nativeEpoll);
+        if (epoll && !Epoll.isAvailable()) {
+            log.warn("Native epoll transport requested but unavailable, using NIO: {}",
+                    Epoll.unavailabilityCause().toString());
+            epoll = false;
+        }
+        config.setUseLinuxNativeEpoll(epoll);
+
+        int boss = orDefault(bossThreads, preset.bossThreads);
+        if (boss > 0) {
+            config.setBossThreads(boss);
+        }
+        int workers = orDefault(workerThreads, preset.workerThreads);
+        if (workers > 0) {
+            config.setWorkerThreads(workers);
+        }
+
+        // Netty's default allocator is already pooled; this picks direct over heap buffers
+        config.setPreferDirectBuffer(orDefault(preferDirectBuffer, preset.preferDirectBuffer));
+
+        if (orDefault(websocketOnly, preset.websocketOnly)) {
+            // Clients must connect with transports: ['websocket'], skipping the polling handshake
+            config.setTransports(Transport.WEBSOCKET);
+        }
+        config.setMaxFramePayloadLength(orDefault(maxFramePayloadLength, preset.maxFramePayloadLength));
+
+        SocketConfig socketConfig = new SocketConfig();
+        socketConfig.setTcpNoDelay(orDefault(tcpNoDelay, preset.tcpNoDelay));
+        socketConfig.setAcceptBackLog(orDefault(acceptBacklog, preset.acceptBacklog));
+        socketConfig.setTcpSendBufferSize(orDefault(sendBufferSize, preset.sendBufferSize));
+        socketConfig.setTcpReceiveBufferSize(orDefault(receiveBufferSize, preset.receiveBufferSize));
+        // Channel writability (and so the outbound queues) flips at these marks
+        socketConfig.setWriteBufferWaterMarkLow(orDefault(writeBufferLow, preset.writeBufferLow));
+        socketConfig.setWriteBufferWaterMarkHigh(orDefault(writeBufferHigh, preset.writeBufferHigh));
+        config.setSocketConfig(socketConfig);
+
+        log.info("Socket.IO transport: preset={}, epoll={}, bossThreads={}, workerThreads={}, websocketOnly={}",
+                preset, epoll, config.getBossThreads(), config.getWorkerThreads(),
+                config.getTransports().size() == 1);
+    }
+
+    private static <T> T orDefault(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
 }
\ No newline at end of file
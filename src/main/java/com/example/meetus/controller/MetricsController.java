@@ -0,0 +1,69 @@
+package com.example.meetus.controller;
+
+import com.example.meetus.socketio.CallSetupTracker;
+import com.example.meetus.socketio.EventMetrics;
+import com.example.meetus.socketio.OutboundQueues;
+import com.example.meetus.socketio.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Read-only operational metrics. These endpoints are not authenticated: the
+ * application excludes Spring Security's auto-configuration, so anyone who
+ * can reach the web port can read them. They expose traffic rates, room and
+ * session counts and, under {@code /call-setup}, the session ids of stuck
+ * negotiations, so keep them off the public internet, e.g. serve
+ * {@code /api/metrics/**} only to the scraper's network at the reverse proxy.
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final OutboundQueues outboundQueues;
+    private final RateLimiter rateLimiter;
+    private final EventMetrics eventMetrics;
+    private final CallSetupTracker callSetupTracker;
+
+    @Autowired
+    public MetricsController(OutboundQueues outboundQueues, RateLimiter rateLimiter, EventMetrics eventMetrics,
+                             CallSetupTracker callSetupTracker) {
+        this.outboundQueues = outboundQueues;
+        this.rateLimiter = rateLimiter;
+        this.eventMetrics = eventMetrics;
+        this.callSetupTracker = callSetupTracker;
+    }
+
+    // Queue depth, congested sessions, dropped and coalesced frames, slow-consumer disconnects
+    @GetMapping("/outbound")
+    public Map<String, Object> outbound() {
+        return outboundQueues.getStats();
+    }
+
+    // Throttled events per event type, per IP and node-wide
+    @GetMapping("/rate-limits")
+    public Map<String, Object> rateLimits() {
+        return rateLimiter.getStats();
+    }
+
+    // Per-event counts, handler latency and fan-out histograms, room and session gauges
+    @GetMapping("/events")
+    public Map<String, Object> events() {
+        return eventMetrics.getStats();
+    }
+
+    // The same in the Prometheus text format, for scrapers
+    @GetMapping(value = "/prometheus", produces = "text/plain; version=0.0.4")
+    public String prometheus() {
+        return eventMetrics.scrape();
+    }
+
+    // Offer -> answer -> ICE timings per peer pair, stuck and expired negotiations
+    @GetMapping("/call-setup")
+    public Map<String, Object> callSetup() {
+        return callSetupTracker.getStats();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.meetus.controller;
+
+import com.example.meetus.model.RoomPage;
+import com.example.meetus.model.RoomQuery;
+import com.example.meetus.service.RoomDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/rooms")
+public class RoomController {
+
+    private final RoomDirectory roomDirectory;
+
+    @Autowired
+    public RoomController(RoomDirectory roomDirectory) {
+        this.roomDirectory = roomDirectory;
+    }
+
+    // e.g. GET /api/rooms?prefix=team&notFull=true&limit=20&cursor=team-42
+    @GetMapping
+    public ResponseEntity<RoomPage> listRooms(RoomQuery query, WebRequest request) {
+        // The version is read before the page, so the page is never older than its ETag and a
+        // matching If-None-Match never hides a newer directory
+        RoomDirectory.Version version = roomDirectory.getVersion();
+        if (request.checkNotModified(version.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(version.etag())
+                .body(roomDirectory.query(version, query));
+    }
+}
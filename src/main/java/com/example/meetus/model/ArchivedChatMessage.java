@@ -0,0 +1,8 @@
+package com.example.meetus.model;
+
+/**
+ * Chat message read back from the durable archive. The id orders messages
+ * within the archive and is used as the cursor for paging backwards.
+ */
+public record ArchivedChatMessage(long id, String roomId, String username, String message, long timestamp) {
+}
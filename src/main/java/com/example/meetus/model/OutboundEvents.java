@@ -0,0 +1,72 @@
+package com.example.meetus.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Immutable payloads of the events the server emits, in place of the per-send
+ * HashMaps. They carry the same keys as the maps did; properties now come in
+ * component order rather than hash order. Null components are left out, as
+ * the maps' null values were: the socket encoder and {@link RawJson#encode}
+ * both write non-null values only. Jackson builds one serializer per record
+ * type and reuses it, so encoding never introspects a map. Room broadcasts
+ * with more than one recipient are encoded only once, see
+ * {@link RawJson#encode}.
+ */
+public final class OutboundEvents {
+
+    private OutboundEvents() {
+    }
+
+    public record Offer(String from, RawJson offer, String username) {
+    }
+
+    public record Answer(String from, RawJson answer) {
+    }
+
+    public record IceCandidate(String from, RawJson candidate) {
+    }
+
+    public record IceCandidates(String from, List<Object> candidates) {
+    }
+
+    // user-joined, user-left, and user-ended-call when caused by leaving
+    public record UserPresence(String id, String username) {
+    }
+
+    // user-ended-call sent on an explicit end-call
+    public record CallEnded(String userId, String username) {
+    }
+
+    public record Chat(String username, String message, Long timestamp) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ChatHistoryPage(List<ArchivedChatMessage> messages, Long nextBeforeId) {
+    }
+
+    public record FileOffer(String from, String fileName, Long fileSize, String fileType, String username) {
+    }
+
+    // file-accepted and file-rejected
+    public record FileReply(String from) {
+    }
+
+    // Sent, or acked, when an event is dropped by the rate limiter
+    public record RateLimited(String event, long retryAfterMs) {
+    }
+
+    // Either deletedBy (creator delete) or reason (expiry) is set
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record RoomDeleted(String roomId, String deletedBy, String reason) {
+    }
+
+    public record JoinSuccess(String roomId, String username,
+                              @JsonProperty("hasPassword") boolean hasPassword,
+                              String password,
+                              @JsonProperty("isCreator") boolean isCreator,
+                              String resumeToken) {
+    }
+}
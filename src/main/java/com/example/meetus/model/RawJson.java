@@ -0,0 +1,249 @@
+package com.example.meetus.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Opaque JSON value relayed without being bound to Java objects. It holds the
+ * value's UTF-8 bytes: on the way in they are sliced out of the inbound frame,
+ * and on the way out they are copied into the encoder's buffer as they are, so
+ * SDP and ICE payloads are never decoded into strings or nested maps.
+ *
+ * Slicing needs the frame being parsed, which the socket layer publishes with
+ * {@link #beginFrame}; without one the value's tokens are copied instead.
+ *
+ * The same wrapper lets a payload sent to many recipients be serialized once:
+ * {@link #encode} turns it into JSON bytes that every recipient's encoder then
+ * copies as is.
+ */
+@JsonSerialize(using = RawJson.Serializer.class)
+@JsonDeserialize(using = RawJson.Deserializer.class)
+public final class RawJson {
+
+    // Writes what netty-socketio's JacksonJsonSupport writes for a payload it encodes itself, so a
+    // pre-encoded broadcast and a directly sent event look the same on the wire
+    private static final ObjectMapper MAPPER = new ObjectMapper(JsonFactory.builder()
+            .enable(StreamWriteFeature.WRITE_BIGDECIMAL_AS_PLAIN)
+            .build())
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    // The inbound frame being parsed on this thread, if the socket layer is parsing one
+    private static final ThreadLocal<byte[]> FRAME = new ThreadLocal<>();
+
+    private final Utf8Value value;
+
+    public RawJson(String json) {
+        this(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private RawJson(byte[] utf8) {
+        this(utf8, 0, utf8.length);
+    }
+
+    // A view of part of an array, normally the inbound frame the value was parsed from
+    private RawJson(byte[] utf8, int offset, int length) {
+        this.value = new Utf8Value(utf8, offset, length);
+    }
+
+    public static RawJson encode(Object value) throws JsonProcessingException {
+        return value instanceof RawJson raw ? raw : new RawJson(MAPPER.writeValueAsBytes(value));
+    }
+
+    /**
+     * Marks {@code frame} as the JSON text parsed on this thread until
+     * {@link #endFrame}; values deserialized meanwhile are slices of it.
+     */
+    public static void beginFrame(byte[] frame) {
+        FRAME.set(frame);
+    }
+
+    public static void endFrame() {
+        FRAME.set(null);
+    }
+
+    public String getJson() {
+        return value.getValue();
+    }
+
+    // Size of the encoded value in bytes
+    public int length() {
+        return value.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RawJson raw
+                && Arrays.equals(value.utf8, value.offset, value.offset + value.length,
+                        raw.value.utf8, raw.value.offset, raw.value.offset + raw.value.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = value.offset; i < value.offset + value.length; i++) {
+            hash = 31 * hash + value.utf8[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "RawJson(json=" + getJson() + ")";
+    }
+
+    public static class Serializer extends JsonSerializer<RawJson> {
+        @Override
+        public void serialize(RawJson value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(value.value);
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<RawJson> {
+        private static final JsonFactory FACTORY = new JsonFactory();
+
+        @Override
+        public RawJson deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            byte[] frame = FRAME.get();
+            JsonToken token = p.currentToken();
+            if (frame != null && (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY)) {
+                long start = p.currentTokenLocation().getByteOffset();
+                // Only slice when the parser is reading this frame, i.e. the token starts where it says
+                if (start >= 0 && start < frame.length
+                        && frame[(int) start] == (token == JsonToken.START_OBJECT ? '{' : '[')) {
+                    // Skipping matches brackets without decoding strings or numbers
+                    p.skipChildren();
+                    long end = p.currentLocation().getByteOffset();
+                    // The value shares the frame's array rather than copying out of it
+                    return new RawJson(frame, (int) start, (int) (end - start));
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator copy = FACTORY.createGenerator(out)) {
+                copy.copyCurrentStructure(p);
+            }
+            return new RawJson(out.toByteArray());
+        }
+    }
+
+    /**
+     * The bytes as a raw value for Jackson's generators. The UTF-8 generator
+     * copies them into its buffer; the quoted forms, which only apply to
+     * property names, go through a decoded string.
+     */
+    private static final class Utf8Value implements SerializableString {
+        final byte[] utf8;
+        final int offset;
+        final int length;
+        private SerializedString text;
+
+        Utf8Value(byte[] utf8, int offset, int length) {
+            this.utf8 = utf8;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private SerializedString text() {
+            SerializedString decoded = text;
+            if (decoded == null) {
+                decoded = new SerializedString(new String(utf8, offset, length, StandardCharsets.UTF_8));
+                text = decoded;
+            }
+            return decoded;
+        }
+
+        @Override
+        public String getValue() {
+            return text().getValue();
+        }
+
+        @Override
+        public int charLength() {
+            return text().charLength();
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return text().asQuotedChars();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return offset == 0 && length == utf8.length ? utf8 : Arrays.copyOfRange(utf8, offset, offset + length);
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return text().asQuotedUTF8();
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return text().appendQuotedUTF8(buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return text().appendQuoted(buffer, offset);
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(utf8, this.offset, buffer, offset, length);
+            return length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return text().appendUnquoted(buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            return text().writeQuotedUTF8(out);
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(utf8, offset, length);
+            return length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+            return text().putQuotedUTF8(buffer);
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+            if (length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(utf8, offset, length);
+            return length;
+        }
+    }
+}
@@ -1,43 +1,66 @@
 package com.example.meetus.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Data
 @NoArgsConstructor
 public class Room {
     private String roomId;
-    private List<User> users = new ArrayList<>();
-    private String password;
+    private final RoomMembers members = new RoomMembers();
+    // Salted hash of the room password (see Secrets), null for an open room
+    private String passwordHash;
     private Instant createdAt;
     private String createdBy;
+    // Wall-clock time of the last join, leave or chat message, for idle expiry
+    private volatile long lastActivityMillis;
+    // Held for every change to the room's membership. Not a monitor: a virtual thread waiting
+    // for it unmounts instead of pinning its carrier thread.
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient ReentrantLock lock = new ReentrantLock();
     
     public Room(String roomId) {
         this.roomId = roomId;
         this.createdAt = Instant.now();
-        this.users = new ArrayList<>();
+        this.lastActivityMillis = System.currentTimeMillis();
     }
     
     public void addUser(User user) {
-        users.add(user);
+        members.add(user);
     }
     
     public void removeUser(String userId) {
-        users.removeIf(user -> user.getId().equals(userId));
+        members.remove(userId);
     }
     
-    public boolean hasPassword() {
-        return password != null && !password.isEmpty();
+    // Immutable snapshot of the current members, safe to iterate without any lock
+    public List<User> getUsers() {
+        return members.snapshot();
+    }
+    
+    public int getUserCount() {
+        return members.size();
+    }
+    
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+    
+    public ReentrantLock lock() {
+        return lock;
     }
     
-    public boolean validatePassword(String inputPassword) {
-        if (!hasPassword()) {
-            return true;
-        }
-        return password.equals(inputPassword);
+    public boolean hasPassword() {
+        return passwordHash != null && !passwordHash.isEmpty();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.example.meetus.model;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Membership of a single room, indexed by session id with a secondary
+ * case-insensitive username index, both hash maps. The index is keyed by the
+ * case-folded username; folding returns an all-lowercase name as is, so such
+ * a name is still held once per room. Mutations are expected to happen under
+ * the owning room's lock (one writer at a time); reads are lock-free.
+ * Iteration goes through an immutable snapshot in join order that is rebuilt
+ * lazily after a change, so fan-out loops never need a defensive copy.
+ */
+public class RoomMembers {
+
+    private final Map<String, Member> bySessionId = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionIdByUsername = new ConcurrentHashMap<>();
+    // Only written by the single writer
+    private long joins;
+    private volatile int version;
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    private record Member(User user, long joinOrder) {
+    }
+
+    private record Snapshot(int version, List<User> users) {
+    }
+
+    /**
+     * The key usernames are compared by, here and in the cluster directory.
+     */
+    public static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    // A session that re-seats itself moves to the end, as if it had left and joined again
+    public void add(User user) {
+        Member previous = bySessionId.put(user.getId(), new Member(user, joins++));
+        if (previous != null) {
+            sessionIdByUsername.remove(usernameKey(previous.user().getUsername()), previous.user().getId());
+        }
+        sessionIdByUsername.put(usernameKey(user.getUsername()), user.getId());
+        version++;
+    }
+
+    public User remove(String sessionId) {
+        Member removed = bySessionId.remove(sessionId);
+        if (removed == null) {
+            return null;
+        }
+        sessionIdByUsername.remove(usernameKey(removed.user().getUsername()), sessionId);
+        version++;
+        return removed.user();
+    }
+
+    public User get(String sessionId) {
+        Member member = bySessionId.get(sessionId);
+        return member != null ? member.user() : null;
+    }
+
+    public boolean contains(String sessionId) {
+        return bySessionId.containsKey(sessionId);
+    }
+
+    /**
+     * Returns true when the username (ignoring case) belongs to a member other
+     * than the given session.
+     */
+    public boolean isUsernameTaken(String username, String sessionId) {
+        String owner = sessionIdByUsername.get(usernameKey(username));
+        return owner != null && !owner.equals(sessionId);
+    }
+
+    /**
+     * Returns the username instance a member of this room already holds when it
+     * is spelled the same, e.g. for a session re-seating itself, so the room
+     * keeps one copy per name; otherwise the given string.
+     */
+    public String intern(String username) {
+        String owner = sessionIdByUsername.get(usernameKey(username));
+        User member = owner != null ? get(owner) : null;
+        return member != null && member.getUsername().equals(username) ? member.getUsername() : username;
+    }
+
+    public int size() {
+        return bySessionId.size();
+    }
+
+    public boolean isEmpty() {
+        return bySessionId.isEmpty();
+    }
+
+    public List<User> snapshot() {
+        // Read the version before copying: a copy that races with a writer is tagged with the
+        // stale version and gets rebuilt by the next reader.
+        int currentVersion = version;
+        Snapshot current = snapshot;
+        if (current.version() != currentVersion) {
+            current = new Snapshot(currentVersion, bySessionId.values().stream()
+                    .sorted(Comparator.comparingLong(Member::joinOrder))
+                    .map(Member::user)
+                    .toList());
+            snapshot = current;
+        }
+        return current.users();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.meetus.model;
+
+import java.util.List;
+
+/**
+ * One page of the room directory. {@code nextCursor} is null on the last page.
+ */
+public record RoomPage(List<RoomSummary> rooms, String nextCursor, String epoch, long version) {
+}
@@ -0,0 +1,16 @@
+package com.example.meetus.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class RoomQuery {
+    private String cursor;      // exclusive: return rooms after this room id
+    private Integer limit;
+    private String prefix;      // room id prefix
+    private Boolean hasPassword;
+    private Boolean notFull;
+    private Integer minUsers;
+    private Integer maxUsers;
+}
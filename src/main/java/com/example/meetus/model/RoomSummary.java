@@ -0,0 +1,7 @@
+package com.example.meetus.model;
+
+/**
+ * Lobby-facing view of a room, as listed in the room directory.
+ */
+public record RoomSummary(String roomId, int userCount, boolean hasPassword) {
+}
@@ -1,5 +1,6 @@
 package com.example.meetus.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,4 +11,12 @@ import lombok.NoArgsConstructor;
 public class User {
     private String id;
     private String username;
-} 
\ No newline at end of file
+    // Digest of the secret token that lets this seat be resumed after a restart; never sent to clients
+    @JsonIgnore
+    private String resumeTokenDigest;
+
+    public User(String id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+}
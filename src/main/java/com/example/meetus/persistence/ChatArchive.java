@@ -0,0 +1,647 @@
+package com.example.meetus.persistence;
+
+import com.example.meetus.model.ArchivedChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Optional durable chat archive made of append-only segment files.
+ *
+ * Rooms are hashed onto shards. Each shard is a directory of segments named
+ * after the first message id they hold ({@code <baseId>.log}), plus a sparse
+ * index ({@code <baseId>.idx}) with one (id, position) pair every few records.
+ * A record is framed by its length on both sides, so it can be scanned
+ * forwards and backwards, and points back at the previous record of the same
+ * room (id -1 when there is none):
+ *
+ * <pre>[int len][long id][long timestamp][long prevId][long prevPosition][str roomId][str username][str message][int len]</pre>
+ *
+ * The live relay path only offers to a bounded queue. A single writer thread
+ * drains it in batches and writes each touched shard once per batch, with one
+ * optional fsync per batch (group commit).
+ *
+ * Each shard keeps the newest record of every room in memory, so a page
+ * follows one room's chain of back-pointers and reads only that room's
+ * records, however busy the other rooms of the shard are. The map is saved
+ * next to each new segment ({@code <baseId>.heads}) when the shard rolls, so a
+ * restart only rescans the active segment. Pages are read on a small reader
+ * pool rather than the caller's thread. Segments roll at a size limit and are
+ * deleted by count and age.
+ */
+@Slf4j
+@Component
+public class ChatArchive {
+
+    @Value("${meetus.chat.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.chat.archive.directory:data/chat}")
+    private String directory;
+
+    @Value("${meetus.chat.archive.shards:8}")
+    private int shardCount;
+
+    @Value("${meetus.chat.archive.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${meetus.chat.archive.index-interval:64}")
+    private int indexInterval;
+
+    @Value("${meetus.chat.archive.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${meetus.chat.archive.fsync:false}")
+    private boolean fsync;
+
+    @Value("${meetus.chat.archive.retention.max-segments:32}")
+    private int maxSegmentsPerShard;
+
+    @Value("${meetus.chat.archive.retention.hours:168}")
+    private long retentionHours;
+
+    @Value("${meetus.chat.archive.reader-threads:2}")
+    private int readerThreads;
+
+    private Shard[] shards;
+    private BlockingQueue<Entry> queue;
+    private Thread writer;
+    private ExecutorService readers;
+    private volatile boolean running;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private record Entry(String roomId, String username, String message, long timestamp) {
+    }
+
+    // Where a record is: its id picks the segment, the position is the record's offset in it
+    private record Pointer(long id, long position) {
+    }
+
+    private static class Segment {
+        final long baseId;
+        final Path logFile;
+        final Path indexFile;
+        final FileChannel channel;
+        volatile long size;
+
+        // Sparse index, appended by the writer and read under the segment lock
+        long[] indexIds = new long[16];
+        long[] indexPositions = new long[16];
+        int indexCount;
+
+        ByteBuffer mapped;
+
+        Segment(long baseId, Path logFile, Path indexFile, FileChannel channel) {
+            this.baseId = baseId;
+            this.logFile = logFile;
+            this.indexFile = indexFile;
+            this.channel = channel;
+        }
+
+        synchronized void addIndex(long id, long position) {
+            if (indexCount == indexIds.length) {
+                indexIds = Arrays.copyOf(indexIds, indexCount * 2);
+                indexPositions = Arrays.copyOf(indexPositions, indexCount * 2);
+            }
+            indexIds[indexCount] = id;
+            indexPositions[indexCount] = position;
+            indexCount++;
+        }
+
+        // Position of the last indexed record whose id is below the given id, or 0
+        synchronized long floorPosition(long id) {
+            int low = 0;
+            int high = indexCount - 1;
+            long position = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (indexIds[mid] < id) {
+                    position = indexPositions[mid];
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return position;
+        }
+
+        // Id of the record at the last index position, which is where tail recovery starts
+        synchronized long lastIndexedId() {
+            return indexCount > 0 ? indexIds[indexCount - 1] : baseId;
+        }
+
+        // Read-only view of the committed part of the segment, remapped only when it has grown
+        synchronized ByteBuffer view() throws IOException {
+            long committed = size;
+            if (mapped == null || mapped.capacity() < committed) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, committed);
+            }
+            return mapped.duplicate().limit((int) committed);
+        }
+    }
+
+    private class Shard {
+        final Path dir;
+        final List<Segment> segments = new CopyOnWriteArrayList<>();
+        // Newest committed record of each room, published by the writer after each flush
+        final Map<String, Pointer> heads = new ConcurrentHashMap<>();
+        // Writer-thread state
+        final Map<String, Pointer> pendingHeads = new HashMap<>();
+        ByteBuffer pending = ByteBuffer.allocateDirect(64 * 1024);
+        ByteBuffer pendingIndex = ByteBuffer.allocateDirect(4 * 1024);
+        long nextId;
+        int recordsSinceIndex;
+
+        Shard(Path dir) {
+            this.dir = dir;
+        }
+
+        Segment active() {
+            return segments.get(segments.size() - 1);
+        }
+
+        // Newest record of the room including ones not flushed yet, for the next back-pointer
+        Pointer tailOf(String roomId) {
+            Pointer pending = pendingHeads.get(roomId);
+            return pending != null ? pending : heads.get(roomId);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(Paths.get(directory, "shard-" + i));
+            Files.createDirectories(shard.dir);
+            openShard(shard);
+            shards[i] = shard;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger readerIds = new AtomicInteger();
+        readers = Executors.newFixedThreadPool(readerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "chat-archive-reader-" + readerIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        writer = new Thread(this::writeLoop, "chat-archive-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Chat archive enabled in {} with {} shards", directory, shardCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        readers.shutdown();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        for (Shard shard : shards) {
+            for (Segment segment : shard.segments) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Queues a message for archiving. Never blocks: when the writer falls behind
+     * and the queue is full, the message is not archived and is counted as dropped.
+     */
+    public void append(String roomId, String username, String message, Long timestamp) {
+        if (!enabled || message == null) {
+            return;
+        }
+        Entry entry = new Entry(roomId, username, message, timestamp != null ? timestamp : System.currentTimeMillis());
+        if (!queue.offer(entry)) {
+            long total = dropped.incrementAndGet();
+            if (total % 1000 == 1) {
+                log.warn("Chat archive queue full, {} messages not archived so far", total);
+            }
+        }
+    }
+
+    /**
+     * Reads a page like {@link #page} on the archive's reader pool, so callers
+     * on a network thread never wait on segment I/O.
+     */
+    public CompletableFuture<List<ArchivedChatMessage>> pageAsync(String roomId, Long beforeId, int limit) {
+        if (!enabled || limit <= 0) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return page(roomId, beforeId, limit);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, readers);
+    }
+
+    /**
+     * Returns up to {@code limit} archived messages of a room with an id below
+     * {@code beforeId} (or the newest ones when null), oldest first. Only the
+     * room's own records are read.
+     */
+    public List<ArchivedChatMessage> page(String roomId, Long beforeId, int limit) throws IOException {
+        if (!enabled || limit <= 0) {
+            return List.of();
+        }
+        Shard shard = shardOf(roomId);
+        List<Segment> segments = List.copyOf(shard.segments);
+        Pointer next = shard.heads.get(roomId);
+        if (beforeId != null) {
+            next = before(segments, roomId, next, beforeId);
+        }
+
+        List<ArchivedChatMessage> newestFirst = new ArrayList<>(limit);
+        while (next != null && newestFirst.size() < limit) {
+            Segment segment = segmentOf(segments, next.id());
+            if (segment == null) {
+                // The rest of the chain was deleted by retention
+                break;
+            }
+            ByteBuffer view = segment.view();
+            int position = (int) next.position();
+            newestFirst.add(read(view, position));
+            next = previous(view, position);
+        }
+
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+
+    private Shard shardOf(String roomId) {
+        return shards[Math.floorMod(roomId.hashCode(), shards.length)];
+    }
+
+    // The segment holding the given id, or null when it has been deleted
+    private static Segment segmentOf(List<Segment> segments, long id) {
+        int low = 0;
+        int high = segments.size() - 1;
+        Segment found = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments.get(mid).baseId <= id) {
+                found = segments.get(mid);
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // The room's newest record below beforeId. The cursor of an earlier page is one of the room's
+    // records, so its back-pointer is the answer; any other id walks the room's chain from its head.
+    private static Pointer before(List<Segment> segments, String roomId, Pointer head, long beforeId)
+            throws IOException {
+        Segment segment = segmentOf(segments, beforeId);
+        if (segment != null) {
+            ByteBuffer view = segment.view();
+            int position = positionOf(segment, view, beforeId);
+            if (position < view.limit() && view.getLong(position + 4) == beforeId
+                    && roomId.equals(roomOf(view, position))) {
+                return previous(view, position);
+            }
+        }
+        Pointer pointer = head;
+        while (pointer != null && pointer.id() >= beforeId) {
+            segment = segmentOf(segments, pointer.id());
+            if (segment == null) {
+                return null;
+            }
+            pointer = previous(segment.view(), (int) pointer.position());
+        }
+        return pointer;
+    }
+
+    // Offset of the first record whose id is >= the given id, found from the sparse index
+    private static int positionOf(Segment segment, ByteBuffer view, long id) {
+        int position = (int) segment.floorPosition(id);
+        while (position < view.limit()) {
+            if (view.getLong(position + 4) >= id) {
+                break;
+            }
+            position += view.getInt(position) + 8;
+        }
+        return position;
+    }
+
+    private static Pointer previous(ByteBuffer view, int position) {
+        long id = view.getLong(position + 20);
+        return id < 0 ? null : new Pointer(id, view.getLong(position + 28));
+    }
+
+    private static String roomOf(ByteBuffer view, int position) {
+        return readString(view.duplicate().position(position + 36));
+    }
+
+    private static ArchivedChatMessage read(ByteBuffer view, int position) {
+        ByteBuffer body = view.duplicate().position(position + 4);
+        long id = body.getLong();
+        long timestamp = body.getLong();
+        body.position(position + 36);
+        return new ArchivedChatMessage(id, readString(body), readString(body), readString(body), timestamp);
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        Set<Shard> touched = new HashSet<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 4096);
+
+                for (Entry entry : batch) {
+                    Shard shard = shardOf(entry.roomId());
+                    encode(shard, entry);
+                    touched.add(shard);
+                }
+                for (Shard shard : touched) {
+                    flush(shard);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Chat archive write failed: ", e);
+            } finally {
+                batch.clear();
+                touched.clear();
+            }
+        }
+    }
+
+    private void encode(Shard shard, Entry entry) throws IOException {
+        byte[] room = entry.roomId().getBytes(StandardCharsets.UTF_8);
+        byte[] user = entry.username() != null ? entry.username().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] text = entry.message().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 8 + 8 + 8 + 8 + 4 + room.length + 4 + user.length + 4 + text.length;
+        int recordLength = bodyLength + 8;
+
+        Segment active = shard.active();
+        if (active.size + shard.pending.position() + recordLength > (long) segmentSizeMb * 1024 * 1024
+                && active.size + shard.pending.position() > 0) {
+            flush(shard);
+            roll(shard);
+            active = shard.active();
+        }
+        if (shard.pending.remaining() < recordLength) {
+            flush(shard);
+            if (shard.pending.capacity() < recordLength) {
+                shard.pending = ByteBuffer.allocateDirect(recordLength);
+            }
+        }
+
+        long id = shard.nextId++;
+        long position = active.size + shard.pending.position();
+        if (shard.recordsSinceIndex == 0) {
+            active.addIndex(id, position);
+            if (shard.pendingIndex.remaining() < 16) {
+                flush(shard);
+            }
+            shard.pendingIndex.putLong(id).putLong(position);
+        }
+        shard.recordsSinceIndex = (shard.recordsSinceIndex + 1) % indexInterval;
+
+        Pointer previous = shard.tailOf(entry.roomId());
+        shard.pending.putInt(bodyLength)
+                .putLong(id)
+                .putLong(entry.timestamp())
+                .putLong(previous != null ? previous.id() : -1)
+                .putLong(previous != null ? previous.position() : -1)
+                .putInt(room.length).put(room)
+                .putInt(user.length).put(user)
+                .putInt(text.length).put(text)
+                .putInt(bodyLength);
+        shard.pendingHeads.put(entry.roomId(), new Pointer(id, position));
+    }
+
+    // Group commit: one write (and optionally one fsync) for everything the shard got in this batch
+    private void flush(Shard shard) throws IOException {
+        Segment active = shard.active();
+        ByteBuffer pending = shard.pending.flip();
+        long position = active.size;
+        while (pending.hasRemaining()) {
+            position += active.channel.write(pending, position);
+        }
+        pending.clear();
+
+        ByteBuffer pendingIndex = shard.pendingIndex.flip();
+        if (pendingIndex.hasRemaining()) {
+            try (FileChannel index = FileChannel.open(active.indexFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (pendingIndex.hasRemaining()) {
+                    index.write(pendingIndex);
+                }
+            }
+        }
+        pendingIndex.clear();
+
+        if (fsync) {
+            active.channel.force(false);
+        }
+        active.size = position;
+        // Only committed records become visible to pages
+        shard.heads.putAll(shard.pendingHeads);
+        shard.pendingHeads.clear();
+    }
+
+    private void roll(Shard shard) throws IOException {
+        Segment segment = openSegment(shard, shard.nextId);
+        shard.segments.add(segment);
+        shard.recordsSinceIndex = 0;
+        applyRetention(shard);
+        saveHeads(shard, segment);
+    }
+
+    // Rooms whose newest record is in a deleted segment have nothing left to page
+    private static void pruneHeads(Shard shard) {
+        long oldest = shard.segments.get(0).baseId;
+        shard.heads.values().removeIf(pointer -> pointer.id() < oldest);
+    }
+
+    // Saves the heads as of the start of a new segment, replacing the file in one move
+    private static void saveHeads(Shard shard, Segment segment) throws IOException {
+        List<Map.Entry<String, Pointer>> heads = List.copyOf(shard.heads.entrySet());
+        ByteBuffer buffer = ByteBuffer.allocate(4 + heads.size() * 24
+                + heads.stream().mapToInt(head -> head.getKey().length() * 3).sum());
+        buffer.putInt(heads.size());
+        for (Map.Entry<String, Pointer> head : heads) {
+            byte[] room = head.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(room.length).put(room).putLong(head.getValue().id()).putLong(head.getValue().position());
+        }
+        Path temp = headsFile(segment).resolveSibling(segment.baseId + ".heads.tmp");
+        Files.write(temp, Arrays.copyOf(buffer.array(), buffer.position()));
+        Files.move(temp, headsFile(segment), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path headsFile(Segment segment) {
+        return segment.logFile.resolveSibling(segment.baseId + ".heads");
+    }
+
+    private void applyRetention(Shard shard) throws IOException {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(retentionHours));
+        while (shard.segments.size() > 1) {
+            Segment oldest = shard.segments.get(0);
+            boolean tooMany = shard.segments.size() > maxSegmentsPerShard;
+            boolean tooOld = Files.getLastModifiedTime(oldest.logFile).toInstant().isBefore(cutoff);
+            if (!tooMany && !tooOld) {
+                return;
+            }
+            shard.segments.remove(0);
+            pruneHeads(shard);
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.logFile);
+            Files.deleteIfExists(oldest.indexFile);
+            Files.deleteIfExists(headsFile(oldest));
+            log.info("Deleted chat archive segment {}", oldest.logFile);
+        }
+    }
+
+    private void openShard(Shard shard) throws IOException {
+        List<Long> baseIds;
+        try (Stream<Path> files = Files.list(shard.dir)) {
+            baseIds = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+
+        for (long baseId : baseIds) {
+            Segment segment = openSegment(shard, baseId);
+            loadIndex(segment);
+            shard.segments.add(segment);
+        }
+
+        if (shard.segments.isEmpty()) {
+            shard.segments.add(openSegment(shard, 0));
+            return;
+        }
+        recoverTail(shard, shard.active());
+        loadHeads(shard);
+        applyRetention(shard);
+    }
+
+    private Segment openSegment(Shard shard, long baseId) throws IOException {
+        Path logFile = shard.dir.resolve(baseId + ".log");
+        Path indexFile = shard.dir.resolve(baseId + ".idx");
+        FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(baseId, logFile, indexFile, channel);
+        segment.size = channel.size();
+        return segment;
+    }
+
+    private static void loadIndex(Segment segment) throws IOException {
+        if (!Files.exists(segment.indexFile)) {
+            return;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(segment.indexFile));
+        while (index.remaining() >= 16) {
+            long id = index.getLong();
+            long position = index.getLong();
+            if (position < segment.size) {
+                segment.addIndex(id, position);
+            }
+        }
+    }
+
+    // Finds where the last complete record of the active segment ends, dropping any torn tail.
+    // The scan starts at the last indexed record, whose id is known from the index even when the
+    // record itself is torn, so ids continue from the last valid record and are never handed out twice.
+    private void recoverTail(Shard shard, Segment segment) throws IOException {
+        long position = segment.floorPosition(Long.MAX_VALUE);
+        long nextId = segment.lastIndexedId();
+        ByteBuffer view = segment.size > 0 ? segment.view() : ByteBuffer.allocate(0);
+        while (position + 8 <= view.limit()) {
+            int length = view.getInt((int) position);
+            long end = position + length + 8;
+            if (length <= 0 || end > view.limit() || view.getInt((int) end - 4) != length) {
+                break;
+            }
+            nextId = view.getLong((int) position + 4) + 1;
+            position = end;
+        }
+        if (position < segment.size) {
+            log.warn("Truncating torn tail of chat archive segment {} at {}", segment.logFile, position);
+            segment.channel.truncate(position);
+            segment.size = position;
+            segment.mapped = null;
+        }
+        shard.nextId = nextId;
+        // Restart index sampling; an extra index entry is harmless
+        shard.recordsSinceIndex = 0;
+    }
+
+    // Starts from the newest saved heads and replays the segments written since then
+    private static void loadHeads(Shard shard) throws IOException {
+        int from = 0;
+        for (int i = shard.segments.size() - 1; i >= 0; i--) {
+            Path file = headsFile(shard.segments.get(i));
+            if (Files.exists(file)) {
+                ByteBuffer saved = ByteBuffer.wrap(Files.readAllBytes(file));
+                for (int count = saved.getInt(); count > 0; count--) {
+                    String roomId = readString(saved);
+                    shard.heads.put(roomId, new Pointer(saved.getLong(), saved.getLong()));
+                }
+                from = i;
+                break;
+            }
+        }
+        for (Segment segment : shard.segments.subList(from, shard.segments.size())) {
+            ByteBuffer view = segment.size > 0 ? segment.view() : ByteBuffer.allocate(0);
+            int position = 0;
+            while (position < view.limit()) {
+                shard.heads.put(roomOf(view, position), new Pointer(view.getLong(position + 4), position));
+                position += view.getInt(position) + 8;
+            }
+        }
+        pruneHeads(shard);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,476 @@
+package com.example.meetus.persistence;
+
+import com.example.meetus.model.Room;
+import com.example.meetus.model.User;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Optional write-ahead journal of room lifecycle events, so a restarted server can
+ * rebuild RoomService state and let clients resume instead of renegotiating.
+ *
+ * Records are appended to a memory-mapped generation file
+ * ({@code journal-<gen>.log}). Writers reserve their slot with a CAS on the write
+ * position and publish the record by writing its length last, so appends from
+ * different rooms never take a shared lock. A periodic snapshot rolls to a new
+ * generation, writes the full state to {@code snapshot-<gen>.bin} and drops
+ * older files. Replay is idempotent, so a snapshot may safely include events
+ * that are also in its own generation's journal.
+ *
+ * Nothing secret is written in the clear: rooms carry their password hash and
+ * members the digest of their resume token. A record that cannot be parsed is
+ * treated as the torn tail of its file, and replay of that file stops there.
+ */
+@Slf4j
+@Component
+public class RoomJournal {
+
+    private static final byte CREATE = 1;
+    private static final byte PASSWORD = 2;
+    private static final byte JOIN = 3;
+    private static final byte LEAVE = 4;
+    private static final byte DELETE = 5;
+    private static final byte RESUME = 6;
+
+    // Far above anything RoomService lets through; a longer length means the file is damaged
+    private static final int MAX_STRING_BYTES = 1 << 20;
+
+    private static final int SNAPSHOT_MAGIC = 0x4D555332; // "MUS2", int string lengths
+
+    @Value("${meetus.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.journal.directory:data/journal}")
+    private String directory;
+
+    @Value("${meetus.journal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${meetus.journal.snapshot-interval-ms:60000}")
+    private long snapshotIntervalMs;
+
+    private Path journalDir;
+    private volatile Segment current;
+    // Serializes rolls and snapshots, which open files while holding it; not a monitor, so virtual threads do not pin
+    private final ReentrantLock rollLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    private static class Segment {
+        final long generation;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final AtomicInteger position = new AtomicInteger();
+
+        Segment(long generation, FileChannel channel, MappedByteBuffer buffer) {
+            this.generation = generation;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Turns journaling off for the rest of the run, after the journal could not be opened
+    public void disable() {
+        enabled = false;
+    }
+
+    public void roomCreated(Room room) {
+        if (enabled) {
+            append(record(CREATE, room.getRoomId(), room.getCreatedBy(), Long.toString(room.getCreatedAt().toEpochMilli())));
+        }
+    }
+
+    public void passwordSet(String roomId, String passwordHash) {
+        if (enabled) {
+            append(record(PASSWORD, roomId, passwordHash));
+        }
+    }
+
+    public void userJoined(String roomId, String sessionId, String username, String resumeTokenDigest) {
+        if (enabled) {
+            append(record(JOIN, roomId, sessionId, username, resumeTokenDigest));
+        }
+    }
+
+    public void userLeft(String roomId, String sessionId) {
+        if (enabled) {
+            append(record(LEAVE, roomId, sessionId));
+        }
+    }
+
+    public void roomDeleted(String roomId) {
+        if (enabled) {
+            append(record(DELETE, roomId));
+        }
+    }
+
+    public void sessionResumed(String roomId, String previousSessionId, String sessionId) {
+        if (enabled) {
+            append(record(RESUME, roomId, previousSessionId, sessionId));
+        }
+    }
+
+    /**
+     * Rebuilds the rooms recorded on disk: the latest snapshot plus every journal
+     * generation written after it. Returns an empty list when journaling is off.
+     */
+    public List<Room> recover() throws IOException {
+        if (!enabled) {
+            return List.of();
+        }
+        long started = System.nanoTime();
+        journalDir = Paths.get(directory);
+        Files.createDirectories(journalDir);
+
+        Map<String, Room> state = new LinkedHashMap<>();
+        long snapshotGeneration = latestGeneration("snapshot-", ".bin");
+        if (snapshotGeneration >= 0) {
+            Path snapshot = journalDir.resolve("snapshot-" + snapshotGeneration + ".bin");
+            try {
+                readSnapshot(snapshot, state);
+            } catch (IOException | RuntimeException e) {
+                // Rooms read before the damage are kept; the journals after it still apply
+                log.error("Room snapshot {} is unreadable after {} rooms, continuing without the rest: ",
+                        snapshot, state.size(), e);
+            }
+        }
+
+        long lastGeneration = Math.max(snapshotGeneration, 0);
+        for (long generation : generations("journal-", ".log")) {
+            if (generation >= snapshotGeneration) {
+                replay(journalDir.resolve("journal-" + generation + ".log"), state);
+                lastGeneration = Math.max(lastGeneration, generation);
+            }
+        }
+
+        current = openSegment(lastGeneration + 1);
+        log.info("Recovered {} rooms from journal in {} ms", state.size(), (System.nanoTime() - started) / 1_000_000);
+        return new ArrayList<>(state.values());
+    }
+
+    /**
+     * Starts periodic snapshots of the state returned by the supplier. Must be
+     * called after {@link #recover()}.
+     */
+    public void start(Supplier<Collection<Room>> state) {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The first snapshot runs right away and compacts whatever recover() just replayed
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot(state);
+            } catch (Exception e) {
+                log.error("Room journal snapshot failed: ", e);
+            }
+        }, 0, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rolls to a new journal generation and writes the current state as its
+     * snapshot, then deletes everything older. The state is read only after the
+     * roll, so any event missing from it is in the new generation's journal.
+     */
+    public void snapshot(Supplier<Collection<Room>> state) throws IOException {
+        rollLock.lock();
+        try {
+            writeSnapshot(state);
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    private void writeSnapshot(Supplier<Collection<Room>> state) throws IOException {
+        Segment previous = current;
+        long generation = previous.generation + 1;
+        current = openSegment(generation);
+        Collection<Room> rooms = state.get();
+
+        Path target = journalDir.resolve("snapshot-" + generation + ".bin");
+        Path temp = journalDir.resolve("snapshot-" + generation + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(rooms.size());
+            for (Room room : rooms) {
+                room.lock().lock();
+                try {
+                    List<User> users = room.getUsers();
+                    writeString(out, room.getRoomId());
+                    writeString(out, room.getCreatedBy());
+                    writeString(out, room.getPasswordHash());
+                    out.writeLong(room.getCreatedAt().toEpochMilli());
+                    out.writeInt(users.size());
+                    for (User user : users) {
+                        writeString(out, user.getId());
+                        writeString(out, user.getUsername());
+                        writeString(out, user.getResumeTokenDigest());
+                    }
+                } finally {
+                    room.lock().unlock();
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        previous.channel.close();
+        try (Stream<Path> files = Files.list(journalDir)) {
+            for (Path file : files.toList()) {
+                long fileGeneration = generationOf(file.getFileName().toString());
+                if (fileGeneration >= 0 && fileGeneration < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        log.debug("Wrote room snapshot generation {} with {} rooms", generation, rooms.size());
+    }
+
+    private void append(byte[] record) {
+        int length = record.length;
+        if (length + 4 > (long) segmentSizeMb * 1024 * 1024) {
+            // Would never fit, not even in a fresh segment
+            log.error("Dropping a {} byte room journal record larger than a segment", length);
+            return;
+        }
+        while (true) {
+            Segment segment = current;
+            int position = segment.position.getAndAdd(length + 4);
+            if (position + length + 4 <= segment.buffer.capacity()) {
+                segment.buffer.put(position + 4, record);
+                // The length is written last: it is what makes the record visible to replay
+                segment.buffer.putInt(position, length);
+                return;
+            }
+            roll(segment);
+        }
+    }
+
+    private void roll(Segment full) {
+        rollLock.lock();
+        try {
+            if (current != full) {
+                return;
+            }
+            current = openSegment(full.generation + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll room journal", e);
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    private Segment openSegment(long generation) throws IOException {
+        Path file = journalDir.resolve("journal-" + generation + ".log");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentSizeMb * 1024 * 1024);
+        return new Segment(generation, channel, buffer);
+    }
+
+    private void replay(Path file, Map<String, Room> state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= 4) {
+                int offset = buffer.position();
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                try {
+                    apply(record, state);
+                } catch (RuntimeException e) {
+                    // Whatever follows a damaged record cannot be trusted either
+                    log.warn("Stopping replay of {} at a damaged record at offset {}: {}", file, offset, e.toString());
+                    break;
+                }
+            }
+        }
+    }
+
+    // Every event is applied as "set this state", so replaying one twice is harmless
+    private void apply(ByteBuffer record, Map<String, Room> state) {
+        byte type = record.get();
+        String roomId = readString(record);
+        Room room = state.get(roomId);
+
+        switch (type) {
+            case CREATE -> {
+                if (room == null) {
+                    room = new Room(roomId);
+                    state.put(roomId, room);
+                }
+                room.setCreatedBy(readString(record));
+                room.setCreatedAt(Instant.ofEpochMilli(Long.parseLong(readString(record))));
+            }
+            case PASSWORD -> {
+                if (room != null) {
+                    room.setPasswordHash(readString(record));
+                }
+            }
+            case JOIN -> {
+                if (room != null) {
+                    room.addUser(new User(readString(record), readString(record), readString(record)));
+                }
+            }
+            case LEAVE -> {
+                if (room != null) {
+                    room.removeUser(readString(record));
+                    if (room.isEmpty()) {
+                        state.remove(roomId);
+                    }
+                }
+            }
+            case DELETE -> state.remove(roomId);
+            case RESUME -> {
+                if (room != null) {
+                    String previousSessionId = readString(record);
+                    String sessionId = readString(record);
+                    User user = room.getMembers().remove(previousSessionId);
+                    if (user != null) {
+                        room.addUser(new User(sessionId, user.getUsername()));
+                    }
+                    if (previousSessionId.equals(room.getCreatedBy())) {
+                        room.setCreatedBy(sessionId);
+                    }
+                }
+            }
+            default -> log.warn("Skipping unknown room journal record type {}", type);
+        }
+    }
+
+    private void readSnapshot(Path file, Map<String, Room> state) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a room snapshot: " + file);
+            }
+            int roomCount = in.readInt();
+            for (int i = 0; i < roomCount; i++) {
+                Room room = new Room(readString(in));
+                room.setCreatedBy(readString(in));
+                room.setPasswordHash(readString(in));
+                room.setCreatedAt(Instant.ofEpochMilli(in.readLong()));
+                int userCount = in.readInt();
+                for (int u = 0; u < userCount; u++) {
+                    room.addUser(new User(readString(in), readString(in), readString(in)));
+                }
+                state.put(room.getRoomId(), room);
+            }
+        }
+    }
+
+    private long latestGeneration(String prefix, String suffix) throws IOException {
+        List<Long> all = generations(prefix, suffix);
+        return all.isEmpty() ? -1 : all.get(all.size() - 1);
+    }
+
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long generationOf(String fileName) {
+        int dash = fileName.indexOf('-');
+        int dot = fileName.indexOf('.');
+        if (dash < 0 || dot < dash) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(dash + 1, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Record layout: type byte followed by int-length-prefixed UTF-8 strings (-1 length for null)
+    private static byte[] record(byte type, String... fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            for (String field : fields) {
+                writeString(out, field);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_STRING_BYTES) {
+            throw new IOException("Implausible string length " + length);
+        }
+        byte[] encoded = new byte[length];
+        in.readFully(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > record.remaining()) {
+            throw new IllegalStateException("String length " + length + " past the end of the record");
+        }
+        byte[] encoded = new byte[length];
+        record.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        Segment segment = current;
+        if (segment != null) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+    }
+}
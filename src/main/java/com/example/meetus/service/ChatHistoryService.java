@@ -0,0 +1,215 @@
+package com.example.meetus.service;
+
+import com.example.meetus.model.ChatMessage;
+import com.example.meetus.model.Room;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last messages of each room so late joiners get a catch-up frame.
+ *
+ * Each room has a preallocated ring of parallel arrays (username, message,
+ * timestamp), so recording a message only overwrites slots and allocates
+ * nothing once the ring exists. Memory is accounted approximately for the whole
+ * server. When the cap is exceeded, the histories of the rooms that have gone
+ * longest without a message are dropped first.
+ *
+ * A ring belongs to one Room instance, not to a room id: it goes away with
+ * the room, and a message that arrives after its room was removed is never
+ * replayed in a new room that reuses the id.
+ */
+@Slf4j
+@Service
+public class ChatHistoryService implements RoomChangeListener {
+
+    // Rough per-entry and per-slot overheads used for the memory estimate
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    private static final int SLOT_BYTES = 24;
+
+    private final RoomService roomService;
+
+    @Value("${meetus.chat.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${meetus.chat.history.size:50}")
+    private int historySize;
+
+    @Value("${meetus.chat.history.max-bytes:67108864}")
+    private long maxBytes;
+
+    // Room id -> ring, least recently written first; guarded by itself
+    private final LinkedHashMap<String, ChatRing> rings = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private class ChatRing {
+        final Room room;
+        final String roomId;
+        final String[] usernames;
+        final String[] messages;
+        final long[] timestamps;
+        int next;
+        int count;
+        long bytes;
+        boolean evicted;
+
+        ChatRing(Room room, int capacity) {
+            this.room = room;
+            this.roomId = room.getRoomId();
+            this.usernames = new String[capacity];
+            this.messages = new String[capacity];
+            this.timestamps = new long[capacity];
+            this.bytes = (long) capacity * SLOT_BYTES;
+            usedBytes.addAndGet(bytes);
+        }
+
+        synchronized void add(String username, String message, long timestamp) {
+            if (evicted) {
+                return;
+            }
+            long delta = entryBytes(username, message);
+            if (count == usernames.length) {
+                delta -= entryBytes(usernames[next], messages[next]);
+            } else {
+                count++;
+            }
+            usernames[next] = username;
+            messages[next] = message;
+            timestamps[next] = timestamp;
+            next = (next + 1) % usernames.length;
+            bytes += delta;
+            usedBytes.addAndGet(delta);
+        }
+
+        synchronized List<ChatMessage> last(int limit) {
+            int n = Math.min(limit, count);
+            List<ChatMessage> result = new ArrayList<>(n);
+            int start = next - n;
+            if (start < 0) {
+                start += usernames.length;
+            }
+            for (int i = 0; i < n; i++) {
+                int slot = (start + i) % usernames.length;
+                result.add(new ChatMessage(usernames[slot], messages[slot], timestamps[slot], roomId));
+            }
+            return result;
+        }
+
+        synchronized void release() {
+            if (!evicted) {
+                evicted = true;
+                usedBytes.addAndGet(-bytes);
+            }
+        }
+    }
+
+    @Autowired
+    public ChatHistoryService(RoomService roomService) {
+        this.roomService = roomService;
+    }
+
+    @PostConstruct
+    public void start() {
+        roomService.addRoomChangeListener(this);
+    }
+
+    public void record(String roomId, String username, String message, Long timestamp) {
+        if (!enabled || message == null) {
+            return;
+        }
+        Room room = roomService.getRoom(roomId);
+        if (room == null) {
+            return;
+        }
+        ChatRing ring;
+        synchronized (rings) {
+            ring = rings.get(roomId);
+            if (ring == null || ring.room != room) {
+                // First message of this room, or the id now belongs to a new room
+                ring = new ChatRing(room, historySize);
+                ChatRing stale = rings.put(roomId, ring);
+                if (stale != null) {
+                    stale.release();
+                }
+            }
+        }
+        ring.add(username, message, timestamp != null ? timestamp : System.currentTimeMillis());
+
+        // The room may have been removed, and its ring dropped, since it was looked up
+        if (roomService.getRoom(roomId) != room) {
+            drop(ring);
+        }
+        if (usedBytes.get() > maxBytes) {
+            evictOldest(ring);
+        }
+    }
+
+    /**
+     * Returns up to the configured number of most recent messages, oldest first.
+     */
+    public List<ChatMessage> recentMessages(String roomId) {
+        if (!enabled) {
+            return List.of();
+        }
+        ChatRing ring;
+        synchronized (rings) {
+            ring = rings.get(roomId);
+        }
+        return ring != null && ring.room == roomService.getRoom(roomId) ? ring.last(historySize) : List.of();
+    }
+
+    @Override
+    public void onRoomChanged(String roomId) {
+        Room room = roomService.getRoom(roomId);
+        synchronized (rings) {
+            ChatRing ring = rings.get(roomId);
+            if (ring != null && ring.room != room) {
+                rings.remove(roomId);
+                ring.release();
+            }
+        }
+    }
+
+    // Never evicts the room that is being written to, so a single busy room always keeps its history
+    private void evictOldest(ChatRing active) {
+        synchronized (rings) {
+            Iterator<ChatRing> oldestFirst = rings.values().iterator();
+            while (usedBytes.get() > maxBytes && oldestFirst.hasNext()) {
+                ChatRing oldest = oldestFirst.next();
+                if (oldest == active) {
+                    continue;
+                }
+                oldestFirst.remove();
+                oldest.release();
+                log.debug("Evicted chat history of room {} to stay under {} bytes", oldest.roomId, maxBytes);
+            }
+        }
+    }
+
+    private void drop(ChatRing ring) {
+        synchronized (rings) {
+            if (rings.remove(ring.roomId, ring)) {
+                ring.release();
+            }
+        }
+    }
+
+    private static long entryBytes(String username, String message) {
+        long bytes = 2L * STRING_OVERHEAD_BYTES;
+        if (username != null) {
+            bytes += 2L * username.length();
+        }
+        if (message != null) {
+            bytes += 2L * message.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.meetus.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single expiration engine for the server: password expiry, idle-room TTLs and
+ * zombie-session reaping all schedule onto one {@link TimingWheel}, advanced by
+ * a dedicated thread every tick. Expired timers run on a small worker pool,
+ * so the wheel keeps ticking while a callback takes room locks or notifies
+ * listeners.
+ */
+@Slf4j
+@Service
+public class ExpiryService {
+
+    @Value("${meetus.expiry.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${meetus.expiry.worker-threads:2}")
+    private int workerThreads;
+
+    private ExecutorService workers;
+    private TimingWheel wheel;
+    private Thread ticker;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger workerIds = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), task -> {
+            Thread worker = new Thread(task, "expiry-worker-" + workerIds.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+        wheel = new TimingWheel(tickMs, TimeUnit.MILLISECONDS, workers);
+        running = true;
+        ticker = new Thread(this::tickLoop, "expiry-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    public TimingWheel.Timeout schedule(Runnable task, long delayMs) {
+        return wheel.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    public long getPendingTimers() {
+        return wheel.size();
+    }
+
+    private void tickLoop() {
+        long tickNanos = wheel.getTickNanos();
+        while (running) {
+            try {
+                wheel.advance();
+            } catch (Exception e) {
+                log.error("Expiry wheel tick failed: ", e);
+            }
+            LockSupport.parkNanos(tickNanos);
+        }
+    }
+}
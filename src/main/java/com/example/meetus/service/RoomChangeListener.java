@@ -0,0 +1,30 @@
+package com.example.meetus.service;
+
+import com.example.meetus.model.User;
+
+import java.util.List;
+
+/**
+ * Notified after a room is created, removed, or changes membership. Called
+ * outside the room lock. Implementations should only record the id and do the
+ * real work elsewhere.
+ */
+public interface RoomChangeListener {
+
+    default void onRoomChanged(String roomId) {
+    }
+
+    /**
+     * A room was closed by the server after being idle, with the given members
+     * still seated. Called from the expiry thread, before onRoomChanged.
+     */
+    default void onRoomExpired(String roomId, List<User> users) {
+    }
+
+    /**
+     * A session was removed from its room by the server because its connection
+     * is gone. Called from the expiry thread, after onRoomChanged.
+     */
+    default void onSessionReaped(String roomId, String sessionId, String username) {
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.meetus.service;
+
+import com.example.meetus.model.Room;
+import com.example.meetus.model.RoomPage;
+import com.example.meetus.model.RoomQuery;
+import com.example.meetus.model.RoomSummary;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Versioned view of the room list for lobby subscribers. Room changes are
+ * collected as dirty ids and coalesced over a short window. Each flush that
+ * changes something becomes one new version, and its delta is pushed to
+ * subscribers. A bounded history of recent deltas lets a client resync from its
+ * last version; clients too far behind, or from another server epoch, get a full
+ * snapshot instead.
+ *
+ * A subscriber may receive a pushed delta before its resync reply. It should
+ * ignore deltas whose version is not newer than the one it holds.
+ *
+ * Reads never walk the live RoomService maps. Flushes maintain an index sorted
+ * by room id, and each room also sits in one bucket for its (hasPassword,
+ * userCount) pair, again sorted by id. A filtered query merges only the buckets
+ * its filters allow, so its cost depends on the page size and not on how many
+ * rooms are filtered out. The full list for get-rooms is copied at most once per
+ * version, and only when someone asks for it.
+ *
+ * Everything read here lags RoomService by up to one coalescing window
+ * (meetus.room-directory.coalesce-ms, 250 ms by default): room-list, room-page
+ * and /api/rooms may still show a room that just filled up or closed, and joins
+ * must not rely on them.
+ */
+@Slf4j
+@Service
+public class RoomDirectory implements RoomChangeListener {
+
+    private final RoomService roomService;
+
+    @Value("${meetus.room-directory.coalesce-ms:250}")
+    private long coalesceMs;
+
+    @Value("${meetus.room-directory.history-size:256}")
+    private int historySize;
+
+    @Value("${meetus.room-directory.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${meetus.room-directory.max-page-size:500}")
+    private int maxPageSize;
+
+    // Distinguishes version sequences across restarts
+    private final String epoch = UUID.randomUUID().toString();
+    private final Set<String> dirtyRooms = ConcurrentHashMap.newKeySet();
+
+    // Written only by flush(), under this; read without locks
+    private final ConcurrentSkipListMap<String, RoomSummary> byId = new ConcurrentSkipListMap<>();
+    // [(hasPassword ? countBuckets : 0) + min(userCount, countBuckets - 1)]; the last count bucket holds full rooms
+    private ConcurrentSkipListMap<String, RoomSummary>[] buckets;
+    private int countBuckets;
+
+    // Guarded by this
+    private final Deque<Delta> history = new ArrayDeque<>();
+    private long version;
+    // Published after the index reflects it, so a reader of this version sees at least that state
+    private volatile Version current = new Version(epoch, 0);
+    private volatile RoomList roomList = new RoomList(0, List.of());
+
+    private volatile Consumer<Map<String, Object>> publisher = frame -> { };
+    private ScheduledExecutorService flusher;
+
+    private record Delta(long version, List<Map<String, Object>> changes) {
+    }
+
+    private record RoomList(long version, List<RoomSummary> rooms) {
+    }
+
+    /**
+     * A published directory version. Pages tagged with it hold that state or a
+     * slightly newer one, never an older one.
+     */
+    public record Version(String epoch, long version) {
+
+        public String etag() {
+            return "\"" + epoch + "-" + version + "\"";
+        }
+    }
+
+    /**
+     * Reply to a subscription: the event to send and its payload.
+     */
+    public record Resync(String event, Map<String, Object> frame) {
+    }
+
+    @Autowired
+    public RoomDirectory(RoomService roomService) {
+        this.roomService = roomService;
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        countBuckets = roomService.getMaxUsersPerRoom() + 1;
+        buckets = new ConcurrentSkipListMap[2 * countBuckets];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ConcurrentSkipListMap<>();
+        }
+        for (Room room : roomService.getAllRooms()) {
+            dirtyRooms.add(room.getRoomId());
+        }
+        roomService.addRoomChangeListener(this);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-directory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("Room directory flush failed: ", e);
+            }
+        }, coalesceMs, coalesceMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onRoomChanged(String roomId) {
+        dirtyRooms.add(roomId);
+    }
+
+    /**
+     * Sets where new "room-deltas" frames are pushed, typically a broadcast to
+     * every subscribed lobby client.
+     */
+    public void setPublisher(Consumer<Map<String, Object>> publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Builds the reply to a subscription. The reply is a "room-deltas" frame when
+     * the client's version is still covered by the history. Otherwise it is a
+     * "room-snapshot" frame.
+     */
+    public synchronized Resync resync(String clientEpoch, Long clientVersion) {
+        if (epoch.equals(clientEpoch) && clientVersion != null && clientVersion <= version
+                && (clientVersion == version || oldestResumableVersion() <= clientVersion)) {
+            List<Map<String, Object>> changes = new ArrayList<>();
+            for (Delta delta : history) {
+                if (delta.version() > clientVersion) {
+                    changes.addAll(delta.changes());
+                }
+            }
+            return new Resync("room-deltas", deltaFrame(clientVersion, changes));
+        }
+
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("epoch", epoch);
+        frame.put("version", version);
+        frame.put("rooms", getRooms());
+        return new Resync("room-snapshot", frame);
+    }
+
+    public Version getVersion() {
+        return current;
+    }
+
+    /**
+     * Every room in id order, as of the current version or slightly newer. The
+     * list is copied on the first call after a version change and then shared.
+     */
+    public List<RoomSummary> getRooms() {
+        Version published = current;
+        RoomList cached = roomList;
+        if (cached.version() != published.version()) {
+            cached = new RoomList(published.version(), List.copyOf(byId.values()));
+            roomList = cached;
+        }
+        return cached.rooms();
+    }
+
+    public RoomPage query(RoomQuery query) {
+        return query(current, query);
+    }
+
+    /**
+     * Returns one page of rooms matching the query, in room id order, tagged with
+     * the given version. Each candidate bucket is positioned at the cursor or
+     * prefix and the buckets are merged by id, so rooms the filters rule out
+     * are never visited.
+     */
+    public RoomPage query(Version version, RoomQuery query) {
+        int limit = query.getLimit() == null ? defaultPageSize : Math.max(1, Math.min(query.getLimit(), maxPageSize));
+        String prefix = query.getPrefix() != null && !query.getPrefix().isEmpty() ? query.getPrefix() : null;
+        int maxUsersPerRoom = roomService.getMaxUsersPerRoom();
+
+        String from = query.getCursor();
+        boolean inclusive = false;
+        if (prefix != null && (from == null || prefix.compareTo(from) > 0)) {
+            from = prefix;
+            inclusive = true;
+        }
+
+        List<Iterator<RoomSummary>> sources = new ArrayList<>();
+        for (NavigableMap<String, RoomSummary> rooms : candidates(query, maxUsersPerRoom)) {
+            sources.add((from == null ? rooms : rooms.tailMap(from, inclusive)).values().iterator());
+        }
+        Iterator<RoomSummary> merged = sources.size() == 1 ? sources.get(0) : new Merge(sources);
+
+        List<RoomSummary> page = new ArrayList<>(limit);
+        String nextCursor = null;
+        String previousId = null;
+        while (merged.hasNext()) {
+            RoomSummary room = merged.next();
+            if (prefix != null && !room.roomId().startsWith(prefix)) {
+                // Every id from here on sorts after the prefix range
+                break;
+            }
+            if (room.roomId().equals(previousId)) {
+                // Seen twice while a flush moved the room between buckets
+                continue;
+            }
+            previousId = room.roomId();
+            if (!matches(room, query, maxUsersPerRoom)) {
+                continue;
+            }
+            if (page.size() == limit) {
+                nextCursor = page.get(page.size() - 1).roomId();
+                break;
+            }
+            page.add(room);
+        }
+
+        return new RoomPage(page, nextCursor, version.epoch(), version.version());
+    }
+
+    // Merges id-sorted sources into one id-sorted sequence
+    private static final class Merge implements Iterator<RoomSummary> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+        private record Head(RoomSummary room, Iterator<RoomSummary> rest) implements Comparable<Head> {
+            @Override
+            public int compareTo(Head other) {
+                return room.roomId().compareTo(other.room.roomId());
+            }
+        }
+
+        Merge(List<Iterator<RoomSummary>> sources) {
+            for (Iterator<RoomSummary> source : sources) {
+                if (source.hasNext()) {
+                    heads.add(new Head(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public RoomSummary next() {
+            Head head = heads.poll();
+            if (head.rest().hasNext()) {
+                heads.add(new Head(head.rest().next(), head.rest()));
+            }
+            return head.room();
+        }
+    }
+
+    // The id-sorted maps that can hold matches: the whole index when nothing filters on the buckets' keys
+    private List<NavigableMap<String, RoomSummary>> candidates(RoomQuery query, int maxUsersPerRoom) {
+        if (query.getHasPassword() == null && !Boolean.TRUE.equals(query.getNotFull())
+                && query.getMinUsers() == null && query.getMaxUsers() == null) {
+            return List.of(byId);
+        }
+        List<NavigableMap<String, RoomSummary>> sets = new ArrayList<>();
+        for (int password = 0; password < 2; password++) {
+            if (query.getHasPassword() != null && query.getHasPassword() != (password == 1)) {
+                continue;
+            }
+            for (int count = 0; count < countBuckets; count++) {
+                // The last bucket holds every count from countBuckets - 1 up
+                int lowest = count;
+                int highest = count == countBuckets - 1 ? Integer.MAX_VALUE : count;
+                if (Boolean.TRUE.equals(query.getNotFull()) && lowest >= maxUsersPerRoom
+                        || query.getMinUsers() != null && highest < query.getMinUsers()
+                        || query.getMaxUsers() != null && lowest > query.getMaxUsers()) {
+                    continue;
+                }
+                sets.add(buckets[password * countBuckets + count]);
+            }
+        }
+        return sets;
+    }
+
+    private static boolean matches(RoomSummary room, RoomQuery query, int maxUsersPerRoom) {
+        return (query.getHasPassword() == null || room.hasPassword() == query.getHasPassword())
+                && !(Boolean.TRUE.equals(query.getNotFull()) && room.userCount() >= maxUsersPerRoom)
+                && (query.getMinUsers() == null || room.userCount() >= query.getMinUsers())
+                && (query.getMaxUsers() == null || room.userCount() <= query.getMaxUsers());
+    }
+
+    private ConcurrentSkipListMap<String, RoomSummary> bucket(RoomSummary room) {
+        return buckets[(room.hasPassword() ? countBuckets : 0) + Math.min(room.userCount(), countBuckets - 1)];
+    }
+
+    synchronized void flush() {
+        if (dirtyRooms.isEmpty()) {
+            return;
+        }
+
+        List<Map<String, Object>> changes = new ArrayList<>();
+        for (Iterator<String> it = dirtyRooms.iterator(); it.hasNext(); ) {
+            String roomId = it.next();
+            it.remove();
+
+            RoomSummary before = byId.get(roomId);
+            RoomSummary after = summarize(roomId);
+            if (Objects.equals(before, after)) {
+                continue;
+            }
+
+            Map<String, Object> change = new HashMap<>();
+            change.put("roomId", roomId);
+            if (after == null) {
+                bucket(before).remove(roomId);
+                byId.remove(roomId);
+                change.put("type", "removed");
+            } else {
+                // Into the new bucket before out of the old one, so a concurrent query sees the room at least once
+                byId.put(roomId, after);
+                bucket(after).put(roomId, after);
+                if (before != null && bucket(before) != bucket(after)) {
+                    bucket(before).remove(roomId);
+                }
+                change.put("type", before == null ? "added" : "updated");
+                change.put("userCount", after.userCount());
+                change.put("hasPassword", after.hasPassword());
+            }
+            changes.add(change);
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        long previousVersion = version;
+        version++;
+        history.addLast(new Delta(version, changes));
+        while (history.size() > historySize) {
+            history.removeFirst();
+        }
+        current = new Version(epoch, version);
+
+        publisher.accept(deltaFrame(previousVersion, changes));
+    }
+
+    private RoomSummary summarize(String roomId) {
+        Room room = roomService.getRoom(roomId);
+        if (room == null) {
+            return null;
+        }
+        Map<String, Object> info = roomService.getRoomInfo(roomId);
+        return new RoomSummary(roomId, (Integer) info.get("userCount"), (Boolean) info.get("hasPassword"));
+    }
+
+    // Deltas are complete from (oldest history version - 1) onwards
+    private long oldestResumableVersion() {
+        return history.isEmpty() ? version : history.peekFirst().version() - 1;
+    }
+
+    private Map<String, Object> deltaFrame(long fromVersion, List<Map<String, Object>> changes) {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("epoch", epoch);
+        frame.put("fromVersion", fromVersion);
+        frame.put("version", version);
+        frame.put("changes", changes);
+        return frame;
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.meetus.service;
 
+import com.corundumstudio.socketio.SocketIOClient;
 import com.example.meetus.model.Room;
 import com.example.meetus.model.User;
+import com.example.meetus.persistence.RoomJournal;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -18,35 +22,109 @@ public class RoomService {
     
     private final Map<String, Room> rooms = new ConcurrentHashMap<>();
     private final Map<String, RoomPassword> roomPasswords = new ConcurrentHashMap<>();
-    private final Map<String, UserSession> userSessions = new ConcurrentHashMap<>();
+    private final SessionTable<UserSession> userSessions = new SessionTable<>();
+    // Sessions restored from the journal that have not reconnected yet
+    private final Set<String> recoveredSessions = ConcurrentHashMap.newKeySet();
+    private final List<RoomChangeListener> roomChangeListeners = new CopyOnWriteArrayList<>();
     
-    private static final Duration ROOM_PASSWORD_EXPIRY = Duration.ofMinutes(30);
+    private final RoomJournal journal;
+    private final ExpiryService expiry;
     
-    // Inner class for storing room passwords with expiry
+    @Value("${meetus.room.max-users:10}")
+    private int maxUsersPerRoom = 10;
+    
+    @Value("${meetus.room.max-room-id-length:128}")
+    private int maxRoomIdLength = 128;
+    
+    @Value("${meetus.room.max-username-length:64}")
+    private int maxUsernameLength = 64;
+    
+    @Value("${meetus.journal.resume-grace-ms:60000}")
+    private long resumeGraceMs;
+    
+    @Value("${meetus.expiry.password-ttl-ms:1800000}")
+    private long passwordTtlMs;
+    
+    // 0 disables idle-room expiry
+    @Value("${meetus.expiry.idle-room-ms:0}")
+    private long idleRoomMs;
+    
+    // 0 disables zombie-session checks
+    @Value("${meetus.expiry.session-check-ms:0}")
+    private long sessionCheckMs;
+    
+    // Whether a session still has a live connection; set by the socket layer
+    private volatile Predicate<String> sessionLiveness = sessionId -> true;
+    
+    @Autowired
+    public RoomService(RoomJournal journal, ExpiryService expiry) {
+        this.journal = journal;
+        this.expiry = expiry;
+    }
+    
+    // Inner class for storing room password hashes; the entry is removed by its expiry timer
     private static class RoomPassword {
-        String password;
-        Instant createdAt;
+        String passwordHash;
+        TimingWheel.Timeout expiry;
         
-        RoomPassword(String password) {
-            this.password = password;
-            this.createdAt = Instant.now();
-        }
-        
-        boolean isExpired() {
-            return Duration.between(createdAt, Instant.now()).compareTo(ROOM_PASSWORD_EXPIRY) > 0;
+        RoomPassword(String passwordHash) {
+            this.passwordHash = passwordHash;
         }
     }
     
-    // Inner class for storing user session data
-    private static class UserSession {
-        String userId;
-        String username;
-        String roomId;
+    /**
+     * A seated session in one flat entry: its id and username (the same string
+     * instances its room member holds), the room it sits in and, for sessions
+     * connected to this node, its client and the resume token issued when it was
+     * seated. Immutable; a join or resume replaces the entry.
+     */
+    public static final class UserSession {
+        private final String id;
+        private final String username;
+        private final Room room;
+        private final SocketIOClient client;
+        private final String resumeToken;
+        
+        UserSession(User member, Room room, SocketIOClient client) {
+            this(member, room, client, null);
+        }
+        
+        UserSession(User member, Room room, SocketIOClient client, String resumeToken) {
+            this.id = member.getId();
+            this.username = member.getUsername();
+            this.room = room;
+            this.client = client;
+            this.resumeToken = resumeToken;
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public String getUsername() {
+            return username;
+        }
+        
+        public Room getRoom() {
+            return room;
+        }
+        
+        public String getRoomId() {
+            return room.getRoomId();
+        }
         
-        UserSession(String userId, String username, String roomId) {
-            this.userId = userId;
-            this.username = username;
-            this.roomId = roomId;
+        // Null for sessions restored from the journal that have not reconnected yet
+        public SocketIOClient getClient() {
+            return client;
+        }
+        
+        /**
+         * Secret that {@link #resumeSession} requires to hand this seat to a new
+         * connection after a restart. Only its digest is kept in the room and the
+         * journal; null for sessions that were not seated by a join.
+         */
+        public String getResumeToken() {
+            return resumeToken;
         }
     }
     
@@ -112,98 +190,386 @@ public class RoomService {
 //
 //        return room;
 //    }
-public synchronized Room joinRoom(String roomId, String sessionId, String username, String password) throws Exception {
-    // Validate input
-    if (roomId == null || roomId.trim().isEmpty()) {
-        throw new IllegalArgumentException("Room ID is required");
+    // Rooms are locked individually: every mutation of a room's membership happens while holding
+    // that Room's lock, so joins and leaves in different rooms never contend. A Room instance
+    // that has been unlinked from the rooms map is dead; callers that lose that race simply retry.
+    public Room joinRoom(String roomId, String sessionId, String username, String password) throws Exception {
+        return joinRoom(roomId, sessionId, username, password, null);
     }
-    if (username == null || username.trim().isEmpty()) {
-        throw new IllegalArgumentException("Username is required");
+
+    public Room joinRoom(String roomId, String sessionId, String username, String password,
+                         SocketIOClient client) throws Exception {
+        return join(roomId, sessionId, username, password, null, client);
     }
 
-    // Check if user is already in a room
-    // FIX: Get the session object first and check for null.
-    UserSession existingSession = userSessions.get(sessionId);
+    /**
+     * Seats a session whose admission was already decided across the cluster
+     * (see ClusterRelay), so no password, username or capacity check runs here.
+     * A room this node does not hold yet is created with the cluster's password
+     * hash and creator.
+     */
+    public Room joinAdmitted(String roomId, String sessionId, String username, String passwordHash,
+                             String createdBy, SocketIOClient client) throws Exception {
+        return join(roomId, sessionId, username, null, new Admitted(passwordHash, createdBy), client);
+    }
+
+    // Settings of a room whose admission checks already passed elsewhere
+    private record Admitted(String passwordHash, String createdBy) {
+    }
 
-    // Now, perform the null check
-    if (existingSession != null) {
-        String currentRoom = existingSession.roomId;
-        if (currentRoom != null && !currentRoom.equals(roomId)) {
-            // Leave the current room first
-            leaveRoom(sessionId);
+    /**
+     * Throws for a room id or username that no join would accept, before
+     * anything is recorded for it.
+     */
+    public void checkJoin(String roomId, String username) {
+        if (roomId == null || roomId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Room ID is required");
+        }
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username is required");
+        }
+        if (roomId.length() > maxRoomIdLength) {
+            throw new IllegalArgumentException("Room ID is longer than " + maxRoomIdLength + " characters");
         }
+        if (username.length() > maxUsernameLength) {
+            throw new IllegalArgumentException("Username is longer than " + maxUsernameLength + " characters");
+        }
+    }
+
+    /**
+     * The hash a room created with this password keeps, null for a blank
+     * password (an open room).
+     */
+    public String hashPassword(String password) {
+        return password != null && !password.trim().isEmpty()
+                ? Secrets.hashPassword(password) : null;
     }
 
-    Room room = rooms.get(roomId);
+    private Room join(String roomId, String sessionId, String username, String password, Admitted admitted,
+                      SocketIOClient client) throws Exception {
+        checkJoin(roomId, username);
 
-    if (room == null) {
-        // Create new room
-        log.info("Creating new room {} with password: {}", roomId, password != null ? "yes" : "no");
-        room = new Room(roomId);
-        room.setCreatedBy(sessionId);
-        if (password != null && !password.trim().isEmpty()) {
-            room.setPassword(password);
+        // Check if user is already in a room
+        UserSession existingSession = userSessions.get(sessionId);
+        if (existingSession != null) {
+            String currentRoom = existingSession.getRoomId();
+            if (currentRoom != null && !currentRoom.equals(roomId)) {
+                // Leave the current room first
+                leaveRoom(sessionId);
+            }
         }
-        rooms.put(roomId, room);
 
-        // Store password for persistence
-        if (password != null && !password.trim().isEmpty()) {
-            roomPasswords.put(roomId, new RoomPassword(password));
+        while (true) {
+            Room room = rooms.get(roomId);
+            boolean created = false;
+
+            if (room == null) {
+                // Create new room, fully initialised and locked before it becomes visible to other
+                // joiners, so none of them can seat itself ahead of the CREATE record
+                Room newRoom = new Room(roomId);
+                newRoom.setCreatedBy(admitted != null ? admitted.createdBy() : sessionId);
+                newRoom.setPasswordHash(admitted != null ? admitted.passwordHash() : hashPassword(password));
+                boolean hasPassword = newRoom.hasPassword();
+                newRoom.lock().lock();
+                try {
+                    if (rooms.putIfAbsent(roomId, newRoom) == null) {
+                        journal.roomCreated(newRoom);
+                        scheduleIdleCheck(newRoom, idleRoomMs);
+                        // Store password for persistence
+                        if (hasPassword) {
+                            storePassword(roomId, newRoom.getPasswordHash());
+                            journal.passwordSet(roomId, newRoom.getPasswordHash());
+                        }
+                        seat(newRoom, sessionId, username, client);
+                        room = newRoom;
+                        created = true;
+                    }
+                } finally {
+                    newRoom.lock().unlock();
+                }
+                if (!created) {
+                    // Another joiner created it first
+                    continue;
+                }
+            } else {
+                // Check password for existing room. The hash is fixed when the room is created, so the
+                // check runs before taking the lock.
+                String passwordHash = room.getPasswordHash();
+                if (admitted == null && passwordHash != null && !Secrets.passwordMatches(passwordHash, password)) {
+                    throw new Exception("Invalid password");
+                }
+
+                room.lock().lock();
+                try {
+                    if (rooms.get(roomId) != room) {
+                        // Room was emptied and removed while we were waiting for it
+                        continue;
+                    }
+
+                    if (admitted == null) {
+                        // Check if username is already taken in the room
+                        if (room.getMembers().isUsernameTaken(username, sessionId)) {
+                            throw new Exception("Username '" + username + "' is already taken in this room");
+                        }
+
+                        // Check room capacity; a session rejoining its own room keeps its seat
+                        if (!room.getMembers().contains(sessionId) && room.getUserCount() >= maxUsersPerRoom) {
+                            throw new Exception("Room is full (max " + maxUsersPerRoom + " users)");
+                        }
+                    }
+
+                    seat(room, sessionId, username, client);
+                } finally {
+                    room.lock().unlock();
+                }
+            }
+
+            if (created) {
+                log.info("Created new room {} with password: {}", roomId, room.hasPassword() ? "yes" : "no");
+            }
+            log.info("User {} ({}) joined room {}", username, sessionId, roomId);
+            fireRoomChanged(roomId);
+
+            return room;
         }
-    } else {
-        // Check password for existing room
-        String storedPassword = room.getPassword();
-        if (storedPassword != null && !storedPassword.equals(password)) {
-            throw new Exception("Invalid password");
+    }
+
+    // Caller holds the room's lock and has checked that the room is still live
+    private void seat(Room room, String sessionId, String username, SocketIOClient client) {
+        String resumeToken = Secrets.newToken();
+        User user = new User(sessionId, room.getMembers().intern(username), Secrets.tokenDigest(resumeToken));
+        room.addUser(user);
+        room.setLastActivityMillis(System.currentTimeMillis());
+        UserSession session = new UserSession(user, room, client, resumeToken);
+        userSessions.put(sessionId, session);
+        scheduleSessionCheck(session);
+        journal.userJoined(room.getRoomId(), sessionId, username, user.getResumeTokenDigest());
+    }
+
+    public void leaveRoom(String sessionId) {
+        UserSession session = userSessions.remove(sessionId);
+        if (session != null) {
+            leave(session);
         }
+    }
+
+    // The session has already been unlinked from userSessions
+    private void leave(UserSession session) {
+        String sessionId = session.getId();
+        String roomId = session.getRoomId();
+        Room room = session.getRoom();
 
-        // Check if username is already taken in the room
-        boolean usernameTaken = room.getUsers().stream()
-                .anyMatch(u -> u.getUsername().equalsIgnoreCase(username) && !u.getId().equals(sessionId));
+        boolean removed = false;
+        room.lock().lock();
+        try {
+            if (rooms.get(roomId) != room) {
+                return;
+            }
+            room.removeUser(sessionId);
+            room.setLastActivityMillis(System.currentTimeMillis());
+            journal.userLeft(roomId, sessionId);
 
-        if (usernameTaken) {
-            throw new Exception("Username '" + username + "' is already taken in this room");
+            // If room is empty, remove it. The password goes first so that a room re-created
+            // under the same id right after the unlink can never lose its fresh password.
+            if (room.isEmpty()) {
+                removePassword(roomId);
+                rooms.remove(roomId, room);
+                removed = true;
+            }
+        } finally {
+            room.lock().unlock();
         }
 
-        // Check room capacity (optional - set a max limit)
-        if (room.getUsers().size() >= 10) {
-            throw new Exception("Room is full (max 10 users)");
+        if (removed) {
+            log.info("Room {} is now empty and removed from active rooms", roomId);
         }
+        log.info("User {} left room {}", sessionId, roomId);
+        fireRoomChanged(roomId);
     }
 
-    // Add user to room
-    User user = new User(sessionId, username);
-    room.addUser(user);
-    userSessions.put(sessionId, new UserSession(sessionId, username, roomId));
+    /**
+     * Hands a session restored from the journal over to the reconnected client's new
+     * session id, keeping its seat, its username and any creator rights. Session ids
+     * are visible to every room member, so the caller must also present the resume
+     * token issued to the seat at join. Returns false when the previous session is
+     * unknown, has already been resumed or the token does not match.
+     */
+    public boolean resumeSession(String previousSessionId, String resumeToken, String sessionId) {
+        if (!recoveredSessions.contains(previousSessionId)) {
+            return false;
+        }
+        UserSession previous = userSessions.get(previousSessionId);
+        if (previous == null) {
+            return false;
+        }
 
-    log.info("User {} ({}) joined room {}", username, sessionId, roomId);
+        String roomId = previous.getRoomId();
+        Room room = previous.getRoom();
 
-    return room;
-}
-    
-    public synchronized void leaveRoom(String sessionId) {
-        UserSession session = userSessions.get(sessionId);
-        if (session == null) {
-            return;
+        room.lock().lock();
+        try {
+            if (rooms.get(roomId) != room) {
+                return false;
+            }
+            User user = room.getMembers().get(previousSessionId);
+            if (user == null || !Secrets.tokenMatches(user.getResumeTokenDigest(), resumeToken)) {
+                log.warn("Refused to resume session {} without its resume token", previousSessionId);
+                return false;
+            }
+            // A wrong token must not use up the seat, so it is only claimed once the token matched
+            if (!recoveredSessions.remove(previousSessionId)) {
+                return false;
+            }
+            room.getMembers().remove(previousSessionId);
+            User resumed = new User(sessionId, user.getUsername());
+            room.addUser(resumed);
+            if (previousSessionId.equals(room.getCreatedBy())) {
+                room.setCreatedBy(sessionId);
+            }
+            userSessions.remove(previousSessionId);
+            UserSession session = new UserSession(resumed, room, null);
+            userSessions.put(sessionId, session);
+            scheduleSessionCheck(session);
+            journal.sessionResumed(roomId, previousSessionId, sessionId);
+        } finally {
+            room.lock().unlock();
         }
-        
-        String roomId = session.roomId;
+
+        log.info("Session {} resumed as {} in room {}", previousSessionId, sessionId, roomId);
+        return true;
+    }
+
+    public int getMaxUsersPerRoom() {
+        return maxUsersPerRoom;
+    }
+
+    public void addRoomChangeListener(RoomChangeListener listener) {
+        roomChangeListeners.add(listener);
+    }
+
+    public void setSessionLiveness(Predicate<String> sessionLiveness) {
+        this.sessionLiveness = sessionLiveness;
+    }
+
+    /**
+     * Records activity in a room, postponing its idle expiry.
+     */
+    public void touchRoom(String roomId) {
         Room room = rooms.get(roomId);
         if (room != null) {
-            room.removeUser(sessionId);
-            
-            // If room is empty, remove it
-            if (room.getUsers().isEmpty()) {
-                rooms.remove(roomId);
-                roomPasswords.remove(roomId);
-                log.info("Room {} is now empty and removed from active rooms", roomId);
+            room.setLastActivityMillis(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records activity in the room a session is seated in, e.g. a call's
+     * signaling, so a room whose members only talk to each other stays alive.
+     */
+    public void touchSession(UUID sessionId) {
+        UserSession session = userSessions.get(sessionId);
+        if (session != null) {
+            session.getRoom().setLastActivityMillis(System.currentTimeMillis());
+        }
+    }
+
+    private void fireRoomChanged(String roomId) {
+        for (RoomChangeListener listener : roomChangeListeners) {
+            listener.onRoomChanged(roomId);
+        }
+    }
+
+    private void storePassword(String roomId, String passwordHash) {
+        RoomPassword entry = new RoomPassword(passwordHash);
+        RoomPassword previous = roomPasswords.put(roomId, entry);
+        if (previous != null && previous.expiry != null) {
+            previous.expiry.cancel();
+        }
+        entry.expiry = expiry.schedule(() -> {
+            if (roomPasswords.remove(roomId, entry)) {
+                log.info("Removing expired password for room {}", roomId);
             }
-            
-            log.info("User {} left room {}", sessionId, roomId);
+        }, passwordTtlMs);
+    }
+
+    private void removePassword(String roomId) {
+        RoomPassword entry = roomPasswords.remove(roomId);
+        if (entry != null && entry.expiry != null) {
+            entry.expiry.cancel();
         }
-        userSessions.remove(sessionId);
     }
-    
+
+    // One timer per room; when it fires early because of recent activity it re-arms for the remainder
+    private void scheduleIdleCheck(Room room, long delayMs) {
+        if (idleRoomMs > 0) {
+            expiry.schedule(() -> checkIdle(room), delayMs);
+        }
+    }
+
+    private void checkIdle(Room room) {
+        String roomId = room.getRoomId();
+        if (rooms.get(roomId) != room) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - room.getLastActivityMillis();
+        if (idle < idleRoomMs) {
+            scheduleIdleCheck(room, idleRoomMs - idle);
+            return;
+        }
+
+        List<User> users;
+        room.lock().lock();
+        try {
+            if (rooms.get(roomId) != room) {
+                return;
+            }
+            users = room.getUsers();
+            for (User user : users) {
+                userSessions.remove(user.getId());
+                recoveredSessions.remove(user.getId());
+            }
+            removePassword(roomId);
+            rooms.remove(roomId, room);
+            journal.roomDeleted(roomId);
+        } finally {
+            room.lock().unlock();
+        }
+
+        log.info("Room {} expired after {} ms without activity", roomId, idle);
+        for (RoomChangeListener listener : roomChangeListeners) {
+            listener.onRoomExpired(roomId, users);
+        }
+        fireRoomChanged(roomId);
+    }
+
+    private void scheduleSessionCheck(UserSession session) {
+        if (sessionCheckMs > 0) {
+            expiry.schedule(() -> checkSession(session), sessionCheckMs);
+        }
+    }
+
+    // Sessions still seated in a room without a live connection are reaped; live ones re-arm
+    private void checkSession(UserSession session) {
+        if (userSessions.get(session.getId()) != session) {
+            return;
+        }
+        if (sessionLiveness.test(session.getId())) {
+            scheduleSessionCheck(session);
+            return;
+        }
+        log.info("Reaping zombie session {} in room {}", session.getId(), session.getRoomId());
+        reap(session);
+    }
+
+    private void reap(UserSession session) {
+        if (userSessions.remove(session.getId(), session) == null) {
+            return;
+        }
+        leave(session);
+        for (RoomChangeListener listener : roomChangeListeners) {
+            listener.onSessionReaped(session.getRoomId(), session.getId(), session.getUsername());
+        }
+    }
+
     public Room getRoom(String roomId) {
         return rooms.get(roomId);
     }
@@ -212,15 +578,23 @@ public synchronized Room joinRoom(String roomId, String sessionId, String userna
         return new ArrayList<>(rooms.values());
     }
     
+    public int getRoomCount() {
+        return rooms.size();
+    }
+    
+    public int getSessionCount() {
+        return userSessions.size();
+    }
+    
     public Map<String, Object> getRoomInfo(String roomId) {
         Room room = rooms.get(roomId);
         RoomPassword password = roomPasswords.get(roomId);
         
         Map<String, Object> info = new HashMap<>();
         info.put("roomId", roomId);
-        info.put("userCount", room != null ? room.getUsers().size() : 0);
+        info.put("userCount", room != null ? room.getUserCount() : 0);
         info.put("hasPassword", (room != null && room.hasPassword()) || 
-                                (password != null && password.password != null && !password.isExpired()));
+                                (password != null && password.passwordHash != null));
         return info;
     }
     
@@ -234,48 +608,153 @@ public synchronized Room joinRoom(String roomId, String sessionId, String userna
         return userSessions.get(userId);
     }
     
+    // Lookup by the client's binary session id, without going through its string form
+    public UserSession getUserSession(UUID sessionId) {
+        return userSessions.get(sessionId);
+    }
+    
     public String getUserRoom(String userId) {
         UserSession session = userSessions.get(userId);
-        return session != null ? session.roomId : null;
+        return session != null ? session.getRoomId() : null;
     }
     
     public String getUsername(String userId) {
         UserSession session = userSessions.get(userId);
-        return session != null ? session.username : null;
+        return session != null ? session.getUsername() : null;
     }
     
-    public synchronized void deleteRoom(String roomId, String sessionId) throws Exception {
+    /**
+     * Throws the error {@link #deleteRoom} would throw for this session, without
+     * deleting anything, so members can be told before the room goes away.
+     */
+    public void checkCanDelete(String roomId, String sessionId) throws Exception {
         Room room = rooms.get(roomId);
         if (room == null) {
             throw new Exception("Room not found");
         }
-        
+        room.lock().lock();
+        try {
+            checkDeletable(room, sessionId);
+        } finally {
+            room.lock().unlock();
+        }
+    }
+
+    // Caller holds the room's lock
+    private void checkDeletable(Room room, String sessionId) throws Exception {
+        if (rooms.get(room.getRoomId()) != room) {
+            throw new Exception("Room not found");
+        }
+
         // Only creator can delete the room
         if (!room.getCreatedBy().equals(sessionId)) {
             throw new Exception("Only the room creator can delete the room");
         }
-        
-        // Remove all users from room tracking
-        for (User user : room.getUsers()) {
-            userSessions.remove(user.getId());
+    }
+
+    public void deleteRoom(String roomId, String sessionId) throws Exception {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            throw new Exception("Room not found");
         }
-        
-        // Remove room
-        rooms.remove(roomId);
-        roomPasswords.remove(roomId);
-        
+
+        room.lock().lock();
+        try {
+            checkDeletable(room, sessionId);
+
+            // Remove all users from room tracking, including seats still waiting to be resumed
+            for (User user : room.getUsers()) {
+                userSessions.remove(user.getId());
+                recoveredSessions.remove(user.getId());
+            }
+
+            // Remove room
+            removePassword(roomId);
+            rooms.remove(roomId, room);
+            journal.roomDeleted(roomId);
+        } finally {
+            room.lock().unlock();
+        }
+
         log.info("Room {} deleted by {}", roomId, sessionId);
+        fireRoomChanged(roomId);
     }
-    
-    // Clean up expired room passwords periodically
-    @Scheduled(fixedDelay = 300000) // Every 5 minutes
-    public void cleanupExpiredPasswords() {
-        roomPasswords.entrySet().removeIf(entry -> {
-            boolean expired = entry.getValue().isExpired();
-            if (expired) {
-                log.info("Removing expired password for room {}", entry.getKey());
+
+    /**
+     * Drops this node's copy of a room that was deleted or expired on another
+     * node, with no creator check. Returns the members that were seated here.
+     */
+    public List<User> removeRoom(String roomId) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return List.of();
+        }
+
+        List<User> users;
+        room.lock().lock();
+        try {
+            if (rooms.get(roomId) != room) {
+                return List.of();
+            }
+            users = room.getUsers();
+            for (User user : users) {
+                userSessions.remove(user.getId());
+                recoveredSessions.remove(user.getId());
             }
-            return expired;
-        });
+            removePassword(roomId);
+            rooms.remove(roomId, room);
+            journal.roomDeleted(roomId);
+        } finally {
+            room.lock().unlock();
+        }
+
+        log.info("Room {} removed, deleted on another node", roomId);
+        fireRoomChanged(roomId);
+        return users;
+    }
+
+    // A journal that cannot be read or reopened must not keep the server from starting
+    @PostConstruct
+    public void restoreFromJournal() {
+        if (!journal.isEnabled()) {
+            return;
+        }
+
+        List<Room> recovered;
+        try {
+            recovered = journal.recover();
+        } catch (Exception e) {
+            log.error("Could not open the room journal, continuing without it: ", e);
+            journal.disable();
+            return;
+        }
+
+        for (Room room : recovered) {
+            if (room.isEmpty()) {
+                continue;
+            }
+            rooms.put(room.getRoomId(), room);
+            room.setLastActivityMillis(System.currentTimeMillis());
+            scheduleIdleCheck(room, idleRoomMs);
+            if (room.hasPassword()) {
+                storePassword(room.getRoomId(), room.getPasswordHash());
+            }
+            for (User user : room.getUsers()) {
+                UserSession session = new UserSession(user, room, null);
+                userSessions.put(user.getId(), session);
+                recoveredSessions.add(user.getId());
+                // Recovered sessions whose clients never come back are treated as having left
+                expiry.schedule(() -> {
+                    if (recoveredSessions.remove(session.getId())) {
+                        reap(session);
+                    }
+                }, resumeGraceMs);
+            }
+        }
+
+        journal.start(this::getAllRooms);
+        if (!recoveredSessions.isEmpty()) {
+            log.info("Waiting {} ms for {} recovered sessions to resume", resumeGraceMs, recoveredSessions.size());
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.example.meetus.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Room passwords and resume tokens as they are kept in memory and on disk:
+ * passwords as a salted SHA-256 digest ({@code sha256$<salt>$<digest>}),
+ * resume tokens, which are random and long, as a plain SHA-256 digest.
+ *
+ * The password digest keeps plain text out of the journal. It is one round,
+ * cheap enough to check on the event loop, so it is no defence against
+ * guessing short passwords from a stolen journal.
+ */
+public final class Secrets {
+
+    private static final int SALT_BYTES = 16;
+    private static final int TOKEN_BYTES = 24;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private Secrets() {
+    }
+
+    public static String hashPassword(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return "sha256$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(saltedDigest(password, salt));
+    }
+
+    // A null or malformed hash never matches
+    public static boolean passwordMatches(String hash, String password) {
+        if (hash == null || password == null) {
+            return false;
+        }
+        String[] parts = hash.split("\\$");
+        if (parts.length != 3 || !parts[0].equals("sha256")) {
+            return false;
+        }
+        try {
+            byte[] expected = DECODER.decode(parts[2]);
+            return MessageDigest.isEqual(expected, saltedDigest(password, DECODER.decode(parts[1])));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static String newToken() {
+        byte[] token = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(token);
+        return ENCODER.encodeToString(token);
+    }
+
+    public static String tokenDigest(String token) {
+        return ENCODER.encodeToString(sha256().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static boolean tokenMatches(String digest, String token) {
+        return digest != null && token != null && MessageDigest.isEqual(
+                digest.getBytes(StandardCharsets.US_ASCII), tokenDigest(token).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] saltedDigest(String password, byte[] salt) {
+        MessageDigest digest = sha256();
+        digest.update(salt);
+        return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.meetus.service;
+
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map from session ids to values, keyed by the two longs of the
+ * session UUID rather than by its 36-character string.
+ *
+ * The table is split into segments. Each segment is an open-addressing table
+ * with linear probing: keys sit in one {@code long[]} (two slots per entry) and
+ * values in a parallel {@code Object[]}. There is no node object per entry and
+ * no key string. Reads take an optimistic stamp and fall back to a read lock
+ * only if a writer got in the way, so a lookup normally acquires nothing and
+ * allocates nothing. Writes lock their segment.
+ *
+ * String ids are parsed in place, so a lookup by the id a client sent does
+ * not build a {@link UUID} either.
+ */
+public final class SessionTable<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_CAPACITY = 16;
+    // Marks a removed entry so probes for keys placed after it keep going
+    private static final Object TOMBSTONE = new Object();
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public SessionTable() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private static final class Slots {
+        final long[] keys;
+        final Object[] values;
+
+        Slots(int capacity) {
+            keys = new long[capacity * 2];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        Slots slots = new Slots(INITIAL_CAPACITY);
+        int size;
+        int used;
+
+        Object get(long msb, long lsb, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            Object value = find(slots, msb, lsb, hash);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(slots, msb, lsb, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Under an optimistic stamp the slots may be mid-update; the caller discards the result then
+        private static Object find(Slots slots, long msb, long lsb, int hash) {
+            Object[] values = slots.values;
+            long[] keys = slots.keys;
+            int mask = values.length - 1;
+            int index = hash & mask;
+            for (int probes = 0; probes < values.length; probes++) {
+                Object value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (value != TOMBSTONE && keys[index * 2] == msb && keys[index * 2 + 1] == lsb) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        // Index of the key, or -1; caller holds the write lock
+        private int indexOf(long msb, long lsb, int hash) {
+            Object[] values = slots.values;
+            int mask = values.length - 1;
+            int index = hash & mask;
+            for (int probes = 0; probes < values.length; probes++) {
+                Object value = values[index];
+                if (value == null) {
+                    return -1;
+                }
+                if (value != TOMBSTONE && slots.keys[index * 2] == msb && slots.keys[index * 2 + 1] == lsb) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        Object put(long msb, long lsb, int hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                int existing = indexOf(msb, lsb, hash);
+                if (existing >= 0) {
+                    Object previous = slots.values[existing];
+                    slots.values[existing] = value;
+                    return previous;
+                }
+                if ((used + 1) * 2 > slots.values.length) {
+                    // Grow only when live entries need it; otherwise just sweep the tombstones
+                    rehash((size + 1) * 4 > slots.values.length ? slots.values.length * 2 : slots.values.length);
+                }
+                Object[] values = slots.values;
+                int mask = values.length - 1;
+                int index = hash & mask;
+                while (values[index] != null && values[index] != TOMBSTONE) {
+                    index = (index + 1) & mask;
+                }
+                if (values[index] == null) {
+                    used++;
+                }
+                slots.keys[index * 2] = msb;
+                slots.keys[index * 2 + 1] = lsb;
+                values[index] = value;
+                size++;
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Object remove(long msb, long lsb, int hash, Object expected) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(msb, lsb, hash);
+                if (index < 0) {
+                    return null;
+                }
+                Object previous = slots.values[index];
+                if (expected != null && previous != expected) {
+                    return null;
+                }
+                slots.values[index] = TOMBSTONE;
+                size--;
+                return previous;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void rehash(int capacity) {
+            Slots old = slots;
+            Slots fresh = new Slots(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.values.length; i++) {
+                Object value = old.values[i];
+                if (value == null || value == TOMBSTONE) {
+                    continue;
+                }
+                long msb = old.keys[i * 2];
+                long lsb = old.keys[i * 2 + 1];
+                int index = hash(msb, lsb) & mask;
+                while (fresh.values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                fresh.keys[index * 2] = msb;
+                fresh.keys[index * 2 + 1] = lsb;
+                fresh.values[index] = value;
+            }
+            slots = fresh;
+            used = size;
+        }
+    }
+
+    public V get(UUID sessionId) {
+        return get(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits());
+    }
+
+    /**
+     * Looks up a session by its string form. Returns null for ids that are not
+     * a UUID.
+     */
+    public V get(String sessionId) {
+        if (isCanonical(sessionId)) {
+            return get(parseMostSignificantBits(sessionId), parseLeastSignificantBits(sessionId));
+        }
+        UUID id = parse(sessionId);
+        return id != null ? get(id) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long msb, long lsb) {
+        int hash = hash(msb, lsb);
+        return (V) segmentFor(hash).get(msb, lsb, hash);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(String sessionId, V value) {
+        UUID id = parse(sessionId);
+        if (id == null) {
+            throw new IllegalArgumentException("Session id is not a UUID: " + sessionId);
+        }
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        return (V) segmentFor(hash).put(msb, lsb, hash, value);
+    }
+
+    public V remove(String sessionId) {
+        return remove(sessionId, null);
+    }
+
+    /**
+     * Removes the entry only while it still maps to the expected value, or
+     * unconditionally when {@code expected} is null.
+     */
+    public V remove(String sessionId, V expected) {
+        if (isCanonical(sessionId)) {
+            return remove(parseMostSignificantBits(sessionId), parseLeastSignificantBits(sessionId), expected);
+        }
+        UUID id = parse(sessionId);
+        return id != null ? remove(id.getMostSignificantBits(), id.getLeastSignificantBits(), expected) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V remove(long msb, long lsb, V expected) {
+        int hash = hash(msb, lsb);
+        return (V) segmentFor(hash).remove(msb, lsb, hash, expected);
+    }
+
+    public int size() {
+        int total = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                total += segment.size;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (h ^ (h >>> 33));
+    }
+
+    // Other spellings UUID accepts, e.g. without leading zeros; Unicode digits are refused here as well
+    private static UUID parse(String id) {
+        if (id == null) {
+            return null;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) != '-' && hexDigit(id.charAt(i)) < 0) {
+                return null;
+            }
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx, as produced by UUID.toString
+    private static boolean isCanonical(String id) {
+        if (id == null || id.length() != 36
+                || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            if (i != 8 && i != 13 && i != 18 && i != 23 && hexDigit(id.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseMostSignificantBits(String id) {
+        return hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+    }
+
+    private static long parseLeastSignificantBits(String id) {
+        return hex(id, 19, 23) << 48 | hex(id, 24, 36);
+    }
+
+    private static long hex(String id, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << 4 | hexDigit(id.charAt(i));
+        }
+        return value;
+    }
+
+    // ASCII only: Character.digit would also accept fullwidth and other Unicode digits
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.meetus.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hierarchical timing wheel in the style of the classic kernel timer wheel.
+ *
+ * Level 0 has one bucket per tick. Each higher level has buckets spanning a
+ * full revolution of the level below. A timer goes into the lowest level whose
+ * range covers its deadline. Whenever level 0 completes a revolution, the next
+ * bucket of level 1 is cascaded down. Level 1 does the same with level 2, and
+ * so on. Scheduling and cancelling are O(1). Each timer is cascaded at most
+ * once per level, and no operation ever scans all pending timers.
+ *
+ * Any thread may schedule or cancel. New timers are pushed onto a lock-free
+ * stack and placed by the thread that advances the wheel. Cancelled timers are
+ * unlinked lazily, when their bucket comes up. Expired tasks are handed to
+ * the wheel's executor, so a slow one does not hold up the ticks behind it;
+ * without one they run on the advancing thread.
+ */
+@Slf4j
+public final class TimingWheel {
+
+    // Buckets per level as powers of two: 256 ticks, then 64 revolutions of the level below each
+    private static final int[] LEVEL_BITS = {8, 6, 6, 6, 6};
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout[][] buckets = new Timeout[LEVEL_BITS.length][];
+    private final int[] shifts = new int[LEVEL_BITS.length];
+    private final long maxDelta;
+    private final Executor executor;
+
+    private final AtomicReference<Timeout> pending = new AtomicReference<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    // Owned by the advancing thread: the last tick whose level-0 bucket has been processed
+    private long currentTick;
+
+    public static final class Timeout {
+        private final Runnable task;
+        private long deadline;
+        private Timeout next;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    public TimingWheel(long tick, TimeUnit unit) {
+        this(tick, unit, Runnable::run);
+    }
+
+    public TimingWheel(long tick, TimeUnit unit, Executor executor) {
+        this.executor = executor;
+        this.tickNanos = unit.toNanos(tick);
+        this.startNanos = System.nanoTime();
+        int shift = 0;
+        for (int level = 0; level < LEVEL_BITS.length; level++) {
+            buckets[level] = new Timeout[1 << LEVEL_BITS[level]];
+            shifts[level] = shift;
+            shift += LEVEL_BITS[level];
+        }
+        this.maxDelta = (1L << shift) - 1;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Number of timers scheduled and not yet expired, including cancelled ones
+     * still waiting for their bucket.
+     */
+    public long size() {
+        return pendingCount.get();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long elapsed = System.nanoTime() - startNanos + unit.toNanos(delay);
+        Timeout timeout = new Timeout(task, (elapsed + tickNanos - 1) / tickNanos);
+        pendingCount.incrementAndGet();
+        Timeout head;
+        do {
+            head = pending.get();
+            timeout.next = head;
+        } while (!pending.compareAndSet(head, timeout));
+        return timeout;
+    }
+
+    /**
+     * Processes every tick up to now. Must only be called from one thread.
+     */
+    public void advance() {
+        advanceTo((System.nanoTime() - startNanos) / tickNanos);
+    }
+
+    void advanceTo(long targetTick) {
+        placePending();
+        while (currentTick < targetTick) {
+            long tick = ++currentTick;
+            cascade(tick, 1);
+            Timeout expired = takeBucket(0, (int) (tick & mask(0)));
+            while (expired != null) {
+                Timeout next = expired.next;
+                expired.next = null;
+                pendingCount.decrementAndGet();
+                if (!expired.cancelled) {
+                    Runnable task = expired.task;
+                    try {
+                        executor.execute(() -> run(task));
+                    } catch (Exception e) {
+                        log.error("Timer task not run: ", e);
+                    }
+                }
+                expired = next;
+            }
+            // Timers scheduled by the tasks above (or meanwhile) join before the next tick
+            placePending();
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("Timer task failed: ", e);
+        }
+    }
+
+    // On a revolution boundary of the level below, moves the level's current bucket down
+    private void cascade(long tick, int level) {
+        if (level >= LEVEL_BITS.length || (tick & ((1L << shifts[level]) - 1)) != 0) {
+            return;
+        }
+        cascade(tick, level + 1);
+        Timeout timeout = takeBucket(level, (int) ((tick >>> shifts[level]) & mask(level)));
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                pendingCount.decrementAndGet();
+            } else {
+                // The current tick's level-0 bucket is processed right after the cascade
+                place(timeout, tick);
+            }
+            timeout = next;
+        }
+    }
+
+    private void placePending() {
+        Timeout timeout = pending.getAndSet(null);
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                pendingCount.decrementAndGet();
+            } else {
+                place(timeout, currentTick + 1);
+            }
+            timeout = next;
+        }
+    }
+
+    // Past-due timers go into the earliest bucket not yet processed
+    private void place(Timeout timeout, long earliestTick) {
+        if (timeout.deadline < earliestTick) {
+            timeout.deadline = earliestTick;
+        }
+        long delta = Math.min(timeout.deadline - currentTick, maxDelta);
+        long deadline = currentTick + delta;
+        int level = 0;
+        while (level < LEVEL_BITS.length - 1 && delta >= (1L << shifts[level + 1])) {
+            level++;
+        }
+        int index = (int) ((deadline >>> shifts[level]) & mask(level));
+        timeout.next = buckets[level][index];
+        buckets[level][index] = timeout;
+    }
+
+    private Timeout takeBucket(int level, int index) {
+        Timeout head = buckets[level][index];
+        buckets[level][index] = null;
+        return head;
+    }
+
+    private static long mask(int level) {
+        return (1L << LEVEL_BITS[level]) - 1;
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.meetus.socketio;
+
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times call setup between two sessions as the server relays it.
+ *
+ * A negotiation is identified by (offerer, answerer, media kind) and opened
+ * when an offer is relayed. The tracker records when the answer is relayed and when the
+ * first and last ICE candidates go through in either direction. The
+ * negotiation closes on end-call or on disconnect of either side. An offer on
+ * an open negotiation counts as renegotiation and closes the previous one.
+ * Durations go into histograms measured from the offer.
+ *
+ * A negotiation with no answer, or an answer but no ICE, after
+ * {@code stuck-after-ms} is flagged as stuck and kept in a short list of recent
+ * stuck negotiations. Entries are capped in number and expire once they have
+ * seen no signaling for {@code idle-ttl-ms}. Timers run on the shared
+ * {@link ExpiryService} wheel.
+ *
+ * Negotiations are found through each session's own list of open
+ * negotiations, matched on the session id strings already at hand, so relaying
+ * an answer or a candidate allocates nothing here.
+ */
+@Slf4j
+@Component
+public class CallSetupTracker {
+
+    private static final long MAX_TRACKED_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int RECENT_STUCK = 50;
+
+    private final ExpiryService expiry;
+
+    @Value("${meetus.call-setup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${meetus.call-setup.max-tracked:10000}")
+    private int maxTracked;
+
+    @Value("${meetus.call-setup.stuck-after-ms:15000}")
+    private long stuckAfterMs;
+
+    @Value("${meetus.call-setup.idle-ttl-ms:120000}")
+    private long idleTtlMs;
+
+    // Open negotiations per session, on either side; copied on write, as offers and closes are rare
+    private final Map<String, Negotiation[]> bySession = new ConcurrentHashMap<>();
+    private final AtomicInteger tracked = new AtomicInteger();
+
+    private final Histogram offerToAnswer = new Histogram(MAX_TRACKED_NANOS);
+    private final Histogram offerToFirstIce = new Histogram(MAX_TRACKED_NANOS);
+    private final Histogram offerToLastIce = new Histogram(MAX_TRACKED_NANOS);
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder renegotiated = new LongAdder();
+    private final LongAdder stuckAwaitingAnswer = new LongAdder();
+    private final LongAdder stuckAwaitingIce = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+    private final Deque<Map<String, Object>> recentStuck = new ArrayDeque<>();
+
+    // CALL covers offer/answer/ice-candidate, VIDEO the video-* variants
+    public enum MediaKind {
+        CALL, VIDEO
+    }
+
+    private static final class Negotiation {
+        final String offerer;
+        final String answerer;
+        final MediaKind kind;
+        final long offerAt;
+        long answerAt;
+        long firstIceAt;
+        long lastIceAt;
+        long lastActivityAt;
+        boolean closed;
+        TimingWheel.Timeout stuckCheck;
+
+        Negotiation(String offerer, String answerer, MediaKind kind, long now) {
+            this.offerer = offerer;
+            this.answerer = answerer;
+            this.kind = kind;
+            this.offerAt = now;
+            this.lastActivityAt = now;
+        }
+    }
+
+    @Autowired
+    public CallSetupTracker(ExpiryService expiry) {
+        this.expiry = expiry;
+    }
+
+    public void offerRelayed(String from, String to, MediaKind kind) {
+        if (!enabled) {
+            return;
+        }
+        Negotiation previous = find(from, to, kind);
+        if (previous != null) {
+            renegotiated.increment();
+            close(previous);
+        }
+        if (tracked.incrementAndGet() > maxTracked) {
+            tracked.decrementAndGet();
+            untracked.increment();
+            return;
+        }
+        Negotiation negotiation = new Negotiation(from, to, kind, System.nanoTime());
+        index(from, negotiation);
+        index(to, negotiation);
+        started.increment();
+        synchronized (negotiation) {
+            negotiation.stuckCheck = expiry.schedule(() -> checkStuck(negotiation), stuckAfterMs);
+        }
+        scheduleExpiry(negotiation, idleTtlMs);
+    }
+
+    // The answer travels back from the answerer to the offerer
+    public void answerRelayed(String from, String to, MediaKind kind) {
+        if (!enabled) {
+            return;
+        }
+        Negotiation negotiation = find(to, from, kind);
+        if (negotiation == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (negotiation) {
+            if (negotiation.closed || negotiation.answerAt != 0) {
+                return;
+            }
+            negotiation.answerAt = now;
+            negotiation.lastActivityAt = now;
+        }
+        answered.increment();
+        offerToAnswer.record(now - negotiation.offerAt);
+    }
+
+    // Candidates flow both ways during a negotiation
+    public void iceRelayed(String from, String to, MediaKind kind) {
+        if (!enabled) {
+            return;
+        }
+        Negotiation negotiation = find(from, to, kind);
+        if (negotiation == null) {
+            negotiation = find(to, from, kind);
+            if (negotiation == null) {
+                return;
+            }
+        }
+        long now = System.nanoTime();
+        synchronized (negotiation) {
+            if (negotiation.closed) {
+                return;
+            }
+            if (negotiation.firstIceAt == 0) {
+                negotiation.firstIceAt = now;
+                offerToFirstIce.record(now - negotiation.offerAt);
+            }
+            negotiation.lastIceAt = now;
+            negotiation.lastActivityAt = now;
+        }
+    }
+
+    /**
+     * Closes every negotiation the session takes part in, after end-call or disconnect.
+     */
+    public void sessionEnded(String sessionId) {
+        if (!enabled) {
+            return;
+        }
+        Negotiation[] open = bySession.get(sessionId);
+        if (open != null) {
+            for (Negotiation negotiation : open) {
+                close(negotiation);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tracked", tracked.get());
+        stats.put("started", started.sum());
+        stats.put("answered", answered.sum());
+        stats.put("renegotiated", renegotiated.sum());
+        stats.put("stuckAwaitingAnswer", stuckAwaitingAnswer.sum());
+        stats.put("stuckAwaitingIce", stuckAwaitingIce.sum());
+        stats.put("expired", expired.sum());
+        stats.put("untracked", untracked.sum());
+        stats.put("offerToAnswerMillis", offerToAnswer.snapshot(1_000_000.0));
+        stats.put("offerToFirstIceMillis", offerToFirstIce.snapshot(1_000_000.0));
+        stats.put("offerToLastIceMillis", offerToLastIce.snapshot(1_000_000.0));
+        synchronized (recentStuck) {
+            stats.put("recentStuck", new ArrayList<>(recentStuck));
+        }
+        return stats;
+    }
+
+    private void checkStuck(Negotiation negotiation) {
+        String phase;
+        long now = System.nanoTime();
+        synchronized (negotiation) {
+            if (negotiation.closed) {
+                return;
+            }
+            if (negotiation.answerAt == 0) {
+                phase = "awaiting-answer";
+                stuckAwaitingAnswer.increment();
+            } else if (negotiation.firstIceAt == 0) {
+                phase = "awaiting-ice";
+                stuckAwaitingIce.increment();
+            } else {
+                return;
+            }
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("offerer", negotiation.offerer);
+        entry.put("answerer", negotiation.answerer);
+        entry.put("kind", negotiation.kind.name().toLowerCase(Locale.ROOT));
+        entry.put("phase", phase);
+        entry.put("ageMillis", TimeUnit.NANOSECONDS.toMillis(now - negotiation.offerAt));
+        entry.put("flaggedAt", System.currentTimeMillis());
+        synchronized (recentStuck) {
+            if (recentStuck.size() == RECENT_STUCK) {
+                recentStuck.removeFirst();
+            }
+            recentStuck.addLast(entry);
+        }
+        log.debug("Negotiation {} -> {} ({}) stuck {}", negotiation.offerer, negotiation.answerer, negotiation.kind,
+                phase);
+    }
+
+    // Re-arms for the remainder when the negotiation saw signaling since the timer was set
+    private void scheduleExpiry(Negotiation negotiation, long delayMs) {
+        expiry.schedule(() -> {
+            long idleNanos;
+            synchronized (negotiation) {
+                if (negotiation.closed) {
+                    return;
+                }
+                idleNanos = System.nanoTime() - negotiation.lastActivityAt;
+            }
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(idleNanos);
+            if (idleMs < idleTtlMs) {
+                scheduleExpiry(negotiation, idleTtlMs - idleMs);
+                return;
+            }
+            expired.increment();
+            close(negotiation);
+        }, delayMs);
+    }
+
+    private void close(Negotiation negotiation) {
+        synchronized (negotiation) {
+            if (negotiation.closed) {
+                return;
+            }
+            negotiation.closed = true;
+            if (negotiation.stuckCheck != null) {
+                negotiation.stuckCheck.cancel();
+            }
+            // ICE is complete, as far as the server can tell, once the negotiation ends
+            if (negotiation.lastIceAt != 0) {
+                offerToLastIce.record(negotiation.lastIceAt - negotiation.offerAt);
+            }
+        }
+        tracked.decrementAndGet();
+        unindex(negotiation.offerer, negotiation);
+        unindex(negotiation.answerer, negotiation);
+    }
+
+    // The offerer's list holds every negotiation it opened, so one list is enough
+    private Negotiation find(String offerer, String answerer, MediaKind kind) {
+        Negotiation[] open = bySession.get(offerer);
+        if (open != null) {
+            for (Negotiation negotiation : open) {
+                if (negotiation.kind == kind && negotiation.offerer.equals(offerer)
+                        && negotiation.answerer.equals(answerer)) {
+                    return negotiation;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void index(String sessionId, Negotiation negotiation) {
+        bySession.compute(sessionId, (id, open) -> {
+            if (open == null) {
+                return new Negotiation[]{negotiation};
+            }
+            Negotiation[] value = Arrays.copyOf(open, open.length + 1);
+            value[open.length] = negotiation;
+            return value;
+        });
+    }
+
+    private void unindex(String sessionId, Negotiation negotiation) {
+        bySession.computeIfPresent(sessionId, (id, open) -> {
+            int index = Arrays.asList(open).indexOf(negotiation);
+            if (index < 0) {
+                return open;
+            }
+            if (open.length == 1) {
+                return null;
+            }
+            Negotiation[] value = new Negotiation[open.length - 1];
+            System.arraycopy(open, 0, value, 0, index);
+            System.arraycopy(open, index + 1, value, index, value.length - index);
+            return value;
+        });
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.meetus.socketio;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured, asynchronous logging for per-event lines on the signaling paths.
+ *
+ * A handler hands over an event name and up to three key/value pairs. The
+ * calling thread only checks the event's rate limit and copies the references
+ * into a preallocated ring slot. It does no formatting and no I/O, and it
+ * allocates nothing as long as the values are objects the caller already has
+ * (ids, room names). Numbers go through the {@code long} overload, which
+ * stores them in the slot unboxed. A single {@code event-log} thread drains
+ * the ring in batches, renders each entry as
+ * {@code event=offer from=... to=...} and writes it to the
+ * {@code com.example.meetus.events} logger.
+ *
+ * Each event type has its own rate limit, written like the Socket.IO rate
+ * limits. Lines over the limit, or arriving while the ring is full, are
+ * counted instead. The counts are logged periodically as one
+ * {@code event=log-suppressed} summary line. Turning the events logger off
+ * makes every call a single level check.
+ */
+@Component
+public class EventLog {
+
+    private static final Logger events = LoggerFactory.getLogger("com.example.meetus.events");
+    private static final String OVERFLOW = "ring-full";
+    // Stands in for the third value when it was passed as a long and is held in the slot's number3
+    private static final Object NUMBER = new Object();
+
+    @Value("${meetus.event-log.rate:50/100}")
+    private String defaultRate;
+
+    // e.g. ice-candidate:5/20,chat-message:10/20
+    @Value("${meetus.event-log.events:}")
+    private String eventRates;
+
+    @Value("${meetus.event-log.queue-capacity:8192}")
+    private int queueCapacity;
+
+    @Value("${meetus.event-log.batch-size:256}")
+    private int batchSize;
+
+    @Value("${meetus.event-log.summary-interval-ms:10000}")
+    private long summaryIntervalMs;
+
+    private RateLimiter.Limit defaultLimit;
+    private final Map<String, RateLimiter.Limit> configuredLimits = new HashMap<>();
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> suppressed = new ConcurrentHashMap<>();
+
+    private Slot[] ring;
+    private int mask;
+    // Next sequence to claim (producers) and next to drain (the drainer only)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private Thread drainer;
+    private volatile boolean running;
+
+    private static final class Channel {
+        final AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+        final RateLimiter.Limit limit;
+        final LongAdder suppressed;
+
+        Channel(RateLimiter.Limit limit, LongAdder suppressed) {
+            this.limit = limit;
+            this.suppressed = suppressed;
+        }
+    }
+
+    private static final class Slot {
+        // Sequence of the entry held, published last; -1 while the slot is free
+        volatile long sequence = -1;
+        long timestamp;
+        String event;
+        String key1;
+        Object value1;
+        String key2;
+        Object value2;
+        String key3;
+        Object value3;
+        long number3;
+    }
+
+    @PostConstruct
+    public void start() {
+        defaultLimit = RateLimiter.Limit.parse(defaultRate);
+        for (String entry : eventRates.split(",")) {
+            if (!entry.isBlank()) {
+                int colon = entry.indexOf(':');
+                configuredLimits.put(entry.substring(0, colon).trim(), RateLimiter.Limit.parse(entry.substring(colon + 1)));
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, queueCapacity - 1)) << 1;
+        ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        mask = capacity - 1;
+        running = true;
+        drainer = new Thread(this::drainLoop, "event-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+            drainer.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    public void log(String event, String key, Object value) {
+        log(event, key, value, null, null, null, null);
+    }
+
+    public void log(String event, String key1, Object value1, String key2, Object value2) {
+        log(event, key1, value1, key2, value2, null, null);
+    }
+
+    public void log(String event, String key1, Object value1, String key2, Object value2,
+                    String key3, Object value3) {
+        enqueue(event, key1, value1, key2, value2, key3, value3, 0);
+    }
+
+    // For counts and sizes: boxing them would allocate for anything outside the small Long cache
+    public void log(String event, String key1, Object value1, String key2, Object value2,
+                    String key3, long value3) {
+        enqueue(event, key1, value1, key2, value2, key3, NUMBER, value3);
+    }
+
+    private void enqueue(String event, String key1, Object value1, String key2, Object value2,
+                         String key3, Object value3, long number3) {
+        if (!events.isInfoEnabled()) {
+            return;
+        }
+        Channel channel = channel(event);
+        if (!RateLimiter.tryAcquire(channel.bucket, channel.limit, System.nanoTime())) {
+            channel.suppressed.increment();
+            return;
+        }
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= ring.length) {
+                suppressed(OVERFLOW).increment();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = ring[(int) (sequence & mask)];
+        slot.timestamp = System.currentTimeMillis();
+        slot.event = event;
+        slot.key1 = key1;
+        slot.value1 = value1;
+        slot.key2 = key2;
+        slot.value2 = value2;
+        slot.key3 = key3;
+        slot.value3 = value3;
+        slot.number3 = number3;
+        slot.sequence = sequence;
+    }
+
+    private Channel channel(String event) {
+        Channel channel = channels.get(event);
+        if (channel == null) {
+            channel = channels.computeIfAbsent(event, name ->
+                    new Channel(configuredLimits.getOrDefault(name, defaultLimit), suppressed(name)));
+        }
+        return channel;
+    }
+
+    private LongAdder suppressed(String event) {
+        LongAdder counter = suppressed.get(event);
+        return counter != null ? counter : suppressed.computeIfAbsent(event, name -> new LongAdder());
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        long nextSummary = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(summaryIntervalMs);
+        while (true) {
+            int drained = drain(line);
+            if (System.nanoTime() - nextSummary >= 0) {
+                logSuppressed(line);
+                nextSummary = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(summaryIntervalMs);
+            }
+            if (drained == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        }
+        logSuppressed(line);
+    }
+
+    private int drain(StringBuilder line) {
+        long next = tail.get();
+        int drained = 0;
+        while (drained < batchSize) {
+            Slot slot = ring[(int) (next & mask)];
+            if (slot.sequence != next) {
+                break;
+            }
+            line.setLength(0);
+            line.append("event=").append(slot.event);
+            append(line, slot.key1, slot.value1);
+            append(line, slot.key2, slot.value2);
+            if (slot.value3 == NUMBER) {
+                line.append(' ').append(slot.key3).append('=').append(slot.number3);
+            } else {
+                append(line, slot.key3, slot.value3);
+            }
+            line.append(" ts=").append(slot.timestamp);
+            slot.event = null;
+            slot.value1 = slot.value2 = slot.value3 = null;
+            slot.sequence = -1;
+            tail.set(++next);
+            drained++;
+            events.info(line.toString());
+        }
+        return drained;
+    }
+
+    private void logSuppressed(StringBuilder line) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : suppressed.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+        line.setLength(0);
+        line.append("event=log-suppressed interval_ms=").append(summaryIntervalMs);
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        events.info(line.toString());
+    }
+
+    private static void append(StringBuilder line, String key, Object value) {
+        if (key == null) {
+            return;
+        }
+        line.append(' ').append(key).append('=');
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
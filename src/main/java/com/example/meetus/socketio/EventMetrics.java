@@ -0,0 +1,315 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.ConnectListener;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.listener.DisconnectListener;
+import com.example.meetus.model.Room;
+import com.example.meetus.service.RoomService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Per-event counters and histograms for the Socket.IO listeners.
+ *
+ * Inbound events are counted as they arrive, before rate limiting, and timed
+ * around the handler itself, after any dispatch queueing. Outbound relays are
+ * counted per outbound event, broadcasts together with their fan-out, and
+ * relays whose target session could not be found are counted as failed
+ * lookups. Every wrapper resolves its event's counters once, at registration,
+ * so recording is a few adder and array increments with no allocation.
+ *
+ * Counts are exact. Handler latency is sampled, one event in
+ * {@code latency-sample} picked at random: reading the clock twice costs about
+ * as much as the rest of the recording together, and a relay handler only
+ * takes a few hundred nanoseconds. The latency histograms' counts are therefore
+ * sample counts.
+ *
+ * Room and session gauges are computed when the metrics are read.
+ */
+@Component
+public class EventMetrics {
+
+    // Latencies above this are clamped into the top bucket
+    private static final long MAX_TRACKED_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_TRACKED_FAN_OUT = 1 << 16;
+
+    private final SocketIOServer server;
+    private final RoomService roomService;
+
+    @Value("${meetus.metrics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${meetus.metrics.latency-sample:16}")
+    private int latencySample;
+
+    private final Map<String, EventStats> events = new ConcurrentHashMap<>();
+
+    private static final class EventStats {
+        final LongAdder received = new LongAdder();
+        final LongAdder relayed = new LongAdder();
+        final LongAdder failedLookups = new LongAdder();
+        // Created on first use: most events are only inbound or only outbound
+        volatile Histogram latency;
+        volatile Histogram fanOut;
+
+        Histogram latency() {
+            Histogram histogram = latency;
+            if (histogram == null) {
+                synchronized (this) {
+                    if (latency == null) {
+                        latency = new Histogram(MAX_TRACKED_NANOS);
+                    }
+                    histogram = latency;
+                }
+            }
+            return histogram;
+        }
+
+        Histogram fanOut() {
+            Histogram histogram = fanOut;
+            if (histogram == null) {
+                synchronized (this) {
+                    if (fanOut == null) {
+                        fanOut = new Histogram(MAX_TRACKED_FAN_OUT);
+                    }
+                    histogram = fanOut;
+                }
+            }
+            return histogram;
+        }
+    }
+
+    @Autowired
+    public EventMetrics(SocketIOServer server, RoomService roomService) {
+        this.server = server;
+        this.roomService = roomService;
+    }
+
+    /**
+     * Counts every arrival of the event, including ones later rate limited.
+     */
+    public <T> DataListener<T> received(String event, DataListener<T> listener) {
+        if (!enabled) {
+            return listener;
+        }
+        EventStats stats = stats(event);
+        return (client, data, ackSender) -> {
+            stats.received.increment();
+            listener.onData(client, data, ackSender);
+        };
+    }
+
+    /**
+     * Records how long the handler itself takes, for a sample of its events.
+     */
+    public <T> DataListener<T> timed(String event, DataListener<T> listener) {
+        if (!enabled) {
+            return listener;
+        }
+        Histogram latency = stats(event).latency();
+        int sample = latencySample;
+        if (sample <= 1) {
+            return (client, data, ackSender) -> {
+                long start = System.nanoTime();
+                try {
+                    listener.onData(client, data, ackSender);
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                }
+            };
+        }
+        return (client, data, ackSender) -> {
+            if (ThreadLocalRandom.current().nextInt(sample) != 0) {
+                listener.onData(client, data, ackSender);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                listener.onData(client, data, ackSender);
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Counts and times a connect listener; connects are not data events, so
+     * this wrapper counts them as received too. Connects are rare enough to
+     * time every one.
+     */
+    public ConnectListener timedConnect(String event, ConnectListener listener) {
+        if (!enabled) {
+            return listener;
+        }
+        EventStats stats = stats(event);
+        Histogram latency = stats.latency();
+        return client -> {
+            stats.received.increment();
+            long start = System.nanoTime();
+            try {
+                listener.onConnect(client);
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Counts and times a disconnect listener, like {@link #timedConnect}.
+     */
+    public DisconnectListener timedDisconnect(String event, DisconnectListener listener) {
+        if (!enabled) {
+            return listener;
+        }
+        EventStats stats = stats(event);
+        Histogram latency = stats.latency();
+        return client -> {
+            stats.received.increment();
+            long start = System.nanoTime();
+            try {
+                listener.onDisconnect(client);
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Records one relay to a single session.
+     */
+    public void relayed(String event) {
+        if (enabled) {
+            stats(event).relayed.increment();
+        }
+    }
+
+    /**
+     * Records one room broadcast and how many recipients it reached.
+     */
+    public void broadcast(String event, int recipients) {
+        if (enabled) {
+            EventStats stats = stats(event);
+            stats.relayed.increment();
+            stats.fanOut().record(recipients);
+        }
+    }
+
+    public void lookupFailed(String event) {
+        if (enabled) {
+            stats(event).failedLookups.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> byEvent = new TreeMap<>();
+        for (Map.Entry<String, EventStats> entry : events.entrySet()) {
+            EventStats stats = entry.getValue();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("received", stats.received.sum());
+            values.put("relayed", stats.relayed.sum());
+            values.put("failedLookups", stats.failedLookups.sum());
+            if (stats.latency != null) {
+                values.put("latencyMicros", stats.latency.snapshot(1_000.0));
+            }
+            if (stats.fanOut != null) {
+                values.put("fanOut", stats.fanOut.snapshot(1.0));
+            }
+            byEvent.put(entry.getKey(), values);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("connectedSessions", server.getAllClients().size());
+        stats.put("seatedSessions", roomService.getSessionCount());
+        stats.put("activeRooms", roomService.getRoomCount());
+        stats.put("roomsByUserCount", roomsByUserCount());
+        stats.put("events", byEvent);
+        return stats;
+    }
+
+    /**
+     * The same values in the Prometheus text exposition format. Latencies are
+     * exported as summaries in seconds; their {@code _count} counts sampled
+     * events, the received counters count all of them.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        gauge(out, "meetus_connected_sessions", server.getAllClients().size());
+        gauge(out, "meetus_seated_sessions", roomService.getSessionCount());
+        gauge(out, "meetus_active_rooms", roomService.getRoomCount());
+
+        out.append("# TYPE meetus_rooms_by_user_count gauge\n");
+        for (Map.Entry<Integer, Integer> entry : roomsByUserCount().entrySet()) {
+            out.append("meetus_rooms_by_user_count{users=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+
+        Map<String, EventStats> sorted = new TreeMap<>(events);
+        counter(out, sorted, "meetus_events_received_total", stats -> stats.received.sum());
+        counter(out, sorted, "meetus_events_relayed_total", stats -> stats.relayed.sum());
+        counter(out, sorted, "meetus_relay_failed_lookups_total", stats -> stats.failedLookups.sum());
+
+        out.append("# TYPE meetus_event_latency_seconds summary\n");
+        for (Map.Entry<String, EventStats> entry : sorted.entrySet()) {
+            if (entry.getValue().latency != null) {
+                summary(out, "meetus_event_latency_seconds", entry.getKey(),
+                        entry.getValue().latency.snapshot(1_000_000_000.0));
+            }
+        }
+        out.append("# TYPE meetus_relay_fan_out summary\n");
+        for (Map.Entry<String, EventStats> entry : sorted.entrySet()) {
+            if (entry.getValue().fanOut != null) {
+                summary(out, "meetus_relay_fan_out", entry.getKey(), entry.getValue().fanOut.snapshot(1.0));
+            }
+        }
+        return out.toString();
+    }
+
+    private EventStats stats(String event) {
+        EventStats stats = events.get(event);
+        return stats != null ? stats : events.computeIfAbsent(event, name -> new EventStats());
+    }
+
+    private Map<Integer, Integer> roomsByUserCount() {
+        Map<Integer, Integer> rooms = new TreeMap<>();
+        for (Room room : roomService.getAllRooms()) {
+            rooms.merge(room.getUserCount(), 1, Integer::sum);
+        }
+        return rooms;
+    }
+
+    private static void gauge(StringBuilder out, String name, long value) {
+        out.append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, Map<String, EventStats> events, String name,
+                                ToLongFunction<EventStats> value) {
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Map.Entry<String, EventStats> entry : events.entrySet()) {
+            out.append(name).append("{event=\"").append(entry.getKey()).append("\"} ")
+                    .append(value.applyAsLong(entry.getValue())).append('\n');
+        }
+    }
+
+    private static void summary(StringBuilder out, String name, String event, Map<String, Object> snapshot) {
+        String[][] quantiles = {{"0.5", "p50"}, {"0.9", "p90"}, {"0.99", "p99"}, {"0.999", "p999"}};
+        for (String[] quantile : quantiles) {
+            out.append(name).append("{event=\"").append(event).append("\",quantile=\"").append(quantile[0])
+                    .append("\"} ").append(snapshot.get(quantile[1])).append('\n');
+        }
+        long count = (Long) snapshot.get("count");
+        out.append(name).append("_count{event=\"").append(event).append("\"} ").append(count).append('\n');
+        out.append(name).append("_sum{event=\"").append(event).append("\"} ")
+                .append((Double) snapshot.get("mean") * count).append('\n');
+    }
+}
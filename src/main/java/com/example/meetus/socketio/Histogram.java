@@ -0,0 +1,98 @@
+package com.example.meetus.socketio;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size log-linear histogram in the style of HdrHistogram. Values below
+ * 32 get a bucket each; above that every power of two is split into 32 equal
+ * sub-buckets, so any recorded value is reported within about 3% of itself.
+ * Values above the configured maximum land in the last bucket.
+ *
+ * Recording is one atomic increment and one adder, and allocates nothing.
+ * Percentiles are computed when a snapshot is taken.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(long highestTrackableValue) {
+        this.counts = new AtomicLongArray(indexOf(Math.max(highestTrackableValue, SUB_BUCKETS)) + 1);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(Math.min(indexOf(value), counts.length() - 1));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Count, mean, max and the usual percentiles, each value divided by
+     * {@code scale} (e.g. 1000 to report nanoseconds as microseconds).
+     */
+    public Map<String, Object> snapshot(double scale) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total);
+        stats.put("mean", total == 0 ? 0.0 : sum.sum() / (double) total / scale);
+        stats.put("p50", valueAt(snapshot, total, 50.0) / scale);
+        stats.put("p90", valueAt(snapshot, total, 90.0) / scale);
+        stats.put("p99", valueAt(snapshot, total, 99.0) / scale);
+        stats.put("p999", valueAt(snapshot, total, 99.9) / scale);
+        stats.put("max", max.get() / scale);
+        return stats;
+    }
+
+    private static long valueAt(long[] snapshot, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(snapshot.length - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (1L << exponent) | (index % SUB_BUCKETS) * width;
+        return lowest + width - 1;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.meetus.socketio;
+
+import com.example.meetus.cluster.ClusterRelay;
+import com.example.meetus.model.OutboundEvents.IceCandidates;
+import com.example.meetus.socketio.CallSetupTracker.MediaKind;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Optional coalescing of trickle ICE candidates. Candidates from the same sender
+ * to the same target are collected for a short window and relayed as a single
+ * array event ("ice-candidates" / "video-ice-candidates"). Duplicates inside a
+ * window are dropped, and a batch is flushed early once it reaches the size cap.
+ */
+@Slf4j
+@Component
+public class IceCandidateBatcher {
+
+    private final ClusterRelay clusterRelay;
+    private final CallSetupTracker callSetupTracker;
+
+    @Value("${meetus.signaling.ice-batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.signaling.ice-batch.window-ms:25}")
+    private long windowMs;
+
+    @Value("${meetus.signaling.ice-batch.max-size:16}")
+    private int maxBatchSize;
+
+    private final Map<BatchKey, Batch> pending = new ConcurrentHashMap<>();
+    private final Function<BatchKey, Batch> newBatch = this::newBatch;
+    // Only started when batching is enabled
+    private ScheduledExecutorService flusher;
+
+    private record BatchKey(String event, String from, String to) {
+    }
+
+    // Guarded by its own monitor; a batch that has been sent takes no more candidates
+    private static class Batch {
+        final Set<Object> candidates = new LinkedHashSet<>();
+        ScheduledFuture<?> flushTask;
+        boolean sent;
+    }
+
+    @Autowired
+    public IceCandidateBatcher(ClusterRelay clusterRelay, CallSetupTracker callSetupTracker) {
+        this.clusterRelay = clusterRelay;
+        this.callSetupTracker = callSetupTracker;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ice-batch-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a candidate for relay to the target. The batch is sent under the
+     * given batched event name with a {@code from} and a {@code candidates} array.
+     */
+    public void add(String event, String from, String to, Object candidate) {
+        BatchKey key = new BatchKey(event, from, to);
+        while (true) {
+            Batch batch = pending.computeIfAbsent(key, newBatch);
+            boolean full;
+            synchronized (batch) {
+                if (batch.sent) {
+                    // Flushed between the lookup and the lock; start the next batch
+                    continue;
+                }
+                batch.candidates.add(candidate);
+                full = batch.candidates.size() >= maxBatchSize;
+                batch.sent = full;
+            }
+            if (full) {
+                pending.remove(key, batch);
+                batch.flushTask.cancel(false);
+                send(key, batch);
+            }
+            return;
+        }
+    }
+
+    private Batch newBatch(BatchKey key) {
+        Batch batch = new Batch();
+        batch.flushTask = flusher.schedule(() -> flush(key, batch), windowMs, TimeUnit.MILLISECONDS);
+        return batch;
+    }
+
+    private void flush(BatchKey key, Batch batch) {
+        synchronized (batch) {
+            if (batch.sent) {
+                return;
+            }
+            batch.sent = true;
+        }
+        pending.remove(key, batch);
+        send(key, batch);
+    }
+
+    private void send(BatchKey key, Batch batch) {
+        log.debug("Relaying {} ICE candidates from {} to {}", batch.candidates.size(), key.from(), key.to());
+
+        // Call setup only sees candidates that actually reached their target
+        if (clusterRelay.sendToSession(key.to(), key.event(),
+                new IceCandidates(key.from(), new ArrayList<>(batch.candidates)))) {
+            callSetupTracker.iceRelayed(key.from(), key.to(),
+                    key.event().startsWith("video-") ? MediaKind.VIDEO : MediaKind.CALL);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.meetus.model.RawJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-session outbound accounting in front of {@code sendEvent}.
+ *
+ * While a session has nothing queued and its channel is writable, frames are
+ * written straight through. Once Netty reports the channel unwritable, frames
+ * queue per session and a drainer writes them out as the channel recovers.
+ * A session whose queue reaches the high watermark is congested until it drains
+ * to the low watermark. While congested, the slow-consumer policy applies:
+ * <ul>
+ *   <li>{@code coalesce}: a new state frame (room list, room snapshot) replaces the queued one</li>
+ *   <li>{@code drop-oldest-chat}: as coalesce, and each new frame evicts the oldest queued chat frame</li>
+ *   <li>{@code disconnect}: the session is disconnected</li>
+ * </ul>
+ * Signaling frames are never dropped or coalesced. A session whose queue still
+ * reaches the hard limit is disconnected, with a warning.
+ *
+ * Signaling has its own lane per session: a signaling frame is written at once
+ * unless older signaling is still queued, overtaking any queued bulk frames,
+ * and the drainer always empties the signaling lane first. With
+ * {@code meetus.priority.defer-bulk} enabled, bulk frames are always queued and
+ * written in batches on the drain tick.
+ */
+@Slf4j
+@Component
+public class OutboundQueues {
+
+    private static final Set<String> SIGNALING_EVENTS = Set.of(
+            "offer", "answer", "ice-candidate", "ice-candidates",
+            "video-offer", "video-answer", "video-ice-candidate", "video-ice-candidates");
+    private static final Set<String> CHAT_EVENTS = Set.of("chat-message");
+    // Each frame carries the full state, so only the newest one matters
+    private static final Set<String> STATE_EVENTS = Set.of("room-list", "room-snapshot");
+
+    public enum Policy {
+        COALESCE, DROP_OLDEST_CHAT, DISCONNECT
+    }
+
+    private enum Kind {
+        SIGNALING, CHAT, STATE, CONTROL
+    }
+
+    private record Frame(String event, Object payload, Kind kind) {
+    }
+
+    private final SocketIOServer server;
+
+    @Value("${meetus.outbound.policy:drop-oldest-chat}")
+    private String policyName;
+
+    @Value("${meetus.outbound.high-watermark:256}")
+    private int highWatermark;
+
+    @Value("${meetus.outbound.low-watermark:64}")
+    private int lowWatermark;
+
+    @Value("${meetus.outbound.max-queued:1024}")
+    private int maxQueued;
+
+    @Value("${meetus.outbound.drain-interval-ms:10}")
+    private long drainIntervalMs;
+
+    @Value("${meetus.priority.defer-bulk:false}")
+    private boolean deferBulk;
+
+    private Policy policy;
+    private final Map<UUID, SessionQueue> queues = new ConcurrentHashMap<>();
+    private ScheduledExecutorService drainer;
+
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong coalescedFrames = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+
+    private static class SessionQueue {
+        final SocketIOClient client;
+        // Guards the fields below; a lock rather than a monitor so virtual threads never pin on it
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<Frame> signaling = new ArrayDeque<>();
+        final ArrayDeque<Frame> frames = new ArrayDeque<>();
+        boolean congested;
+        boolean closed;
+
+        SessionQueue(SocketIOClient client) {
+            this.client = client;
+        }
+
+        int depth() {
+            return signaling.size() + frames.size();
+        }
+
+        void clear() {
+            signaling.clear();
+            frames.clear();
+        }
+    }
+
+    @Autowired
+    public OutboundQueues(SocketIOServer server) {
+        this.server = server;
+    }
+
+    @PostConstruct
+    public void start() {
+        policy = Policy.valueOf(policyName.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbound-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(() -> {
+            try {
+                drainAll();
+            } catch (Exception e) {
+                log.error("Outbound drain failed: ", e);
+            }
+        }, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (drainer != null) {
+            drainer.shutdownNow();
+        }
+    }
+
+    public void send(SocketIOClient client, String event, Object payload) {
+        UUID sessionId = client.getSessionId();
+        Kind kind = kindOf(event);
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            if (client.isWritable() && (kind == Kind.SIGNALING || !deferBulk)) {
+                client.sendEvent(event, payload);
+                return;
+            }
+            queue = queues.computeIfAbsent(sessionId, id -> new SessionQueue(client));
+        }
+
+        Frame frame = new Frame(event, payload, kind);
+        while (!offer(queue, frame)) {
+            // Lost a race with the drainer retiring an empty queue
+            queue = queues.computeIfAbsent(sessionId, id -> new SessionQueue(client));
+        }
+    }
+
+    /**
+     * Sends to every local member of a socket room, optionally skipping one
+     * client. Returns the number of recipients. With more than one recipient
+     * the payload is serialized once up front and every recipient gets the
+     * same encoded frame.
+     */
+    public int sendToRoom(String roomId, String event, Object payload, SocketIOClient excludedClient) {
+        Collection<SocketIOClient> clients = server.getRoomOperations(roomId).getClients();
+        Object frame = payload;
+        if (recipientCount(clients, excludedClient) > 1) {
+            try {
+                frame = RawJson.encode(payload);
+            } catch (JsonProcessingException e) {
+                log.error("Could not pre-encode {} for room {}, encoding per recipient: ", event, roomId, e);
+            }
+        }
+        int recipients = 0;
+        for (SocketIOClient client : clients) {
+            if (excludedClient == null || !client.getSessionId().equals(excludedClient.getSessionId())) {
+                send(client, event, frame);
+                recipients++;
+            }
+        }
+        return recipients;
+    }
+
+    // Counted rather than derived from the room's size: the excluded client is not always still in
+    // the room, e.g. when it has just disconnected
+    private static int recipientCount(Collection<SocketIOClient> clients, SocketIOClient excludedClient) {
+        int count = 0;
+        for (SocketIOClient client : clients) {
+            if (excludedClient == null || !client.getSessionId().equals(excludedClient.getSessionId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void sessionClosed(SocketIOClient client) {
+        SessionQueue queue = queues.remove(client.getSessionId());
+        if (queue != null) {
+            queue.lock.lock();
+            try {
+                queue.closed = true;
+                queuedFrames.addAndGet(-queue.depth());
+                queue.clear();
+            } finally {
+                queue.lock.unlock();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int congested = 0;
+        int maxDepth = 0;
+        for (SessionQueue queue : queues.values()) {
+            queue.lock.lock();
+            try {
+                if (queue.congested) {
+                    congested++;
+                }
+                maxDepth = Math.max(maxDepth, queue.depth());
+            } finally {
+                queue.lock.unlock();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("policy", policy);
+        stats.put("queuedSessions", queues.size());
+        stats.put("congestedSessions", congested);
+        stats.put("queuedFrames", queuedFrames.get());
+        stats.put("maxQueueDepth", maxDepth);
+        stats.put("droppedFrames", droppedFrames.get());
+        stats.put("coalescedFrames", coalescedFrames.get());
+        stats.put("slowConsumerDisconnects", slowConsumerDisconnects.get());
+        return stats;
+    }
+
+    // Returns false when the queue was already retired and the caller must fetch a fresh one
+    private boolean offer(SessionQueue queue, Frame frame) {
+        queue.lock.lock();
+        try {
+            if (queue.closed) {
+                return false;
+            }
+            boolean signaling = frame.kind() == Kind.SIGNALING;
+            if (queue.signaling.isEmpty() && queue.client.isWritable()
+                    && (signaling || (queue.frames.isEmpty() && !deferBulk))) {
+                queue.client.sendEvent(frame.event(), frame.payload());
+                return true;
+            }
+
+            int depth = queue.depth();
+            if (depth >= maxQueued) {
+                disconnect(queue, "outbound queue reached " + maxQueued + " frames");
+                return true;
+            }
+            if (depth >= highWatermark) {
+                queue.congested = true;
+            }
+            if (queue.congested) {
+                if (policy == Policy.DISCONNECT) {
+                    disconnect(queue, "outbound queue above high watermark " + highWatermark);
+                    return true;
+                }
+                if (frame.kind() == Kind.STATE && removeFirst(queue, frame.event(), null)) {
+                    coalescedFrames.incrementAndGet();
+                }
+                if (policy == Policy.DROP_OLDEST_CHAT && !signaling && removeFirst(queue, null, Kind.CHAT)) {
+                    droppedFrames.incrementAndGet();
+                }
+            }
+
+            (signaling ? queue.signaling : queue.frames).addLast(frame);
+            queuedFrames.incrementAndGet();
+            return true;
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    // Removes the oldest queued bulk frame with the given event name or kind
+    private boolean removeFirst(SessionQueue queue, String event, Kind kind) {
+        for (Iterator<Frame> it = queue.frames.iterator(); it.hasNext(); ) {
+            Frame queued = it.next();
+            if ((event != null && event.equals(queued.event())) || (kind != null && kind == queued.kind())) {
+                it.remove();
+                queuedFrames.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void disconnect(SessionQueue queue, String reason) {
+        log.warn("Disconnecting slow consumer {}: {} ({} frames discarded)",
+                queue.client.getSessionId(), reason, queue.depth());
+        slowConsumerDisconnects.incrementAndGet();
+        droppedFrames.addAndGet(queue.depth());
+        queuedFrames.addAndGet(-queue.depth());
+        queue.clear();
+        queue.closed = true;
+        queues.remove(queue.client.getSessionId(), queue);
+        queue.client.disconnect();
+    }
+
+    void drainAll() {
+        for (SessionQueue queue : queues.values()) {
+            queue.lock.lock();
+            try {
+                if (queue.closed) {
+                    continue;
+                }
+                while (queue.depth() > 0 && queue.client.isWritable()) {
+                    Frame frame = queue.signaling.isEmpty() ? queue.frames.pollFirst() : queue.signaling.pollFirst();
+                    queuedFrames.decrementAndGet();
+                    queue.client.sendEvent(frame.event(), frame.payload());
+                }
+                if (queue.depth() <= lowWatermark) {
+                    queue.congested = false;
+                }
+                if (queue.depth() == 0) {
+                    queue.closed = true;
+                    queues.remove(queue.client.getSessionId(), queue);
+                }
+            } finally {
+                queue.lock.unlock();
+            }
+        }
+    }
+
+    private static Kind kindOf(String event) {
+        if (SIGNALING_EVENTS.contains(event)) {
+            return Kind.SIGNALING;
+        }
+        if (CHAT_EVENTS.contains(event)) {
+            return Kind.CHAT;
+        }
+        if (STATE_EVENTS.contains(event)) {
+            return Kind.STATE;
+        }
+        return Kind.CONTROL;
+    }
+}
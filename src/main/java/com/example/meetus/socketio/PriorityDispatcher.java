@@ -0,0 +1,323 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.listener.DisconnectListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+/**
+ * Two inbound priority classes for Socket.IO listeners.
+ *
+ * Signaling listeners (offer, answer, ICE) run inline on the I/O thread as soon
+ * as the packet is decoded. Everything else (room management, chat, lobby
+ * queries, file transfer, disconnects) is bulk work. Bulk work is handed to a
+ * small set of lane threads, so a chat burst never sits in front of call setup
+ * on the event loop. Each session always maps to the same lane, which keeps its
+ * bulk events, including its disconnect, in arrival order.
+ *
+ * With {@code meetus.dispatch.virtual-threads}, no listener runs on the I/O
+ * thread. Each session instead gets a serial executor backed by virtual
+ * threads, which runs that session's events one at a time in arrival order.
+ * Blocking in a handler then parks only a virtual thread: the room, outbound
+ * queue and journal locks are ReentrantLocks rather than monitors for this
+ * reason. The monitors left elsewhere guard short sections that never block,
+ * though a contended one still pins its carrier for that long. Events that
+ * arrive after a session's disconnect has run are dropped rather than given a
+ * new executor. When priority is also
+ * enabled, queued signaling events of a session run before its queued bulk
+ * events.
+ *
+ * Neither priority nor room actors (which run joins on a room shard while
+ * signaling stays inline) let signaling overtake a join: from the moment a
+ * session's join-room arrives until its listener has run, signaling from that
+ * session is held and then run right after the join, so an offer sent behind a
+ * join finds its sender seated.
+ *
+ * With all of them disabled, listeners are registered unchanged.
+ */
+@Slf4j
+@Component
+public class PriorityDispatcher {
+
+    // Tasks a session executor runs before handing its carrier thread back
+    private static final int MAX_TASKS_PER_TURN = 64;
+
+    // How long a disconnected session is remembered, so its late events are dropped
+    private static final long RETIRED_SECONDS = 60;
+
+    @Value("${meetus.priority.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.priority.bulk-lanes:4}")
+    private int bulkLaneCount;
+
+    @Value("${meetus.dispatch.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    // Room actors dispatch joins away from where signaling runs, so joins must hold signaling then too
+    @Value("${meetus.rooms.actors.enabled:false}")
+    private boolean roomActors;
+
+    private ExecutorService[] bulkLanes;
+    private ExecutorService virtualExecutor;
+    private final Map<UUID, SessionExecutor> sessionExecutors = new ConcurrentHashMap<>();
+    private final Map<UUID, Boolean> retiredSessions = new ConcurrentHashMap<>();
+    private final Map<UUID, PendingJoin> pendingJoins = new ConcurrentHashMap<>();
+
+    // Joins of a session not yet finished, and the signaling held until they are; only touched in compute
+    private static final class PendingJoin {
+        int count;
+        final List<Runnable> held = new ArrayList<>();
+    }
+
+    /**
+     * Runs one session's tasks serially. At most one turn is scheduled at a
+     * time, and urgent tasks are taken before normal ones.
+     */
+    private final class SessionExecutor implements Runnable {
+        final Queue<Runnable> urgent = new ConcurrentLinkedQueue<>();
+        final Queue<Runnable> normal = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void execute(Runnable task, boolean isUrgent) {
+            (isUrgent ? urgent : normal).add(task);
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                virtualExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_TASKS_PER_TURN; i++) {
+                Runnable task = urgent.poll();
+                if (task == null) {
+                    task = normal.poll();
+                }
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+            scheduled.set(false);
+            if (!urgent.isEmpty() || !normal.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (virtualThreads) {
+            virtualExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("handler-", 0).factory());
+            log.info("Dispatching Socket.IO handlers on virtual threads, serial per session");
+            return;
+        }
+        if (!enabled) {
+            return;
+        }
+        bulkLanes = new ExecutorService[bulkLaneCount];
+        for (int i = 0; i < bulkLaneCount; i++) {
+            String name = "bulk-lane-" + i;
+            bulkLanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.info("Priority dispatch enabled with {} bulk lanes", bulkLaneCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (bulkLanes != null) {
+            for (ExecutorService lane : bulkLanes) {
+                lane.shutdown();
+            }
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+    }
+
+    public <T> DataListener<T> signaling(DataListener<T> listener) {
+        if (!enabled && !virtualThreads && !roomActors) {
+            return listener;
+        }
+        return (client, data, ackSender) -> {
+            Runnable task = () -> runData(listener, client, data, ackSender);
+            if (hold(client.getSessionId(), task)) {
+                return;
+            }
+            if (virtualThreads) {
+                execute(client, task, enabled);
+            } else {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Dispatches a join with {@code dispatch} and holds the session's signaling
+     * from the moment the join arrives until its listener has run.
+     */
+    public <T> DataListener<T> joining(DataListener<T> listener, UnaryOperator<DataListener<T>> dispatch) {
+        if (!enabled && !roomActors) {
+            return dispatch.apply(listener);
+        }
+        return (client, data, ackSender) -> {
+            UUID sessionId = client.getSessionId();
+            pendingJoins.compute(sessionId, (id, pending) -> {
+                PendingJoin join = pending != null ? pending : new PendingJoin();
+                join.count++;
+                return join;
+            });
+            AtomicBoolean finished = new AtomicBoolean();
+            try {
+                dispatch.apply(finishing(listener, finished)).onData(client, data, ackSender);
+            } catch (Exception e) {
+                // Dispatch refused the join, so nothing else will release what it holds
+                if (finished.compareAndSet(false, true)) {
+                    joined(sessionId);
+                }
+                throw e;
+            }
+        };
+    }
+
+    public <T> DataListener<T> bulk(DataListener<T> listener) {
+        if (virtualThreads) {
+            return (client, data, ackSender) -> execute(client, () -> runData(listener, client, data, ackSender), false);
+        }
+        if (!enabled) {
+            return listener;
+        }
+        return (client, data, ackSender) -> laneOf(client).execute(() -> runData(listener, client, data, ackSender));
+    }
+
+    public DisconnectListener bulk(DisconnectListener listener) {
+        if (virtualThreads) {
+            // Runs after everything the session already queued, then retires its executor
+            DisconnectListener retiring = retiring(listener);
+            return client -> execute(client, () -> runDisconnect(retiring, client), false);
+        }
+        if (!enabled) {
+            return listener;
+        }
+        DisconnectListener retiring = retiring(listener);
+        return client -> laneOf(client).execute(() -> runDisconnect(retiring, client));
+    }
+
+    /**
+     * Retires the session's executor and any join it still holds signaling for
+     * once the disconnect listener has run, for a disconnect dispatched
+     * somewhere other than {@link #bulk}, e.g. on a room shard. Every disconnect
+     * path has to go through this, or the executor of a session that sent
+     * signaling stays in the map for good.
+     */
+    public DisconnectListener retiring(DisconnectListener listener) {
+        if (!enabled && !virtualThreads && !roomActors) {
+            return listener;
+        }
+        return client -> {
+            try {
+                listener.onDisconnect(client);
+            } finally {
+                retire(client.getSessionId());
+            }
+        };
+    }
+
+    private <T> DataListener<T> finishing(DataListener<T> listener, AtomicBoolean finished) {
+        return (client, data, ackSender) -> {
+            try {
+                listener.onData(client, data, ackSender);
+            } finally {
+                if (finished.compareAndSet(false, true)) {
+                    joined(client.getSessionId());
+                }
+            }
+        };
+    }
+
+    // Queues the task behind the session's pending join, if it has one
+    private boolean hold(UUID sessionId, Runnable task) {
+        if (pendingJoins.isEmpty()) {
+            return false;
+        }
+        return pendingJoins.computeIfPresent(sessionId, (id, pending) -> {
+            pending.held.add(task);
+            return pending;
+        }) != null;
+    }
+
+    // Runs the held signaling, in arrival order, once no join of the session is pending
+    private void joined(UUID sessionId) {
+        List<Runnable> released = new ArrayList<>();
+        pendingJoins.computeIfPresent(sessionId, (id, pending) -> {
+            if (--pending.count > 0) {
+                return pending;
+            }
+            released.addAll(pending.held);
+            return null;
+        });
+        released.forEach(Runnable::run);
+    }
+
+    private void execute(SocketIOClient client, Runnable task, boolean isUrgent) {
+        // Checked inside compute, so a late event cannot slip in between retiring and removing
+        SessionExecutor executor = sessionExecutors.compute(client.getSessionId(), (id, existing) ->
+                existing != null || retiredSessions.containsKey(id) ? existing : new SessionExecutor());
+        if (executor != null) {
+            executor.execute(task, isUrgent);
+        }
+    }
+
+    private void retire(UUID sessionId) {
+        retiredSessions.put(sessionId, Boolean.TRUE);
+        sessionExecutors.remove(sessionId);
+        // A join still pending now was dropped after the disconnect and will never release its hold
+        pendingJoins.remove(sessionId);
+        CompletableFuture.delayedExecutor(RETIRED_SECONDS, TimeUnit.SECONDS)
+                .execute(() -> retiredSessions.remove(sessionId));
+    }
+
+
+    private ExecutorService laneOf(SocketIOClient client) {
+        return bulkLanes[Math.floorMod(client.getSessionId().hashCode(), bulkLanes.length)];
+    }
+
+    private static <T> void runData(DataListener<T> listener, SocketIOClient client, T data,
+                                    AckRequest ackSender) {
+        try {
+            listener.onData(client, data, ackSender);
+        } catch (Exception e) {
+            log.error("Listener failed for {}: ", client.getSessionId(), e);
+        }
+    }
+
+    private static void runDisconnect(DisconnectListener listener, SocketIOClient client) {
+        try {
+            listener.onDisconnect(client);
+        } catch (Exception e) {
+            log.error("Disconnect listener failed for {}: ", client.getSessionId(), e);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.example.meetus.model.OutboundEvents.RateLimited;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket rate limits in front of Socket.IO listeners. Each event is
+ * checked against three budgets in turn: its own bucket for the sending
+ * session, the sender's IP budget, and the node-wide budget. Events over any
+ * budget are dropped and counted, and the sender is told: an event sent with
+ * an ack gets a {@code rate-limited} ack, join-room and delete-room get their
+ * usual error event, and anything else gets one {@code rate-limited} event per
+ * run of throttled events, carrying the time until the next one is accepted.
+ *
+ * Every bucket is a single long holding its theoretical arrival time (the
+ * generic cell rate algorithm). An event is allowed when that time is no more
+ * than the burst tolerance ahead of now, and the bucket then advances by one
+ * emission interval. Updates are a CAS loop, so the check takes no lock and
+ * allocates nothing. Per-session buckets are created on connect. Each session
+ * keeps a reference to its IP budget, so the hot path does one map lookup.
+ *
+ * Limits are written as {@code <events per second>/<burst>}.
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    @Value("${meetus.rate-limit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.rate-limit.default:30/60}")
+    private String defaultLimit;
+
+    // e.g. chat-message:10/20,get-rooms:2/5
+    @Value("${meetus.rate-limit.events:}")
+    private String eventLimits;
+
+    @Value("${meetus.rate-limit.per-ip:500/1000}")
+    private String perIpLimit;
+
+    @Value("${meetus.rate-limit.global:20000/40000}")
+    private String globalLimit;
+
+    // Events whose clients wait for a reply: a throttled request is answered on the error event
+    private static final Map<String, String> ERROR_EVENTS = Map.of(
+            "join-room", "join-error",
+            "delete-room", "delete-error");
+
+    private final OutboundQueues outboundQueues;
+
+    private Limit defaultEventLimit;
+    private final Map<String, Limit> configuredLimits = new HashMap<>();
+    private Limit ipLimit;
+    private Limit nodeLimit;
+
+    // Registered events, indexed by the slot they use in each session's buckets
+    private final List<String> events = new ArrayList<>();
+    private final List<Limit> limits = new ArrayList<>();
+    private final List<LongAdder> throttled = new ArrayList<>();
+    private final LongAdder throttledByIp = new LongAdder();
+    private final LongAdder throttledGlobally = new LongAdder();
+
+    private final Map<UUID, SessionBuckets> sessions = new ConcurrentHashMap<>();
+    private final Map<String, IpBudget> ipBudgets = new ConcurrentHashMap<>();
+    private final AtomicLong globalBucket = new AtomicLong(Long.MIN_VALUE);
+
+    record Limit(long intervalNanos, long toleranceNanos) {
+
+        static Limit parse(String spec) {
+            String[] parts = spec.trim().split("/");
+            double perSecond = Double.parseDouble(parts[0]);
+            long burst = parts.length > 1 ? Long.parseLong(parts[1].trim()) : 1;
+            // A rate of zero or less would make the interval infinite or negative and let everything through
+            if (!(perSecond > 0) || Double.isInfinite(perSecond) || burst < 1) {
+                throw new IllegalArgumentException("Invalid rate limit '" + spec
+                        + "', expected <events per second above 0>/<burst of at least 1>");
+            }
+            long interval = Math.max(1, (long) (1_000_000_000L / perSecond));
+            return new Limit(interval, interval * (burst - 1));
+        }
+    }
+
+    private static class SessionBuckets {
+        final AtomicLongArray buckets;
+        // Per event, until when the session has already been told it is throttled
+        final AtomicLongArray notifiedUntil;
+        final IpBudget ip;
+
+        SessionBuckets(int size, IpBudget ip) {
+            this.buckets = new AtomicLongArray(size);
+            this.notifiedUntil = new AtomicLongArray(size);
+            long now = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                buckets.set(i, Long.MIN_VALUE);
+                notifiedUntil.set(i, now);
+            }
+            this.ip = ip;
+        }
+    }
+
+    private static class IpBudget {
+        final AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+        // Changed only inside ipBudgets.compute
+        int sessions;
+    }
+
+    @Autowired
+    public RateLimiter(OutboundQueues outboundQueues) {
+        this.outboundQueues = outboundQueues;
+    }
+
+    @PostConstruct
+    public void start() {
+        defaultEventLimit = Limit.parse(defaultLimit);
+        for (String entry : eventLimits.split(",")) {
+            if (!entry.isBlank()) {
+                int colon = entry.indexOf(':');
+                configuredLimits.put(entry.substring(0, colon).trim(), Limit.parse(entry.substring(colon + 1)));
+            }
+        }
+        ipLimit = Limit.parse(perIpLimit);
+        nodeLimit = Limit.parse(globalLimit);
+    }
+
+    /**
+     * Wraps a listener so events over budget never reach it; the sender is
+     * told instead. Must be called before the server starts accepting
+     * connections.
+     */
+    public <T> DataListener<T> limit(String event, DataListener<T> listener) {
+        if (!enabled) {
+            return listener;
+        }
+        int slot = events.size();
+        events.add(event);
+        limits.add(configuredLimits.getOrDefault(event, defaultEventLimit));
+        throttled.add(new LongAdder());
+        String errorEvent = ERROR_EVENTS.get(event);
+        return (client, data, ackSender) -> {
+            long now = System.nanoTime();
+            long wait = acquire(client, slot, now);
+            if (wait == 0) {
+                listener.onData(client, data, ackSender);
+            } else {
+                rejected(client, event, errorEvent, slot, ackSender, now, wait);
+            }
+        };
+    }
+
+    private void rejected(SocketIOClient client, String event, String errorEvent, int slot, AckRequest ackSender,
+                          long now, long wait) {
+        long retryAfterMs = TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+        if (ackSender != null && ackSender.isAckRequested()) {
+            ackSender.sendAckData(new RateLimited(event, retryAfterMs));
+            return;
+        }
+        if (errorEvent != null) {
+            outboundQueues.send(client, errorEvent, "Too many requests, retry in " + retryAfterMs + " ms");
+            return;
+        }
+        // One notice per run of throttled events, so a flood is not answered with a flood
+        SessionBuckets session = sessions.get(client.getSessionId());
+        if (session == null) {
+            return;
+        }
+        long notified = session.notifiedUntil.get(slot);
+        if (now - notified >= 0 && session.notifiedUntil.compareAndSet(slot, notified, now + wait)) {
+            outboundQueues.send(client, "rate-limited", new RateLimited(event, retryAfterMs));
+        }
+    }
+
+    public void sessionConnected(SocketIOClient client) {
+        if (!enabled) {
+            return;
+        }
+        String ip = ipOf(client.getRemoteAddress());
+        IpBudget budget = ipBudgets.compute(ip, (key, existing) -> {
+            IpBudget value = existing != null ? existing : new IpBudget();
+            value.sessions++;
+            return value;
+        });
+        sessions.put(client.getSessionId(), new SessionBuckets(events.size(), budget));
+    }
+
+    public void sessionClosed(SocketIOClient client) {
+        if (!enabled) {
+            return;
+        }
+        if (sessions.remove(client.getSessionId()) != null) {
+            ipBudgets.computeIfPresent(ipOf(client.getRemoteAddress()),
+                    (key, budget) -> --budget.sessions == 0 ? null : budget);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Long> byEvent = new TreeMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            byEvent.put(events.get(i), throttled.get(i).sum());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("throttledByEvent", byEvent);
+        stats.put("throttledByIp", throttledByIp.sum());
+        stats.put("throttledGlobally", throttledGlobally.sum());
+        stats.put("trackedIps", ipBudgets.size());
+        return stats;
+    }
+
+    // 0 when the event is allowed, otherwise the nanoseconds until the exhausted budget accepts one
+    long acquire(SocketIOClient client, int slot, long now) {
+        SessionBuckets session = sessions.get(client.getSessionId());
+        if (session != null) {
+            long wait = acquire(session.buckets, slot, limits.get(slot), now);
+            if (wait > 0) {
+                throttled.get(slot).increment();
+                return wait;
+            }
+            wait = acquire(session.ip.bucket, ipLimit, now);
+            if (wait > 0) {
+                throttledByIp.increment();
+                return wait;
+            }
+        }
+        long wait = acquire(globalBucket, nodeLimit, now);
+        if (wait > 0) {
+            throttledGlobally.increment();
+        }
+        return wait;
+    }
+
+    private static long acquire(AtomicLongArray buckets, int slot, Limit limit, long now) {
+        while (true) {
+            long arrival = buckets.get(slot);
+            long base = Math.max(arrival, now);
+            if (base - now > limit.toleranceNanos()) {
+                return base - now - limit.toleranceNanos();
+            }
+            if (buckets.compareAndSet(slot, arrival, base + limit.intervalNanos())) {
+                return 0;
+            }
+        }
+    }
+
+    static boolean tryAcquire(AtomicLong bucket, Limit limit, long now) {
+        return acquire(bucket, limit, now) == 0;
+    }
+
+    private static long acquire(AtomicLong bucket, Limit limit, long now) {
+        while (true) {
+            long arrival = bucket.get();
+            long base = Math.max(arrival, now);
+            if (base - now > limit.toleranceNanos()) {
+                return base - now - limit.toleranceNanos();
+            }
+            if (bucket.compareAndSet(arrival, base + limit.intervalNanos())) {
+                return 0;
+            }
+        }
+    }
+
+    private static String ipOf(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet && inet.getAddress() != null) {
+            return inet.getAddress().getHostAddress();
+        }
+        return String.valueOf(address);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.example.meetus.model.RawJson;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.IOException;
+
+/**
+ * netty-socketio's Jackson support, except that an event's JSON is read into
+ * one array and parsed from there, with the array published to {@link RawJson}
+ * so relayed payloads are sliced out of it instead of re-tokenized.
+ */
+public class RawJsonSupport extends JacksonJsonSupport {
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType) throws IOException {
+        byte[] frame = new byte[src.available()];
+        src.readFully(frame);
+        namespaceClass.set(namespaceName);
+        RawJson.beginFrame(frame);
+        try {
+            return objectMapper.readValue(frame, valueType);
+        } finally {
+            RawJson.endFrame();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.listener.DisconnectListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Actor-style execution for room-scoped events. Every room is hashed onto one
+ * of N single-threaded shards, and all joins, leaves, chat, end-call, deletes
+ * and disconnects touching that room run there one at a time. Work on a room
+ * is therefore ordered deterministically and never contends, while rooms spread
+ * across cores.
+ *
+ * Each session has a chain that hands its next event to a shard only after the
+ * previous one has finished, and the shard is picked at that moment. A
+ * session's route is the room it is seated in: a join runs on the shard of the
+ * room it asks for and, once it has run, moves the route to the room the
+ * session actually ended up in, so a failed join leaves it where it was. A
+ * chat sent right after a join therefore runs after that join, on the new
+ * room's shard. Sessions without a route run on a shard picked from their
+ * session id.
+ *
+ * Once a session's disconnect has run, its chain and route are removed and
+ * events that arrive late are dropped rather than given a new chain.
+ *
+ * RoomService still takes each room's lock. In this mode the only other
+ * takers are the idle and session expiry callbacks on the timing wheel thread
+ * and the journal restore at startup, so the lock is almost always
+ * uncontended and costs one CAS to take and release.
+ *
+ * Disabled by default, in which case the wrappers return listeners unchanged.
+ */
+@Slf4j
+@Component
+public class RoomShards {
+
+    // How long a disconnected session is remembered, so its late events are dropped
+    private static final long RETIRED_SECONDS = 60;
+
+    @Value("${meetus.rooms.actors.enabled:false}")
+    private boolean enabled;
+
+    @Value("${meetus.rooms.actors.shards:0}")
+    private int shardCount;
+
+    private ExecutorService[] shards;
+    private final Map<UUID, String> routes = new ConcurrentHashMap<>();
+    private final Map<UUID, SessionChain> chains = new ConcurrentHashMap<>();
+    private final Map<UUID, Boolean> retiredSessions = new ConcurrentHashMap<>();
+
+    // The room is looked up when the step starts, after everything the session queued before it
+    private record Step(Supplier<String> roomOf, Runnable work) {
+    }
+
+    /**
+     * Runs a session's steps strictly one after another, each on its own shard.
+     */
+    private final class SessionChain {
+        final UUID sessionId;
+        final Queue<Step> steps = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean running = new AtomicBoolean();
+
+        SessionChain(UUID sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void submit(Step step) {
+            steps.add(step);
+            if (running.compareAndSet(false, true)) {
+                next();
+            }
+        }
+
+        void next() {
+            Step step = steps.poll();
+            if (step == null) {
+                running.set(false);
+                // A step may have been added between the poll and the reset
+                if (!steps.isEmpty() && running.compareAndSet(false, true)) {
+                    next();
+                }
+                return;
+            }
+            shardOf(step.roomOf().get(), sessionId).execute(() -> {
+                try {
+                    step.work().run();
+                } finally {
+                    next();
+                }
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            String name = "room-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.info("Room actors enabled with {} shards", count);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (shards != null) {
+            for (ExecutorService shard : shards) {
+                shard.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs on the shard of the room the session is in (or joining).
+     */
+    public <T> DataListener<T> inSessionRoom(DataListener<T> listener) {
+        if (!enabled) {
+            return listener;
+        }
+        return (client, data, ackSender) -> {
+            UUID sessionId = client.getSessionId();
+            submit(sessionId, () -> routes.get(sessionId), () -> runData(listener, client, data, ackSender));
+        };
+    }
+
+    /**
+     * Runs on the shard of the room named by the event, without moving the session.
+     */
+    public <T> DataListener<T> inRoom(Function<T, String> roomOf, DataListener<T> listener) {
+        if (!enabled) {
+            return listener;
+        }
+        return (client, data, ackSender) -> {
+            String roomId = data != null ? roomOf.apply(data) : null;
+            submit(client.getSessionId(), () -> roomId, () -> runData(listener, client, data, ackSender));
+        };
+    }
+
+    /**
+     * Runs on the shard of the room named by the event, then routes the session
+     * to the room {@code seatedRoom} says it is in, so only a join that
+     * succeeded moves it. Everything the session queued before still runs
+     * first on its old shard.
+     */
+    public <T> DataListener<T> joining(Function<T, String> roomOf, Function<UUID, String> seatedRoom,
+                                       DataListener<T> listener) {
+        if (!enabled) {
+            return listener;
+        }
+        return (client, data, ackSender) -> {
+            UUID sessionId = client.getSessionId();
+            String roomId = data != null ? roomOf.apply(data) : null;
+            submit(sessionId, () -> roomId != null ? roomId : routes.get(sessionId), () -> {
+                runData(listener, client, data, ackSender);
+                String seated = seatedRoom.apply(sessionId);
+                // A join that got onto the chain just before the disconnect retired it must not re-add the route
+                if (seated != null && !retiredSessions.containsKey(sessionId)) {
+                    routes.put(sessionId, seated);
+                } else {
+                    routes.remove(sessionId);
+                }
+            });
+        };
+    }
+
+    public DisconnectListener inSessionRoom(DisconnectListener listener) {
+        if (!enabled) {
+            return listener;
+        }
+        return client -> {
+            UUID sessionId = client.getSessionId();
+            submit(sessionId, () -> routes.get(sessionId), () -> {
+                try {
+                    listener.onDisconnect(client);
+                } catch (Exception e) {
+                    log.error("Disconnect listener failed for {}: ", sessionId, e);
+                } finally {
+                    retire(sessionId);
+                }
+            });
+        };
+    }
+
+    private void submit(UUID sessionId, Supplier<String> roomOf, Runnable work) {
+        // Checked inside compute, so a late event cannot slip in between retiring and removing
+        SessionChain chain = chains.compute(sessionId, (id, existing) ->
+                existing != null || retiredSessions.containsKey(id) ? existing : new SessionChain(id));
+        if (chain != null) {
+            chain.submit(new Step(roomOf, work));
+        }
+    }
+
+    private void retire(UUID sessionId) {
+        retiredSessions.put(sessionId, Boolean.TRUE);
+        routes.remove(sessionId);
+        chains.remove(sessionId);
+        CompletableFuture.delayedExecutor(RETIRED_SECONDS, TimeUnit.SECONDS)
+                .execute(() -> retiredSessions.remove(sessionId));
+    }
+
+    private ExecutorService shardOf(String roomId, UUID sessionId) {
+        int hash = roomId != null ? roomId.hashCode() : sessionId.hashCode();
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+
+    private static <T> void runData(DataListener<T> listener, SocketIOClient client, T data, AckRequest ackSender) {
+        try {
+            listener.onData(client, data, ackSender);
+        } catch (Exception e) {
+            log.error("Room listener failed for {}: ", client.getSessionId(), e);
+        }
+    }
+}
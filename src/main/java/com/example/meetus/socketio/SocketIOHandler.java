@@ -5,65 +5,179 @@ import com.corundumstudio.socketio.SocketIOServer;
 import com.corundumstudio.socketio.listener.ConnectListener;
 import com.corundumstudio.socketio.listener.DataListener;
 import com.corundumstudio.socketio.listener.DisconnectListener;
+import com.example.meetus.cluster.ClusterRelay;
 import com.example.meetus.model.*;
+import com.example.meetus.model.OutboundEvents.*;
+import com.example.meetus.persistence.ChatArchive;
+import com.example.meetus.service.ChatHistoryService;
+import com.example.meetus.service.RoomChangeListener;
+import com.example.meetus.service.RoomDirectory;
 import com.example.meetus.service.RoomService;
+import com.example.meetus.service.RoomService.UserSession;
+import com.example.meetus.socketio.CallSetupTracker.MediaKind;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 @Slf4j
 @Component
-public class SocketIOHandler implements CommandLineRunner {
+public class SocketIOHandler implements CommandLineRunner, RoomChangeListener {
 
     private final SocketIOServer server;
     private final RoomService roomService;
+    private final IceCandidateBatcher iceCandidateBatcher;
+    private final ClusterRelay clusterRelay;
+    private final RoomDirectory roomDirectory;
+    private final ChatHistoryService chatHistoryService;
+    private final ChatArchive chatArchive;
+    private final OutboundQueues outboundQueues;
+    private final PriorityDispatcher priorityDispatcher;
+    private final RateLimiter rateLimiter;
+    private final RoomShards roomShards;
+    private final EventMetrics eventMetrics;
+    private final CallSetupTracker callSetupTracker;
+    private final EventLog eventLog;
+
+    // Socket room holding every client subscribed to room directory deltas
+    private static final String ROOM_DIRECTORY_SUBSCRIBERS = "room-directory-subscribers";
+
+    @Value("${meetus.chat.archive.page-size:50}")
+    private int archivePageSize;
+
+    @Value("${meetus.chat.archive.max-page-size:200}")
+    private int archiveMaxPageSize;
 
     @Autowired
-    public SocketIOHandler(SocketIOServer server, RoomService roomService) {
+    public SocketIOHandler(SocketIOServer server, RoomService roomService, IceCandidateBatcher iceCandidateBatcher,
+                           ClusterRelay clusterRelay, RoomDirectory roomDirectory,
+                           ChatHistoryService chatHistoryService, ChatArchive chatArchive,
+                           OutboundQueues outboundQueues, PriorityDispatcher priorityDispatcher,
+                           RateLimiter rateLimiter, RoomShards roomShards, EventMetrics eventMetrics,
+                           CallSetupTracker callSetupTracker, EventLog eventLog) {
         this.server = server;
         this.roomService = roomService;
+        this.iceCandidateBatcher = iceCandidateBatcher;
+        this.clusterRelay = clusterRelay;
+        this.roomDirectory = roomDirectory;
+        this.chatHistoryService = chatHistoryService;
+        this.chatArchive = chatArchive;
+        this.outboundQueues = outboundQueues;
+        this.priorityDispatcher = priorityDispatcher;
+        this.rateLimiter = rateLimiter;
+        this.roomShards = roomShards;
+        this.eventMetrics = eventMetrics;
+        this.callSetupTracker = callSetupTracker;
+        this.eventLog = eventLog;
     }
 
     @Override
     public void run(String... args) throws Exception {
-        server.addConnectListener(onConnected());
-        server.addDisconnectListener(onDisconnected());
+        server.addConnectListener(eventMetrics.timedConnect("connect", onConnected()));
+        DisconnectListener onDisconnected = eventMetrics.timedDisconnect("disconnect", onDisconnected());
+        server.addDisconnectListener(roomShards.isEnabled()
+                ? roomShards.inSessionRoom(priorityDispatcher.retiring(onDisconnected))
+                : priorityDispatcher.bulk(onDisconnected));
         
         // Room management
-        server.addEventListener("join-room", JoinRoomData.class, onJoinRoom());
-        server.addEventListener("get-rooms", Void.class, onGetRooms());
-        server.addEventListener("delete-room", String.class, onDeleteRoom());
-        server.addEventListener("leave-room", JoinRoomData.class, onLeaveRoom());
+        addJoinListener("join-room", JoinRoomData.class, onJoinRoom(),
+                listener -> roomShards.joining(JoinRoomData::getRoomId, this::seatedRoomOf, listener));
+        addBulkListener("get-rooms", Void.class, onGetRooms());
+        addRoomListener("delete-room", String.class, onDeleteRoom(),
+                listener -> roomShards.inRoom(roomId -> roomId, listener));
+        addRoomListener("leave-room", JoinRoomData.class, onLeaveRoom(), roomShards::inSessionRoom);
+        addBulkListener("query-rooms", RoomQuery.class, onQueryRooms());
+        addBulkListener("subscribe-rooms", SubscribeRoomsData.class, onSubscribeRooms());
+        addBulkListener("unsubscribe-rooms", Void.class, onUnsubscribeRooms());
+        roomDirectory.setPublisher(frame ->
+                outboundQueues.sendToRoom(ROOM_DIRECTORY_SUBSCRIBERS, "room-deltas", frame, null));
+        roomService.addRoomChangeListener(this);
+        roomService.setSessionLiveness(sessionId -> server.getClient(UUID.fromString(sessionId)) != null);
 
 
         // WebRTC signaling
-        server.addEventListener("offer", SignalingData.class, onOffer());
-        server.addEventListener("answer", SignalingData.class, onAnswer());
-        server.addEventListener("ice-candidate", SignalingData.class, onIceCandidate());
+        addSignalingListener("offer", SignalingData.class, onOffer());
+        addSignalingListener("answer", SignalingData.class, onAnswer());
+        addSignalingListener("ice-candidate", SignalingData.class, onIceCandidate());
         
         // Video call signaling
-        server.addEventListener("video-offer", SignalingData.class, onVideoOffer());
-        server.addEventListener("video-answer", SignalingData.class, onVideoAnswer());
-        server.addEventListener("video-ice-candidate", SignalingData.class, onVideoIceCandidate());
+        addSignalingListener("video-offer", SignalingData.class, onVideoOffer());
+        addSignalingListener("video-answer", SignalingData.class, onVideoAnswer());
+        addSignalingListener("video-ice-candidate", SignalingData.class, onVideoIceCandidate());
         
         // Chat and file transfer
-        server.addEventListener("chat-message", ChatMessageData.class, onChatMessage());
-        server.addEventListener("file-metadata", FileMetadataData.class, onFileMetadata());
-        server.addEventListener("file-accepted", SignalingData.class, onFileAccepted());
-        server.addEventListener("file-rejected", SignalingData.class, onFileRejected());
-        server.addEventListener("end-call", Map.class, onEndCall());
+        addRoomListener("chat-message", ChatMessageData.class, onChatMessage(), roomShards::inSessionRoom);
+        addRoomListener("chat-history-page", ChatHistoryPageData.class, onChatHistoryPage(), roomShards::inSessionRoom);
+        addBulkListener("file-metadata", FileMetadataData.class, onFileMetadata());
+        addBulkListener("file-accepted", SignalingData.class, onFileAccepted());
+        addBulkListener("file-rejected", SignalingData.class, onFileRejected());
+        addRoomListener("end-call", Map.class, onEndCall(), roomShards::inSessionRoom);
         
         server.start();
         log.info("Socket.IO server started on port {}", server.getConfiguration().getPort());
     }
 
+    // Events are counted and rate limited first, then run inline (signaling) or on the sender's
+    // bulk lane; the handler itself is timed wherever it ends up running. Signaling that gets past
+    // the limits counts as activity in the sender's room, so a call alone keeps the room from expiring
+    private <T> void addSignalingListener(String event, Class<T> type, DataListener<T> listener) {
+        DataListener<T> timed = eventMetrics.timed(event, listener);
+        DataListener<T> touching = (client, data, ackSender) -> {
+            roomService.touchSession(client.getSessionId());
+            timed.onData(client, data, ackSender);
+        };
+        server.addEventListener(event, type, eventMetrics.received(event, rateLimiter.limit(event,
+                priorityDispatcher.signaling(touching))));
+    }
+
+    private <T> void addBulkListener(String event, Class<T> type, DataListener<T> listener) {
+        server.addEventListener(event, type, eventMetrics.received(event, rateLimiter.limit(event,
+                priorityDispatcher.bulk(eventMetrics.timed(event, listener)))));
+    }
+
+    // Room-scoped listeners are placed on their room shard; they are bulk work when room actors are off
+    private <T> void addRoomListener(String event, Class<T> type, DataListener<T> listener,
+                                     UnaryOperator<DataListener<T>> shard) {
+        server.addEventListener(event, type, eventMetrics.received(event, rateLimiter.limit(event,
+                place(shard, eventMetrics.timed(event, listener)))));
+    }
+
+    // A join is placed like other room work, but the session's signaling waits until it has run
+    private <T> void addJoinListener(String event, Class<T> type, DataListener<T> listener,
+                                     UnaryOperator<DataListener<T>> shard) {
+        server.addEventListener(event, type, eventMetrics.received(event, rateLimiter.limit(event,
+                priorityDispatcher.joining(eventMetrics.timed(event, listener), timed -> place(shard, timed)))));
+    }
+
+    private <T> DataListener<T> place(UnaryOperator<DataListener<T>> shard, DataListener<T> listener) {
+        DataListener<T> placed = shard.apply(listener);
+        return roomShards.isEnabled() ? placed : priorityDispatcher.bulk(placed);
+    }
+
+    private String seatedRoomOf(UUID sessionId) {
+        UserSession session = roomService.getUserSession(sessionId);
+        return session != null ? session.getRoomId() : null;
+    }
+
+    // Seated sessions reuse the id string held by their room member; others build it
+    private String sessionIdOf(SocketIOClient client) {
+        return sessionIdOf(client, roomService.getUserSession(client.getSessionId()));
+    }
+
+    private static String sessionIdOf(SocketIOClient client, UserSession session) {
+        return session != null ? session.getId() : client.getSessionId().toString();
+    }
+
     private ConnectListener onConnected() {
         return client -> {
             String sessionId = client.getSessionId().toString();
-            log.info("New client connected: {}", sessionId);
+            eventLog.log("connect", "session", sessionId);
+            rateLimiter.sessionConnected(client);
+            clusterRelay.sessionConnected(sessionId);
         };
     }
 
@@ -101,150 +215,133 @@ public class SocketIOHandler implements CommandLineRunner {
 
     private DisconnectListener onDisconnected() {
         return client -> {
-            String sessionId = client.getSessionId().toString();
-            log.info("Client disconnected: {}", sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            outboundQueues.sessionClosed(client);
+            rateLimiter.sessionClosed(client);
 
-            String roomId = roomService.getUserRoom(sessionId);
-            log.info("Client {} was in room: {}", sessionId, roomId);
+            String roomId = session != null ? session.getRoomId() : null;
+            eventLog.log("disconnect", "session", sessionId, "room", roomId);
 
-            String username = roomService.getUsername(sessionId);
-            log.info(username,"joined");
+            String username = session != null ? session.getUsername() : null;
+            clusterRelay.sessionDisconnected(sessionId);
+            callSetupTracker.sessionEnded(sessionId);
 
             if (roomId != null) {
-                Room room = roomService.getRoom(roomId);
+                // Perform the room-leaving logic. netty-socketio has already taken the client
+                // out of its native rooms by the time disconnect listeners run.
+                roomService.leaveRoom(sessionId);
+                clusterRelay.roomLeft(roomId, sessionId);
 
-                if (room != null) {
-                    // Log the state of the room before any modifications
-                    log.info("Found room {} with {} users.", roomId, room.getUsers().size());
-
-                    // Get a snapshot of the users BEFORE removing the disconnected client
-                    List<User> usersInRoom = new ArrayList<>(room.getUsers());
-                    log.info("Copied {} users for notification.", usersInRoom.size());
-
-                    // Perform the room-leaving logic
-                    roomService.leaveRoom(sessionId);
-                    log.info("Client {} has been removed from room {}.", sessionId, roomId);
-
-                    // Notify other users
-                    if (!usersInRoom.isEmpty()) {
-                        Map<String, Object> userLeft = new HashMap<>();
-                        userLeft.put("id", sessionId);
-                        userLeft.put("username", username);
-
-                        for (User user : usersInRoom) {
-                            // Ensure we're not sending to the disconnected user
-                            if (!user.getId().equals(sessionId)) {
-                                // Check if the client exists on the server
-                                SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
-                                if (userClient != null) {
-                                    log.info("Sending 'user-left' event to client: {}", user.getId());
-                                    userClient.sendEvent("user-left", userLeft);
-                                    userClient.sendEvent("user-ended-call", userLeft);
-                                } else {
-                                    log.warn("Client with UUID {} not found on server.", user.getId());
-                                }
-                            }
-                        }
-                    } else {
-                        log.info("No users found in room {} to notify.", roomId);
-                    }
-                } else {
-                    log.warn("Room with ID {} not found. Could not notify other users.", roomId);
-                }
-            } else {
-                log.warn("Session ID {} has no associated room ID. No action taken.", sessionId);
+                // Notify other users
+                UserPresence userLeft = new UserPresence(sessionId, username);
+
+                clusterRelay.broadcastToRoom(roomId, "user-left", userLeft, client);
+                clusterRelay.broadcastToRoom(roomId, "user-ended-call", userLeft, client);
             }
         };
     }
 
+    @Override
+    public void onRoomExpired(String roomId, List<User> users) {
+        // Same notification as a creator delete, then dissolve the socket room
+        RoomDeleted notification = new RoomDeleted(roomId, null, "idle");
+
+        clusterRelay.broadcastToRoom(roomId, "room-deleted", notification, null);
+        for (SocketIOClient userClient : server.getRoomOperations(roomId).getClients()) {
+            userClient.leaveRoom(roomId);
+        }
+        for (User user : users) {
+            clusterRelay.roomLeft(roomId, user.getId());
+        }
+    }
+
+    @Override
+    public void onSessionReaped(String roomId, String sessionId, String username) {
+        clusterRelay.roomLeft(roomId, sessionId);
+
+        UserPresence userLeft = new UserPresence(sessionId, username);
+
+        clusterRelay.broadcastToRoom(roomId, "user-left", userLeft, null);
+        clusterRelay.broadcastToRoom(roomId, "user-ended-call", userLeft, null);
+    }
+
     private DataListener<JoinRoomData> onJoinRoom() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            UserSession previous = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, previous);
             String roomId = data.getRoomId();
             String username = data.getUsername();
             String password = data.getPassword();
 
             try {
-                log.info("{} ({}) joining room: {}", username, sessionId, roomId);
+                eventLog.log("join-room", "session", sessionId, "room", roomId, "username", username);
 
                 // Leave previous room if any
+                String previousRoomId = previous != null ? previous.getRoomId() : null;
                 roomService.leaveRoom(sessionId);
+                if (previousRoomId != null) {
+                    client.leaveRoom(previousRoomId);
+                    clusterRelay.roomLeft(previousRoomId, sessionId);
+                }
 
-                // Join new room
-                Room room = roomService.joinRoom(roomId, sessionId, username, password);
+                // Reclaim the seat of a session restored after a server restart
+                if (data.getPreviousSessionId() != null) {
+                    roomService.resumeSession(data.getPreviousSessionId(), data.getResumeToken(), sessionId);
+                }
 
-                // Send success response
-                Map<String, Object> response = new HashMap<>();
-                response.put("roomId", roomId);
-                response.put("username", username);
-                response.put("hasPassword", room.hasPassword());
-                response.put("password", password);
-                response.put("isCreator", room.getCreatedBy().equals(sessionId));
+                // Join new room, checked against its members on every node when clustered
+                Room room = clusterRelay.joinRoom(roomId, sessionId, username, password, client);
+                client.joinRoom(roomId);
 
-                client.sendEvent("join-success", response);
+                // Send success response, with the token the client needs to resume this seat after a restart
+                UserSession seated = roomService.getUserSession(sessionId);
+                JoinSuccess response = new JoinSuccess(roomId, username, room.hasPassword(), password,
+                        room.getCreatedBy().equals(sessionId), seated != null ? seated.getResumeToken() : null);
+
+                outboundQueues.send(client, "join-success", response);
 
                 // Send existing users
-                client.sendEvent("existing-users", room.getUsers());
+                outboundQueues.send(client, "existing-users", clusterRelay.members(room));
 
-                // Notify other users
-                Map<String, Object> userJoined = new HashMap<>();
-                userJoined.put("id", sessionId);
-                userJoined.put("username", username);
-
-                for (User user : room.getUsers()) {
-                    if (!user.getId().equals(sessionId)) {
-                        SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
-                        if (userClient != null) {
-                            userClient.sendEvent("user-joined", userJoined);
-                        }
-                    }
+                // Catch the newcomer up on recent chat
+                List<ChatMessage> history = chatHistoryService.recentMessages(roomId);
+                if (!history.isEmpty()) {
+                    outboundQueues.send(client, "chat-history", history);
                 }
 
+                // Notify other users
+                UserPresence userJoined = new UserPresence(sessionId, username);
+
+                clusterRelay.broadcastToRoom(roomId, "user-joined", userJoined, client);
+
             } catch (Exception e) {
                 log.error("Error joining room: ", e);
-                client.sendEvent("join-error", e.getMessage());
+                outboundQueues.send(client, "join-error", e.getMessage());
             }
         };
     }
 
     private DataListener<JoinRoomData> onLeaveRoom() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
-            String roomId = roomService.getUserRoom(sessionId);
-            String username = roomService.getUsername(sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            String roomId = session != null ? session.getRoomId() : null;
+            String username = session != null ? session.getUsername() : null;
 
             if (roomId != null) {
-                log.info("{} is leaving room: {}", username, roomId);
+                eventLog.log("leave-room", "session", sessionId, "room", roomId, "username", username);
 
-                Room room = roomService.getRoom(roomId);
+                // Remove the user from the room
+                roomService.leaveRoom(sessionId);
+                client.leaveRoom(roomId);
+                clusterRelay.roomLeft(roomId, sessionId);
 
-                if (room != null) {
-                    // Get a snapshot of the users BEFORE removal
-                    List<User> usersInRoom = new ArrayList<>(room.getUsers());
-
-                    // Remove the user from the room
-                    roomService.leaveRoom(sessionId);
-                    log.info("Client {} has been removed from room {}.", sessionId, roomId);
-
-                    // Notify other users
-                    if (!usersInRoom.isEmpty()) {
-                        Map<String, Object> userLeft = new HashMap<>();
-                        userLeft.put("id", sessionId);
-                        userLeft.put("username", username);
-
-                        for (User user : usersInRoom) {
-                            if (!user.getId().equals(sessionId)) {
-                                SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
-                                if (userClient != null) {
-                                    userClient.sendEvent("user-left", userLeft);
-                                    userClient.sendEvent("user-ended-call", userLeft); // You can choose to send both or just one
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    log.warn("Room with ID {} not found. Could not handle leave-room event.", roomId);
-                }
+                // Notify other users
+                UserPresence userLeft = new UserPresence(sessionId, username);
+
+                clusterRelay.broadcastToRoom(roomId, "user-left", userLeft, client);
+                clusterRelay.broadcastToRoom(roomId, "user-ended-call", userLeft, client); // You can choose to send both or just one
             } else {
                 log.warn("Session ID {} has no associated room ID. No action taken for leave-room event.", sessionId);
             }
@@ -253,241 +350,256 @@ public class SocketIOHandler implements CommandLineRunner {
 
     private DataListener<Void> onGetRooms() {
         return (client, data, ackSender) -> {
-            client.sendEvent("room-list", roomService.getRoomList());
+            // Served from the room directory, up to one coalescing window behind; same entries as before
+            outboundQueues.send(client, "room-list", roomDirectory.getRooms());
+        };
+    }
+
+    private DataListener<RoomQuery> onQueryRooms() {
+        return (client, query, ackSender) -> {
+            outboundQueues.send(client, "room-page", roomDirectory.query(query != null ? query : new RoomQuery()));
+        };
+    }
+
+    private DataListener<SubscribeRoomsData> onSubscribeRooms() {
+        return (client, data, ackSender) -> {
+            // Join first so no delta published after the resync reply is missed
+            client.joinRoom(ROOM_DIRECTORY_SUBSCRIBERS);
+            RoomDirectory.Resync resync = data != null
+                    ? roomDirectory.resync(data.getEpoch(), data.getVersion())
+                    : roomDirectory.resync(null, null);
+            outboundQueues.send(client, resync.event(), resync.frame());
         };
     }
 
+    private DataListener<Void> onUnsubscribeRooms() {
+        return (client, data, ackSender) -> client.leaveRoom(ROOM_DIRECTORY_SUBSCRIBERS);
+    }
+
     private DataListener<String> onDeleteRoom() {
         return (client, roomId, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
             
             try {
                 Room room = roomService.getRoom(roomId);
                 if (room != null) {
+                    // Only the creator may delete; members are told before the room goes away
+                    roomService.checkCanDelete(roomId, sessionId);
+
                     // Notify all users
-                    Map<String, Object> notification = new HashMap<>();
-                    notification.put("roomId", roomId);
-                    notification.put("deletedBy", sessionId);
-                    
+                    RoomDeleted notification = new RoomDeleted(roomId, sessionId, null);
+
+                    clusterRelay.broadcastToRoom(roomId, "room-deleted", notification, null);
+
+                    roomService.deleteRoom(roomId, sessionId);
+
+                    // Dissolve the socket room
+                    for (SocketIOClient userClient : server.getRoomOperations(roomId).getClients()) {
+                        userClient.leaveRoom(roomId);
+                    }
                     for (User user : room.getUsers()) {
-                        SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
-                        if (userClient != null) {
-                            userClient.sendEvent("room-deleted", notification);
-                        }
+                        clusterRelay.roomLeft(roomId, user.getId());
                     }
-                    
-                    roomService.deleteRoom(roomId, sessionId);
                 }
             } catch (Exception e) {
                 log.error("Error deleting room: ", e);
-                client.sendEvent("delete-error", e.getMessage());
+                outboundQueues.send(client, "delete-error", e.getMessage());
             }
         };
     }
 
     private DataListener<SignalingData> onOffer() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
-            String username = roomService.getUsername(sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            String username = session != null ? session.getUsername() : null;
             
-            log.info("Offer from {} to {}", sessionId, data.getTo());
+            eventLog.log("offer", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("offer", data.getOffer());
-                response.put("username", username);
-                targetClient.sendEvent("offer", response);
+            Offer response = new Offer(sessionId, data.getOffer(), username);
+            if (clusterRelay.sendToSession(data.getTo(), "offer", response)) {
+                callSetupTracker.offerRelayed(sessionId, data.getTo(), MediaKind.CALL);
             }
         };
     }
 
     private DataListener<SignalingData> onAnswer() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
             
-            log.info("Answer from {} to {}", sessionId, data.getTo());
+            eventLog.log("answer", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("answer", data.getAnswer());
-                targetClient.sendEvent("answer", response);
+            Answer response = new Answer(sessionId, data.getAnswer());
+            if (clusterRelay.sendToSession(data.getTo(), "answer", response)) {
+                callSetupTracker.answerRelayed(sessionId, data.getTo(), MediaKind.CALL);
             }
         };
     }
 
     private DataListener<SignalingData> onIceCandidate() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
+            
+            if (iceCandidateBatcher.isEnabled()) {
+                // Coalesced with other candidates for the same target and relayed as "ice-candidates"
+                iceCandidateBatcher.add("ice-candidates", sessionId, data.getTo(), data.getCandidate());
+                return;
+            }
             
-            log.info("ICE candidate from {} to {}", sessionId, data.getTo());
+            eventLog.log("ice-candidate", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("candidate", data.getCandidate());
-                targetClient.sendEvent("ice-candidate", response);
+            IceCandidate response = new IceCandidate(sessionId, data.getCandidate());
+            if (clusterRelay.sendToSession(data.getTo(), "ice-candidate", response)) {
+                callSetupTracker.iceRelayed(sessionId, data.getTo(), MediaKind.CALL);
             }
         };
     }
 
     private DataListener<SignalingData> onVideoOffer() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
-            String username = roomService.getUsername(sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            String username = session != null ? session.getUsername() : null;
             
-            log.info("Video offer from {} to {}", sessionId, data.getTo());
+            eventLog.log("video-offer", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("offer", data.getOffer());
-                response.put("username", username);
-                targetClient.sendEvent("video-offer", response);
+            Offer response = new Offer(sessionId, data.getOffer(), username);
+            if (clusterRelay.sendToSession(data.getTo(), "video-offer", response)) {
+                callSetupTracker.offerRelayed(sessionId, data.getTo(), MediaKind.VIDEO);
             }
         };
     }
 
     private DataListener<SignalingData> onVideoAnswer() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
             
-            log.info("Video answer from {} to {}", sessionId, data.getTo());
+            eventLog.log("video-answer", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("answer", data.getAnswer());
-                targetClient.sendEvent("video-answer", response);
+            Answer response = new Answer(sessionId, data.getAnswer());
+            if (clusterRelay.sendToSession(data.getTo(), "video-answer", response)) {
+                callSetupTracker.answerRelayed(sessionId, data.getTo(), MediaKind.VIDEO);
             }
         };
     }
 
     private DataListener<SignalingData> onVideoIceCandidate() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
             
-            log.info("Video ICE candidate from {} to {}", sessionId, data.getTo());
+            if (iceCandidateBatcher.isEnabled()) {
+                // Coalesced with other candidates for the same target and relayed as "video-ice-candidates"
+                iceCandidateBatcher.add("video-ice-candidates", sessionId, data.getTo(), data.getCandidate());
+                return;
+            }
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("candidate", data.getCandidate());
-                targetClient.sendEvent("video-ice-candidate", response);
+            eventLog.log("video-ice-candidate", "from", sessionId, "to", data.getTo());
+            
+            IceCandidate response = new IceCandidate(sessionId, data.getCandidate());
+            if (clusterRelay.sendToSession(data.getTo(), "video-ice-candidate", response)) {
+                callSetupTracker.iceRelayed(sessionId, data.getTo(), MediaKind.VIDEO);
             }
         };
     }
 
     private DataListener<ChatMessageData> onChatMessage() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
-            String roomId = roomService.getUserRoom(sessionId);
-            String username = roomService.getUsername(sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            String roomId = session != null ? session.getRoomId() : null;
+            String username = session != null ? session.getUsername() : null;
             
             if (roomId != null) {
-                log.info("Chat message from {}: {}", sessionId, data.getMessage());
-                
-                Room room = roomService.getRoom(roomId);
-                if (room != null) {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("username", username);
-                    response.put("message", data.getMessage());
-                    response.put("timestamp", data.getTimestamp());
-                    
-                    for (User user : room.getUsers()) {
-                        if (!user.getId().equals(sessionId)) {
-                            SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
-                            if (userClient != null) {
-                                userClient.sendEvent("chat-message", response);
-                            }
-                        }
-                    }
-                }
+                eventLog.log("chat-message", "from", sessionId, "room", roomId,
+                        "length", data.getMessage() != null ? data.getMessage().length() : 0);
+
+                Chat response = new Chat(username, data.getMessage(), data.getTimestamp());
+
+                roomService.touchRoom(roomId);
+                chatHistoryService.record(roomId, username, data.getMessage(), data.getTimestamp());
+                chatArchive.append(roomId, username, data.getMessage(), data.getTimestamp());
+                clusterRelay.broadcastToRoom(roomId, "chat-message", response, client);
+            }
+        };
+    }
+
+    private DataListener<ChatHistoryPageData> onChatHistoryPage() {
+        return (client, data, ackSender) -> {
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            
+            if (session == null || !chatArchive.isEnabled()) {
+                return;
             }
+            String roomId = session.getRoomId();
+            
+            // No payload asks for the newest page at the default size
+            Integer requested = data != null ? data.getLimit() : null;
+            Long beforeId = data != null ? data.getBeforeId() : null;
+            int limit = requested == null ? archivePageSize : Math.max(1, Math.min(requested, archiveMaxPageSize));
+            // Segment reads happen on the archive's reader pool, never on this thread
+            chatArchive.pageAsync(roomId, beforeId, limit).whenComplete((messages, error) -> {
+                if (error != null) {
+                    log.error("Error reading chat archive for room {}: ", roomId, error);
+                    return;
+                }
+                // nextBeforeId is absent once the start of the archive is reached
+                ChatHistoryPage response = new ChatHistoryPage(messages,
+                        messages.size() == limit ? messages.get(0).id() : null);
+                outboundQueues.send(client, "chat-history-page", response);
+            });
         };
     }
 
     private DataListener<FileMetadataData> onFileMetadata() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
-            String username = roomService.getUsername(sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            String username = session != null ? session.getUsername() : null;
             
-            log.info("File metadata from {}: {}", sessionId, data.getFileName());
+            eventLog.log("file-metadata", "from", sessionId, "to", data.getTo(), "size", data.getFileSize());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                response.put("fileName", data.getFileName());
-                response.put("fileSize", data.getFileSize());
-                response.put("fileType", data.getFileType());
-                response.put("username", username);
-                targetClient.sendEvent("file-metadata", response);
-            }
+            FileOffer response = new FileOffer(sessionId, data.getFileName(), data.getFileSize(), data.getFileType(),
+                    username);
+            clusterRelay.sendToSession(data.getTo(), "file-metadata", response);
         };
     }
 
     private DataListener<SignalingData> onFileAccepted() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
             
-            log.info("File accepted by {} for {}", sessionId, data.getTo());
+            eventLog.log("file-accepted", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                targetClient.sendEvent("file-accepted", response);
-            }
+            FileReply response = new FileReply(sessionId);
+            clusterRelay.sendToSession(data.getTo(), "file-accepted", response);
         };
     }
 
     private DataListener<SignalingData> onFileRejected() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
+            String sessionId = sessionIdOf(client);
             
-            log.info("File rejected by {} for {}", sessionId, data.getTo());
+            eventLog.log("file-rejected", "from", sessionId, "to", data.getTo());
             
-            SocketIOClient targetClient = server.getClient(UUID.fromString(data.getTo()));
-            if (targetClient != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("from", sessionId);
-                targetClient.sendEvent("file-rejected", response);
-            }
+            FileReply response = new FileReply(sessionId);
+            clusterRelay.sendToSession(data.getTo(), "file-rejected", response);
         };
     }
 
     private DataListener<Map> onEndCall() {
         return (client, data, ackSender) -> {
-            String sessionId = client.getSessionId().toString();
-            String roomId = roomService.getUserRoom(sessionId);
-            String username = roomService.getUsername(sessionId);
+            UserSession session = roomService.getUserSession(client.getSessionId());
+            String sessionId = sessionIdOf(client, session);
+            String roomId = session != null ? session.getRoomId() : null;
+            String username = session != null ? session.getUsername() : null;
             
             if (roomId != null) {
-                log.info("{} ended the call", sessionId);
-                
-                Room room = roomService.getRoom(roomId);
-                if (room != null) {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("userId", sessionId);
-                    response.put("username", username);
-                    
-                    for (User user : room.getUsers()) {
-                        if (!user.getId().equals(sessionId)) {
-                            SocketIOClient userClient = server.getClient(UUID.fromString(user.getId()));
-                            if (userClient != null) {
-                                userClient.sendEvent("user-ended-call", response);
-                            }
-                        }
-                    }
-                }
+                eventLog.log("end-call", "session", sessionId, "room", roomId);
+                callSetupTracker.sessionEnded(sessionId);
+
+                CallEnded response = new CallEnded(sessionId, username);
+
+                clusterRelay.broadcastToRoom(roomId, "user-ended-call", response, client);
             }
         };
     }
@@ -497,6 +609,8 @@ public class SocketIOHandler implements CommandLineRunner {
         private String roomId;
         private String username;
         private String password;
+        private String previousSessionId;
+        private String resumeToken;
         
         // Getters and setters
         public String getRoomId() { return roomId; }
@@ -505,23 +619,39 @@ public class SocketIOHandler implements CommandLineRunner {
         public void setUsername(String username) { this.username = username; }
         public String getPassword() { return password; }
         public void setPassword(String password) { this.password = password; }
+        public String getPreviousSessionId() { return previousSessionId; }
+        public void setPreviousSessionId(String previousSessionId) { this.previousSessionId = previousSessionId; }
+        public String getResumeToken() { return resumeToken; }
+        public void setResumeToken(String resumeToken) { this.resumeToken = resumeToken; }
+    }
+    
+    public static class SubscribeRoomsData {
+        private String epoch;
+        private Long version;
+        
+        // Getters and setters
+        public String getEpoch() { return epoch; }
+        public void setEpoch(String epoch) { this.epoch = epoch; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
     }
     
     public static class SignalingData {
         private String to;
-        private Object offer;
-        private Object answer;
-        private Object candidate;
+        // Relayed verbatim; the server never looks inside SDP or candidate payloads
+        private RawJson offer;
+        private RawJson answer;
+        private RawJson candidate;
         
         // Getters and setters
         public String getTo() { return to; }
         public void setTo(String to) { this.to = to; }
-        public Object getOffer() { return offer; }
-        public void setOffer(Object offer) { this.offer = offer; }
-        public Object getAnswer() { return answer; }
-        public void setAnswer(Object answer) { this.answer = answer; }
-        public Object getCandidate() { return candidate; }
-        public void setCandidate(Object candidate) { this.candidate = candidate; }
+        public RawJson getOffer() { return offer; }
+        public void setOffer(RawJson offer) { this.offer = offer; }
+        public RawJson getAnswer() { return answer; }
+        public void setAnswer(RawJson answer) { this.answer = answer; }
+        public RawJson getCandidate() { return candidate; }
+        public void setCandidate(RawJson candidate) { this.candidate = candidate; }
     }
     
     public static class ChatMessageData {
@@ -535,6 +665,17 @@ public class SocketIOHandler implements CommandLineRunner {
         public void setTimestamp(Long timestamp) { this.timestamp = timestamp; }
     }
     
+    public static class ChatHistoryPageData {
+        private Long beforeId;
+        private Integer limit;
+        
+        // Getters and setters
+        public Long getBeforeId() { return beforeId; }
+        public void setBeforeId(Long beforeId) { this.beforeId = beforeId; }
+        public Integer getLimit() { return limit; }
+        public void setLimit(Integer limit) { this.limit = limit; }
+    }
+    
     public static class FileMetadataData {
         private String to;
         private String fileName;
@@ -0,0 +1,162 @@
+package com.example.meetus.cluster;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.meetus.model.OutboundEvents.Chat;
+import com.example.meetus.model.OutboundEvents.RoomDeleted;
+import com.example.meetus.model.Room;
+import com.example.meetus.model.User;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.socketio.EventMetrics;
+import com.example.meetus.socketio.OutboundQueues;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterRelayTest {
+
+    private final InMemoryClusterBus bus = new InMemoryClusterBus();
+    private final InMemoryClusterDirectory directory = new InMemoryClusterDirectory();
+
+    private ExpiryService expiry;
+    private Node nodeA;
+    private Node nodeB;
+
+    private record Node(SocketIOServer server, RoomService rooms, ClusterRelay relay) {
+
+        FakeClient join(String roomId, String username, String password) throws Exception {
+            FakeClient client = FakeClient.recording(server);
+            relay.joinRoom(roomId, id(client), username, password, client);
+            client.joinRoom(roomId);
+            return client;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        expiry = Fixtures.expiryService(100);
+        nodeA = node("a");
+        nodeB = node("b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.relay().stop();
+        nodeB.relay().stop();
+        expiry.stop();
+    }
+
+    @Test
+    void peersOnTwoNodesShareOneRoom() throws Exception {
+        FakeClient alice = nodeA.join("room", "alice", "secret");
+        FakeClient bob = nodeB.join("room", "bob", "secret");
+
+        // Node B's copy of the room carries the settings fixed on node A
+        Room copy = nodeB.rooms().getRoom("room");
+        assertEquals(id(alice), copy.getCreatedBy());
+        assertTrue(copy.hasPassword());
+        assertEquals(Set.of("a", "b"), directory.nodesInRoom("room"));
+        assertEquals(List.of("alice", "bob"), nodeB.relay().members(copy).stream().map(User::getUsername).toList());
+
+        Chat hello = new Chat("alice", "hello", 1L);
+        nodeA.relay().broadcastToRoom("room", "chat-message", hello, alice);
+        await(() -> !bob.payloadsOf("chat-message").isEmpty());
+        assertEquals(List.of(hello), bob.payloadsOf("chat-message"));
+        assertEquals(List.of(), alice.payloadsOf("chat-message"));
+
+        // Direct relays cross nodes too
+        nodeB.relay().sessionConnected(id(bob));
+        assertTrue(nodeA.relay().sendToSession(id(bob), "offer", "sdp"));
+        await(() -> !bob.payloadsOf("offer").isEmpty());
+    }
+
+    @Test
+    void checksPasswordUsernameAndCapacityAcrossNodes() throws Exception {
+        Fixtures.set(nodeA.rooms(), "maxUsersPerRoom", 3);
+        Fixtures.set(nodeB.rooms(), "maxUsersPerRoom", 3);
+        nodeA.join("room", "alice", "secret");
+
+        Exception wrongPassword = assertThrows(Exception.class, () -> nodeB.join("room", "eve", "guess"));
+        assertEquals("Invalid password", wrongPassword.getMessage());
+        Exception taken = assertThrows(Exception.class, () -> nodeB.join("room", "ALICE", "secret"));
+        assertEquals("Username 'ALICE' is already taken in this room", taken.getMessage());
+        // Refused joins leave nothing behind on node B
+        assertNull(nodeB.rooms().getRoom("room"));
+        assertEquals(Set.of("a"), directory.nodesInRoom("room"));
+
+        nodeB.join("room", "bob", "secret");
+        nodeA.join("room", "carol", "secret");
+        Exception full = assertThrows(Exception.class, () -> nodeB.join("room", "dave", "secret"));
+        assertEquals("Room is full (max 3 users)", full.getMessage());
+    }
+
+    @Test
+    void leavingTheLastSeatOnEveryNodeFreesTheRoom() throws Exception {
+        FakeClient alice = nodeA.join("room", "alice", "secret");
+        FakeClient bob = nodeB.join("room", "bob", "secret");
+
+        nodeA.rooms().leaveRoom(id(alice));
+        nodeA.relay().roomLeft("room", id(alice));
+        // Still held by bob, so the password still applies
+        assertThrows(Exception.class, () -> nodeA.join("room", "carol", null));
+
+        nodeB.rooms().leaveRoom(id(bob));
+        nodeB.relay().roomLeft("room", id(bob));
+        assertNull(directory.room("room"));
+        // Whoever comes next creates the room afresh, here without a password
+        FakeClient carol = nodeA.join("room", "carol", null);
+        assertEquals(id(carol), nodeA.rooms().getRoom("room").getCreatedBy());
+    }
+
+    @Test
+    void deletingOnOneNodeDropsTheRoomEverywhere() throws Exception {
+        FakeClient alice = nodeA.join("room", "alice", null);
+        FakeClient bob = nodeB.join("room", "bob", null);
+
+        nodeA.relay().broadcastToRoom("room", "room-deleted", new RoomDeleted("room", id(alice), null), null);
+        nodeA.rooms().deleteRoom("room", id(alice));
+        nodeA.relay().roomLeft("room", id(alice));
+
+        // Node B releases its seats in the directory last
+        await(() -> directory.room("room") == null);
+        assertEquals(1, bob.payloadsOf("room-deleted").size());
+        assertNull(nodeB.rooms().getRoom("room"));
+        assertNull(nodeB.rooms().getUserSession(id(bob)));
+    }
+
+    private Node node(String nodeId) {
+        SocketIOServer server = new SocketIOServer(new Configuration());
+        RoomService roomService = Fixtures.roomService(expiry);
+        ClusterRelay relay = new ClusterRelay(server, bus, directory, new OutboundQueues(server), roomService,
+                new EventMetrics(server, roomService));
+        Fixtures.set(relay, "enabled", true);
+        Fixtures.set(relay, "nodeId", nodeId);
+        relay.start();
+        return new Node(server, roomService, relay);
+    }
+
+    private static String id(FakeClient client) {
+        return client.getSessionId().toString();
+    }
+
+    // Cross-node deliveries run on the bus's thread for the receiving node
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.meetus.load;
+
+import com.example.meetus.MeetUsApplication;
+import com.example.meetus.socketio.Histogram;
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.engineio.client.transports.WebSocket;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Socket.IO load generator. Drives {@code rooms x peers} real clients through
+ * the same sequence a browser goes through: connect, join, an offer/answer
+ * exchange with every other peer in the room followed by a burst of ICE
+ * candidates each way, chat, end-call and disconnect.
+ *
+ * Every relayed payload carries the sender's {@code System.nanoTime()}, so the
+ * receiver records end-to-end latency per event type. Presence events
+ * ({@code join-success}, {@code user-joined}, {@code user-ended-call}) are
+ * timed against the send time of the event that caused them. All clients live
+ * in this JVM, so the clocks agree.
+ *
+ * Without {@code --url} the server is started in-process on a free port with
+ * the application's own configuration; extra {@code --meetus.*} style
+ * arguments are passed through to it. Run from the command line with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.meetus.load.LoadGenerator \
+ *     -Dexec.args="--rooms=200 --peers=4 --ice=10 --chat=20"
+ * </pre>
+ *
+ * The client library delivers every callback on one event thread, so at very
+ * high rates the generator's own queueing shows up in the tail; run several
+ * generator processes against one server with {@code --url} when that matters.
+ */
+public class LoadGenerator {
+
+    static final String[] EVENTS = {"connect", "join-success", "existing-users", "user-joined", "offer", "answer",
+            "ice-candidate", "chat-message", "user-ended-call"};
+
+    private final Options options;
+    private final Map<String, Histogram> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> received = new LinkedHashMap<>();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private final List<Peer> peers = new ArrayList<>();
+    private final String sdp;
+    private OkHttpClient http;
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        for (String event : EVENTS) {
+            latencies.put(event, new Histogram(TimeUnit.SECONDS.toNanos(60)));
+            received.put(event, new AtomicLong());
+        }
+        StringBuilder description = new StringBuilder("v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\n");
+        while (description.length() < options.sdpBytes()) {
+            description.append("a=rtpmap:111 opus/48000/2\r\n");
+        }
+        this.sdp = description.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Report report;
+        if (options.url() != null) {
+            report = new LoadGenerator(options).run(options.url());
+        } else {
+            try (Server server = Server.start(options.serverArgs())) {
+                report = new LoadGenerator(options).run(server.url());
+            }
+        }
+        System.out.println(report.format());
+        System.exit(report.complete() ? 0 : 1);
+    }
+
+    public Report run(String url) throws InterruptedException {
+        // One client for every peer; an upgraded websocket holds its dispatcher slot, so lift the default of 64
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Integer.MAX_VALUE);
+        dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+        http = new OkHttpClient.Builder().dispatcher(dispatcher).readTimeout(0, TimeUnit.MILLISECONDS).build();
+        try {
+            for (int room = 0; room < options.rooms(); room++) {
+                for (int index = 0; index < options.peers(); index++) {
+                    peers.add(new Peer("load-" + room, "peer-" + room + "-" + index));
+                }
+            }
+            int pairs = options.rooms() * options.peers() * (options.peers() - 1) / 2;
+
+            long start = System.nanoTime();
+            peers.forEach(peer -> peer.connect(url));
+            awaitCount("connect", peers.size(), start);
+
+            // Joins go in seat order so each peer's existing-users lists exactly the peers it calls. The server
+            // reads the member list after sending join-success, so the next seat waits for existing-users.
+            start = System.nanoTime();
+            for (int index = 0; index < options.peers(); index++) {
+                for (int room = 0; room < options.rooms(); room++) {
+                    peers.get(room * options.peers() + index).join();
+                }
+                awaitCount("join-success", (long) (index + 1) * options.rooms(), start);
+                awaitCount("existing-users", (long) (index + 1) * options.rooms(), start);
+            }
+            awaitCount("user-joined", pairs, start);
+
+            // Answers and candidates are sent from the receiving peers' callbacks
+            start = System.nanoTime();
+            peers.forEach(Peer::callExisting);
+            awaitCount("offer", pairs, start);
+            awaitCount("answer", pairs, start);
+            awaitCount("ice-candidate", 2L * pairs * options.iceCandidates(), start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < options.chatMessages(); i++) {
+                peers.forEach(Peer::chat);
+            }
+            awaitCount("chat-message", 2L * pairs * options.chatMessages(), start);
+
+            start = System.nanoTime();
+            peers.forEach(Peer::endCall);
+            awaitCount("user-ended-call", 2L * pairs, start);
+            return report(pairs);
+        } finally {
+            peers.forEach(Peer::close);
+            http.dispatcher().executorService().shutdown();
+            http.connectionPool().evictAll();
+        }
+    }
+
+    // Waits for the expected number of receipts and notes how long the phase took to deliver them
+    private void awaitCount(String event, long expected, long phaseStart) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMs());
+        AtomicLong count = received.get(event);
+        while (count.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        phaseNanos.put(event, System.nanoTime() - phaseStart);
+    }
+
+    private Report report(int pairs) {
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("connect", (long) peers.size());
+        expected.put("join-success", (long) peers.size());
+        expected.put("existing-users", (long) peers.size());
+        expected.put("user-joined", (long) pairs);
+        expected.put("offer", (long) pairs);
+        expected.put("answer", (long) pairs);
+        expected.put("ice-candidate", 2L * pairs * options.iceCandidates());
+        expected.put("chat-message", 2L * pairs * options.chatMessages());
+        expected.put("user-ended-call", 2L * pairs);
+
+        List<Report.Row> rows = new ArrayList<>();
+        for (String event : EVENTS) {
+            Map<String, Object> stats = latencies.get(event).snapshot(1_000_000.0);
+            long nanos = phaseNanos.getOrDefault(event, 1L);
+            long count = received.get(event).get();
+            rows.add(new Report.Row(event, expected.get(event), count,
+                    count / (nanos / 1e9),
+                    (double) stats.get("p50"), (double) stats.get("p90"), (double) stats.get("p99"),
+                    (double) stats.get("max")));
+        }
+        return new Report(options, rows);
+    }
+
+    private void record(String event, long sentNanos) {
+        latencies.get(event).record(System.nanoTime() - sentNanos);
+        received.get(event).incrementAndGet();
+    }
+
+    private static long stamp(Object payload) {
+        return payload instanceof JSONObject json ? json.optLong("sentAt") : 0L;
+    }
+
+    private static JSONObject json(Object... keysAndValues) {
+        JSONObject json = new JSONObject();
+        try {
+            for (int i = 0; i < keysAndValues.length; i += 2) {
+                json.put((String) keysAndValues[i], keysAndValues[i + 1]);
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return json;
+    }
+
+    /**
+     * One simulated browser tab.
+     */
+    private final class Peer {
+        final String roomId;
+        final String username;
+        final List<String> existing = new ArrayList<>();
+        Socket socket;
+        volatile String sessionId;
+        long connectSentAt;
+
+        Peer(String roomId, String username) {
+            this.roomId = roomId;
+            this.username = username;
+        }
+
+        void connect(String url) {
+            IO.Options io = IO.Options.builder()
+                    .setTransports(new String[]{WebSocket.NAME})
+                    .setForceNew(true)
+                    .setReconnection(false)
+                    .build();
+            io.callFactory = http;
+            io.webSocketFactory = http;
+            socket = IO.socket(URI.create(url), io);
+
+            socket.on(Socket.EVENT_CONNECT, args -> record("connect", connectSentAt));
+            socket.on("join-success", args -> record("join-success", sentAt.getOrDefault(username, 0L)));
+            socket.on("existing-users", this::onExistingUsers);
+            socket.on("user-joined", args -> {
+                JSONObject user = (JSONObject) args[0];
+                record("user-joined", sentAt.getOrDefault(user.optString("username"), 0L));
+            });
+            socket.on("offer", this::onOffer);
+            socket.on("answer", args -> onAnswer((JSONObject) args[0]));
+            socket.on("ice-candidate", args -> record("ice-candidate",
+                    stamp(((JSONObject) args[0]).opt("candidate"))));
+            socket.on("ice-candidates", args -> {
+                JSONArray candidates = ((JSONObject) args[0]).optJSONArray("candidates");
+                for (int i = 0; candidates != null && i < candidates.length(); i++) {
+                    record("ice-candidate", stamp(candidates.opt(i)));
+                }
+            });
+            socket.on("chat-message", args -> {
+                String message = ((JSONObject) args[0]).optString("message");
+                record("chat-message", Long.parseLong(message.substring(message.indexOf(':') + 1)));
+            });
+            socket.on("user-ended-call", args -> {
+                JSONObject user = (JSONObject) args[0];
+                // Only count end-call notifications; a disconnect also sends one with "id" instead of "userId"
+                if (user.has("userId")) {
+                    record("user-ended-call", sentAt.getOrDefault("end:" + user.optString("userId"), 0L));
+                }
+            });
+
+            connectSentAt = System.nanoTime();
+            socket.connect();
+        }
+
+        void join() {
+            sentAt.put(username, System.nanoTime());
+            socket.emit("join-room", json("roomId", roomId, "username", username));
+        }
+
+        void onExistingUsers(Object... args) {
+            JSONArray users = (JSONArray) args[0];
+            synchronized (existing) {
+                for (int i = 0; i < users.length(); i++) {
+                    JSONObject user = users.optJSONObject(i);
+                    if (user.optString("username").equals(username)) {
+                        sessionId = user.optString("id");
+                    } else {
+                        existing.add(user.optString("id"));
+                    }
+                }
+            }
+            record("existing-users", sentAt.getOrDefault(username, 0L));
+        }
+
+        void callExisting() {
+            synchronized (existing) {
+                for (String target : existing) {
+                    socket.emit("offer", json("to", target,
+                            "offer", json("type", "offer", "sdp", sdp, "sentAt", System.nanoTime())));
+                }
+            }
+        }
+
+        void onOffer(Object... args) {
+            JSONObject offer = (JSONObject) args[0];
+            record("offer", stamp(offer.opt("offer")));
+            String from = offer.optString("from");
+            socket.emit("answer", json("to", from,
+                    "answer", json("type", "answer", "sdp", sdp, "sentAt", System.nanoTime())));
+            sendCandidates(from);
+        }
+
+        void onAnswer(JSONObject answer) {
+            record("answer", stamp(answer.opt("answer")));
+            sendCandidates(answer.optString("from"));
+        }
+
+        void sendCandidates(String target) {
+            for (int i = 0; i < options.iceCandidates(); i++) {
+                socket.emit("ice-candidate", json("to", target, "candidate", json(
+                        "candidate", "candidate:" + i + " 1 udp 2122260223 192.168.1.7 5" + (1000 + i)
+                                + " typ host generation 0",
+                        "sdpMid", "0", "sdpMLineIndex", 0, "sentAt", System.nanoTime())));
+            }
+        }
+
+        void chat() {
+            socket.emit("chat-message", json("message", "load:" + System.nanoTime(),
+                    "timestamp", System.currentTimeMillis()));
+        }
+
+        void endCall() {
+            sentAt.put("end:" + sessionId, System.nanoTime());
+            socket.emit("end-call", new JSONObject());
+        }
+
+        void close() {
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+
+    public record Options(String url, int rooms, int peers, int iceCandidates, int chatMessages, int sdpBytes,
+                          long timeoutMs, List<String> serverArgs) {
+
+        public static Options defaults() {
+            return new Options(null, 50, 4, 10, 10, 4096, 30_000, List.of());
+        }
+
+        public static Options parse(String... args) {
+            Options defaults = defaults();
+            String url = defaults.url();
+            int rooms = defaults.rooms();
+            int peers = defaults.peers();
+            int ice = defaults.iceCandidates();
+            int chat = defaults.chatMessages();
+            int sdpBytes = defaults.sdpBytes();
+            long timeoutMs = defaults.timeoutMs();
+            List<String> serverArgs = new ArrayList<>();
+            for (String arg : args) {
+                int split = arg.indexOf('=');
+                String name = split < 0 ? arg : arg.substring(0, split);
+                String value = split < 0 ? "true" : arg.substring(split + 1);
+                switch (name) {
+                    case "--url" -> url = value;
+                    case "--rooms" -> rooms = Integer.parseInt(value);
+                    case "--peers" -> peers = Integer.parseInt(value);
+                    case "--ice" -> ice = Integer.parseInt(value);
+                    case "--chat" -> chat = Integer.parseInt(value);
+                    case "--sdp-bytes" -> sdpBytes = Integer.parseInt(value);
+                    case "--timeout-ms" -> timeoutMs = Long.parseLong(value);
+                    // Anything else configures the in-process server, e.g. --meetus.priority.enabled=true
+                    default -> serverArgs.add(arg);
+                }
+            }
+            if (rooms < 1 || peers < 2) {
+                throw new IllegalArgumentException("Need at least one room and two peers per room");
+            }
+            return new Options(url, rooms, peers, ice, chat, sdpBytes, timeoutMs, List.copyOf(serverArgs));
+        }
+    }
+
+    public record Report(Options options, List<Row> rows) {
+
+        public record Row(String event, long expected, long received, double perSecond,
+                          double p50Ms, double p90Ms, double p99Ms, double maxMs) {
+        }
+
+        public Row row(String event) {
+            return rows.stream().filter(row -> row.event().equals(event)).findFirst().orElseThrow();
+        }
+
+        public boolean complete() {
+            return rows.stream().allMatch(row -> row.received() >= row.expected());
+        }
+
+        public String format() {
+            StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+                    "%d rooms x %d peers, %d ICE candidates per direction, %d chat messages per peer, %d B SDP%n",
+                    options.rooms(), options.peers(), options.iceCandidates(), options.chatMessages(),
+                    options.sdpBytes()));
+            out.append(String.format(Locale.ROOT, "%-16s %9s %9s %10s %9s %9s %9s %9s%n",
+                    "event", "expected", "received", "per-sec", "p50-ms", "p90-ms", "p99-ms", "max-ms"));
+            for (Row row : rows) {
+                out.append(String.format(Locale.ROOT, "%-16s %9d %9d %10.0f %9.2f %9.2f %9.2f %9.2f%n",
+                        row.event(), row.expected(), row.received(), row.perSecond(),
+                        row.p50Ms(), row.p90Ms(), row.p99Ms(), row.maxMs()));
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * The application started in this JVM on a free Socket.IO port.
+     */
+    public record Server(ConfigurableApplicationContext context, int port) implements AutoCloseable {
+
+        public static Server start(List<String> args) throws IOException {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            // Command-line arguments, so they win over application.properties; caller's arguments come last
+            List<String> arguments = new ArrayList<>(List.of("--server.port=0", "--socket.io.host=127.0.0.1",
+                    "--socket.io.port=" + port, "--frontend.origin=*", "--spring.devtools.restart.enabled=false",
+                    "--spring.devtools.livereload.enabled=false"));
+            arguments.addAll(args);
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(MeetUsApplication.class)
+                    .run(arguments.toArray(String[]::new));
+            return new Server(context, port);
+        }
+
+        public String url() {
+            return "http://127.0.0.1:" + port;
+        }
+
+        @Override
+        public void close() {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.meetus.load;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the load generator at a small scale against the real server, so the
+ * harness and the end-to-end signaling path stay working.
+ */
+class LoadGeneratorTest {
+
+    private static LoadGenerator.Server server;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = LoadGenerator.Server.start(List.of("--logging.level.root=WARN", "--logging.level.com.example.meetus=WARN"));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void deliversEveryRelayAndBroadcast() throws Exception {
+        LoadGenerator.Options options = LoadGenerator.Options.parse(
+                "--rooms=3", "--peers=3", "--ice=4", "--chat=2", "--timeout-ms=10000");
+
+        LoadGenerator.Report report = new LoadGenerator(options).run(server.url());
+
+        assertTrue(report.complete(), report::format);
+        assertEquals(9, report.row("offer").expected());
+        assertEquals(72, report.row("ice-candidate").received());
+        assertEquals(36, report.row("chat-message").received());
+        assertTrue(report.row("offer").p50Ms() > 0, report::format);
+    }
+}
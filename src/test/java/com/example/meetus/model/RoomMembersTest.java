@@ -0,0 +1,68 @@
+package com.example.meetus.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomMembersTest {
+
+    private final RoomMembers members = new RoomMembers();
+
+    @Test
+    void snapshotKeepsJoinOrder() {
+        for (int i = 0; i < 50; i++) {
+            members.add(new User("session-" + i, "user-" + i));
+        }
+        members.remove("session-10");
+        // Re-seating moves a member to the end
+        members.add(new User("session-20", "user-20"));
+        members.add(new User("session-10", "user-10"));
+
+        List<String> ids = members.snapshot().stream().map(User::getId).toList();
+        assertEquals(50, ids.size());
+        assertEquals("session-0", ids.get(0));
+        assertEquals(List.of("session-49", "session-20", "session-10"), ids.subList(47, 50));
+    }
+
+    @Test
+    void usernamesAreUniqueIgnoringCase() {
+        members.add(new User("alice-session", "Alice"));
+
+        assertTrue(members.isUsernameTaken("ALICE", "bob-session"));
+        assertTrue(members.isUsernameTaken("alice", "bob-session"));
+        // The owner may keep its own name, in any spelling
+        assertFalse(members.isUsernameTaken("aLiCe", "alice-session"));
+
+        // Renaming frees the old name
+        members.add(new User("alice-session", "Alicia"));
+        assertFalse(members.isUsernameTaken("alice", "bob-session"));
+        members.remove("alice-session");
+        assertFalse(members.isUsernameTaken("alicia", "bob-session"));
+    }
+
+    @Test
+    void internReturnsTheNameAMemberAlreadyHolds() {
+        String held = new String("Alice");
+        members.add(new User("alice-session", held));
+
+        assertSame(held, members.intern(new String("Alice")));
+        // A different spelling is not the same name for display
+        assertEquals("ALICE", members.intern("ALICE"));
+        assertEquals("bob", members.intern("bob"));
+    }
+
+    @Test
+    void snapshotIsRebuiltOnlyAfterAChange() {
+        members.add(new User("a", "a"));
+        List<User> first = members.snapshot();
+        assertSame(first, members.snapshot());
+
+        members.add(new User("b", "b"));
+        assertEquals(List.of("a", "b"), members.snapshot().stream().map(User::getId).toList());
+    }
+}
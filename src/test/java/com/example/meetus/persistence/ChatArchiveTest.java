@@ -0,0 +1,122 @@
+package com.example.meetus.persistence;
+
+import com.example.meetus.model.ArchivedChatMessage;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatArchiveTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("chat-archive");
+    }
+
+    @Test
+    void pagesOneRoomAmongOthersInItsShard() throws Exception {
+        ChatArchive archive = started(64);
+        for (int i = 0; i < 30; i++) {
+            archive.append("a", "alice", "a-" + i, (long) i);
+            archive.append("b", "bob", "b-" + i, (long) i);
+            archive.append("b", "bob", "b-" + i, (long) i);
+        }
+        archive.stop();
+
+        archive = started(64);
+        try {
+            List<ArchivedChatMessage> newest = archive.pageAsync("a", null, 4).get();
+            assertEquals(List.of("a-26", "a-27", "a-28", "a-29"), texts(newest));
+
+            List<ArchivedChatMessage> older = archive.page("a", newest.get(0).id(), 4);
+            assertEquals(List.of("a-22", "a-23", "a-24", "a-25"), texts(older));
+
+            // A cursor that is not one of the room's ids still pages from below it
+            List<ArchivedChatMessage> belowOther = archive.page("a", older.get(0).id() - 1, 2);
+            assertEquals(List.of("a-20", "a-21"), texts(belowOther));
+
+            assertEquals(30, archive.page("a", null, 100).size());
+            assertTrue(archive.page("missing", null, 10).isEmpty());
+        } finally {
+            archive.stop();
+        }
+    }
+
+    @Test
+    void neverReusesIdsAfterATornIndexedRecord() throws Exception {
+        // Indexing every record makes the torn record the one recovery starts from
+        ChatArchive archive = started(1);
+        for (int i = 0; i < 3; i++) {
+            archive.append("a", "alice", "m-" + i, (long) i);
+        }
+        archive.stop();
+
+        Path log = directory.resolve("shard-0").resolve("0.log");
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        archive = started(1);
+        archive.append("a", "alice", "after", 3L);
+        archive.stop();
+
+        archive = started(1);
+        try {
+            List<ArchivedChatMessage> messages = archive.page("a", null, 10);
+            assertEquals(List.of("m-0", "m-1", "after"), texts(messages));
+            assertEquals(List.of(0L, 1L, 2L), messages.stream().map(ArchivedChatMessage::id).toList());
+        } finally {
+            archive.stop();
+        }
+    }
+
+    @Test
+    void followsRoomsAcrossRolledSegmentsAndRestarts() throws Exception {
+        ChatArchive archive = started(64);
+        String filler = "x".repeat(1000);
+        for (int i = 0; i < 2500; i++) {
+            archive.append("busy", "bob", filler, (long) i);
+            if (i % 500 == 0) {
+                archive.append("quiet", "alice", "q-" + i / 500, (long) i);
+            }
+        }
+        archive.stop();
+
+        try (Stream<Path> files = Files.list(directory.resolve("shard-0"))) {
+            assertTrue(files.filter(path -> path.toString().endsWith(".heads")).count() >= 2);
+        }
+
+        archive = started(64);
+        archive.append("quiet", "alice", "q-after", 0L);
+        archive.stop();
+
+        archive = started(64);
+        try {
+            assertEquals(List.of("q-0", "q-1", "q-2", "q-3", "q-4", "q-after"), texts(archive.page("quiet", null, 10)));
+            assertEquals(2500, archive.page("busy", null, 5000).size());
+        } finally {
+            archive.stop();
+        }
+    }
+
+    private ChatArchive started(int indexInterval) throws IOException {
+        ChatArchive archive = Fixtures.chatArchive(directory, 1, indexInterval);
+        archive.start();
+        return archive;
+    }
+
+    private static List<String> texts(List<ArchivedChatMessage> messages) {
+        return messages.stream().map(ArchivedChatMessage::message).toList();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.meetus.persistence;
+
+import com.example.meetus.model.Room;
+import com.example.meetus.model.User;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomJournalTest {
+
+    private Path directory;
+    private ExpiryService expiry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("room-journal");
+        expiry = Fixtures.expiryService(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiry.stop();
+    }
+
+    @Test
+    void keepsStringsLongerThan32KiB() throws IOException {
+        String longName = "x".repeat(40_000);
+        RoomJournal journal = Fixtures.journal(directory, 1);
+        journal.recover();
+        journal.roomCreated(new Room("room"));
+        journal.userJoined("room", "a", longName, null);
+        journal.shutdown();
+
+        List<Room> replayed = recover();
+        assertEquals(longName, replayed.get(0).getMembers().get("a").getUsername());
+
+        // And through a snapshot
+        RoomJournal again = Fixtures.journal(directory, 1);
+        List<Room> state = again.recover();
+        again.snapshot(() -> state);
+        again.shutdown();
+        assertEquals(longName, recover().get(0).getMembers().get("a").getUsername());
+    }
+
+    @Test
+    void stopsReplayAtADamagedRecord() throws IOException {
+        RoomJournal journal = Fixtures.journal(directory, 1);
+        journal.recover();
+        journal.roomCreated(new Room("room"));
+        journal.userJoined("room", "a", "alice", null);
+        journal.userJoined("room", "b", "bob", null);
+        journal.userJoined("room", "c", "carol", null);
+        journal.shutdown();
+
+        // Give bob's record a room id length that runs past the end of the record
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("journal-1.log").toFile(), "rw")) {
+            int offset = 0;
+            for (int i = 0; i < 2; i++) {
+                file.seek(offset);
+                offset += 4 + file.readInt();
+            }
+            file.seek(offset + 4 + 1);
+            file.writeInt(1_000_000);
+        }
+
+        List<Room> replayed = recover();
+        assertEquals(1, replayed.size());
+        assertEquals(List.of("a"), replayed.get(0).getUsers().stream().map(User::getId).toList());
+    }
+
+    @Test
+    void neverWritesPasswordsOrResumeTokens() throws Exception {
+        RoomJournal journal = Fixtures.journal(directory, 1);
+        RoomService roomService = roomService(journal);
+        String creator = UUID.randomUUID().toString();
+        roomService.joinRoom("room", creator, "alice", "hunter2-password");
+        String token = roomService.getUserSession(creator).getResumeToken();
+        assertNotNull(token);
+        journal.snapshot(roomService::getAllRooms);
+        journal.userJoined("room", UUID.randomUUID().toString(), "bob", null);
+        journal.shutdown();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+                assertFalse(content.contains("hunter2-password"), file.toString());
+                assertFalse(content.contains(token), file.toString());
+            }
+        }
+
+        // The hash still checks passwords after a restart
+        RoomJournal reopened = Fixtures.journal(directory, 1);
+        RoomService restarted = roomService(reopened);
+        try {
+            assertThrows(Exception.class, () -> restarted.joinRoom("room", UUID.randomUUID().toString(), "eve", "wrong"));
+            assertDoesNotThrow(() -> restarted.joinRoom("room", UUID.randomUUID().toString(), "carol", "hunter2-password"));
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    void resumesOnlyWithTheSeatsToken() throws Exception {
+        RoomJournal journal = Fixtures.journal(directory, 1);
+        RoomService roomService = roomService(journal);
+        String creator = UUID.randomUUID().toString();
+        roomService.joinRoom("room", creator, "alice", null);
+        String token = roomService.getUserSession(creator).getResumeToken();
+        journal.shutdown();
+
+        RoomJournal reopened = Fixtures.journal(directory, 1);
+        RoomService restarted = roomService(reopened);
+        try {
+            // Any member knows the session id, but not the token
+            assertFalse(restarted.resumeSession(creator, null, UUID.randomUUID().toString()));
+            assertFalse(restarted.resumeSession(creator, "guess", UUID.randomUUID().toString()));
+
+            String resumed = UUID.randomUUID().toString();
+            assertTrue(restarted.resumeSession(creator, token, resumed));
+            assertEquals(resumed, restarted.getRoom("room").getCreatedBy());
+            assertFalse(restarted.resumeSession(creator, token, UUID.randomUUID().toString()));
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    void deletingARecoveredRoomForgetsSeatsNotYetResumed() throws Exception {
+        RoomJournal journal = Fixtures.journal(directory, 1);
+        RoomService roomService = roomService(journal);
+        String creator = UUID.randomUUID().toString();
+        String guest = UUID.randomUUID().toString();
+        roomService.joinRoom("room", creator, "alice", null);
+        roomService.joinRoom("room", guest, "bob", null);
+        String token = roomService.getUserSession(creator).getResumeToken();
+        journal.shutdown();
+
+        RoomJournal reopened = Fixtures.journal(directory, 1);
+        RoomService restarted = roomService(reopened);
+        try {
+            String resumed = UUID.randomUUID().toString();
+            assertTrue(restarted.resumeSession(creator, token, resumed));
+            restarted.deleteRoom("room", resumed);
+
+            // The guest's seat went with the room rather than lingering until the grace period ends
+            Set<String> recoveredSessions = Fixtures.get(restarted, "recoveredSessions");
+            assertEquals(Set.of(), recoveredSessions);
+            assertNull(restarted.getUserSession(guest));
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    void startsWithoutAJournalThatCannotBeOpened() throws Exception {
+        Path notADirectory = Files.createFile(directory.resolve("journal"));
+        RoomJournal journal = Fixtures.journal(notADirectory, 1);
+
+        RoomService roomService = roomService(journal);
+
+        assertFalse(journal.isEnabled());
+        assertDoesNotThrow(() -> roomService.joinRoom("room", UUID.randomUUID().toString(), "alice", null));
+    }
+
+    private List<Room> recover() throws IOException {
+        RoomJournal journal = Fixtures.journal(directory, 1);
+        try {
+            return journal.recover();
+        } finally {
+            journal.shutdown();
+        }
+    }
+
+    private RoomService roomService(RoomJournal journal) {
+        RoomService roomService = Fixtures.roomService(journal, expiry);
+        roomService.restoreFromJournal();
+        return roomService;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.meetus.service;
+
+import com.example.meetus.model.ChatMessage;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatHistoryServiceTest {
+
+    private ExpiryService expiry;
+    private RoomService roomService;
+    private ChatHistoryService history;
+
+    @BeforeEach
+    void setUp() {
+        expiry = Fixtures.expiryService(100);
+        roomService = Fixtures.roomService(expiry);
+        history = new ChatHistoryService(roomService);
+        Fixtures.set(history, "enabled", true);
+        Fixtures.set(history, "historySize", 4);
+        Fixtures.set(history, "maxBytes", Long.MAX_VALUE);
+        history.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiry.stop();
+    }
+
+    @Test
+    void neverReplaysALateMessageIntoARoomReusingTheId() throws Exception {
+        String alice = join("room", "alice");
+        history.record("room", "alice", "hello", 1L);
+        roomService.leaveRoom(alice);
+
+        // A chat message handled after the room went away
+        history.record("room", "alice", "late", 2L);
+        assertEquals(0, rings().size());
+        assertEquals(0L, usedBytes());
+
+        join("room", "bob");
+        assertEquals(List.of(), history.recentMessages("room"));
+    }
+
+    @Test
+    void evictsTheRoomWrittenLeastRecently() throws Exception {
+        for (String roomId : List.of("a", "b", "c")) {
+            join(roomId, "user");
+            history.record(roomId, "user", "first", 1L);
+        }
+        // One more message in a makes b the least recently written
+        history.record("a", "user", "second", 2L);
+
+        Fixtures.set(history, "maxBytes", usedBytes());
+        history.record("c", "user", "over the cap", 3L);
+
+        assertEquals(List.of("first", "second"), messages("a"));
+        assertEquals(List.of(), messages("b"));
+        assertEquals(List.of("first", "over the cap"), messages("c"));
+    }
+
+    @Test
+    void accountsOnlyForLiveRoomsUnderChurn() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    String roomId = "room-" + (i % 8);
+                    if (thread == 0) {
+                        // Rooms come and go under the writers
+                        try {
+                            String sessionId = join(roomId, "churn");
+                            roomService.leaveRoom(sessionId);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    } else {
+                        history.record(roomId, "writer", "message " + i, (long) i);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every room is gone again, so no ring and no byte may be left behind
+        assertEquals(0, roomService.getRoomCount());
+        assertEquals(0, rings().size());
+        assertEquals(0L, usedBytes());
+    }
+
+    private String join(String roomId, String username) throws Exception {
+        String sessionId = UUID.randomUUID().toString();
+        roomService.joinRoom(roomId, sessionId, username, null);
+        return sessionId;
+    }
+
+    private List<String> messages(String roomId) {
+        return history.recentMessages(roomId).stream().map(ChatMessage::getMessage).toList();
+    }
+
+    private Map<?, ?> rings() {
+        return Fixtures.get(history, "rings");
+    }
+
+    private long usedBytes() {
+        return Fixtures.<AtomicLong>get(history, "usedBytes").get();
+    }
+}
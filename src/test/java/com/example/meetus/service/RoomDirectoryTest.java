@@ -0,0 +1,159 @@
+package com.example.meetus.service;
+
+import com.example.meetus.model.RoomPage;
+import com.example.meetus.model.RoomQuery;
+import com.example.meetus.model.RoomSummary;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomDirectoryTest {
+
+    private static final int MAX_USERS = 10;
+
+    private ExpiryService expiry;
+    private final List<RoomDirectory> directories = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        expiry = Fixtures.expiryService(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        directories.forEach(RoomDirectory::stop);
+        expiry.stop();
+    }
+
+    @Test
+    void filteredPagesMatchAFullScan() throws Exception {
+        Random random = new Random(42);
+        RoomService roomService = roomService();
+        for (int i = 0; i < 2_000; i++) {
+            String roomId = "room-" + (char) ('a' + random.nextInt(4)) + "-" + i;
+            int users = 1 + random.nextInt(MAX_USERS);
+            join(roomService, roomId, users, random.nextInt(3) == 0 ? "secret" : null);
+        }
+        RoomDirectory directory = directory(roomService);
+        List<RoomSummary> all = directory.getRooms();
+        assertEquals(2_000, all.size());
+
+        for (int i = 0; i < 500; i++) {
+            RoomQuery query = new RoomQuery();
+            query.setHasPassword(random.nextInt(3) == 0 ? null : random.nextBoolean());
+            query.setNotFull(random.nextInt(3) == 0 ? null : random.nextBoolean());
+            query.setMinUsers(random.nextBoolean() ? null : random.nextInt(MAX_USERS + 2));
+            query.setMaxUsers(random.nextBoolean() ? null : random.nextInt(MAX_USERS + 2));
+            query.setPrefix(random.nextBoolean() ? null : "room-" + (char) ('a' + random.nextInt(5)));
+            query.setLimit(1 + random.nextInt(100));
+
+            // Walk every page, then compare with filtering the whole list
+            List<RoomSummary> paged = new ArrayList<>();
+            RoomPage page;
+            do {
+                page = directory.query(query);
+                paged.addAll(page.rooms());
+                query.setCursor(page.nextCursor());
+            } while (page.nextCursor() != null);
+
+            assertEquals(all.stream().filter(expected(query)).toList(), paged, query.toString());
+        }
+    }
+
+    @Test
+    void copiesTheRoomListOncePerVersion() throws Exception {
+        RoomService roomService = roomService();
+        join(roomService, "a", 1, null);
+        RoomDirectory directory = directory(roomService);
+
+        List<RoomSummary> rooms = directory.getRooms();
+        assertSame(rooms, directory.getRooms());
+
+        join(roomService, "b", 1, null);
+        directory.flush();
+        assertNotSame(rooms, directory.getRooms());
+        assertEquals(List.of("a", "b"), directory.getRooms().stream().map(RoomSummary::roomId).toList());
+    }
+
+    @Test
+    void filteredQueryLatencyDoesNotGrowWithRoomCount() throws Exception {
+        long small = medianQueryNanos(1_000);
+        long large = medianQueryNanos(100_000);
+
+        // A scan of the whole directory would be about 100 times slower at 100,000 rooms
+        assertTrue(large < 5 * small + 200_000, "1,000 rooms: " + small + " ns, 100,000 rooms: " + large + " ns");
+    }
+
+    // One room in 500 has a password and three members; the query asks for exactly those
+    private long medianQueryNanos(int rooms) throws Exception {
+        RoomService roomService = roomService();
+        for (int i = 0; i < rooms; i++) {
+            boolean sparse = i % 500 == 0;
+            join(roomService, String.format("room-%06d", i), sparse ? 3 : 1, sparse ? "secret" : null);
+        }
+        RoomDirectory directory = directory(roomService);
+
+        RoomQuery query = new RoomQuery();
+        query.setHasPassword(true);
+        query.setMinUsers(3);
+        query.setNotFull(true);
+        query.setLimit(50);
+        assertEquals(Math.min(50, rooms / 500), directory.query(query).rooms().size());
+
+        long[] samples = new long[2_000];
+        for (int warmup = 0; warmup < 2; warmup++) {
+            for (int i = 0; i < samples.length; i++) {
+                long started = System.nanoTime();
+                directory.query(query);
+                samples[i] = System.nanoTime() - started;
+            }
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static Predicate<RoomSummary> expected(RoomQuery query) {
+        return room -> (query.getHasPassword() == null || room.hasPassword() == query.getHasPassword())
+                && !(Boolean.TRUE.equals(query.getNotFull()) && room.userCount() >= MAX_USERS)
+                && (query.getMinUsers() == null || room.userCount() >= query.getMinUsers())
+                && (query.getMaxUsers() == null || room.userCount() <= query.getMaxUsers())
+                && (query.getPrefix() == null || room.roomId().startsWith(query.getPrefix()));
+    }
+
+    private RoomService roomService() {
+        RoomService roomService = Fixtures.roomService(expiry);
+        Fixtures.set(roomService, "maxUsersPerRoom", MAX_USERS);
+        return roomService;
+    }
+
+    private static void join(RoomService roomService, String roomId, int users, String password) throws Exception {
+        for (int u = 0; u < users; u++) {
+            roomService.joinRoom(roomId, UUID.randomUUID().toString(), "user-" + u, password);
+        }
+    }
+
+    private RoomDirectory directory(RoomService roomService) {
+        RoomDirectory directory = new RoomDirectory(roomService);
+        Fixtures.set(directory, "coalesceMs", 60_000L);
+        Fixtures.set(directory, "historySize", 256);
+        Fixtures.set(directory, "defaultPageSize", 50);
+        Fixtures.set(directory, "maxPageSize", 500);
+        directory.start();
+        directory.flush();
+        directories.add(directory);
+        return directory;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.meetus.service;
+
+import com.example.meetus.model.Room;
+import com.example.meetus.model.User;
+import com.example.meetus.persistence.RoomJournal;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Joins and leaves from many threads over a handful of rooms, so rooms are
+ * created, filled and emptied under contention. Afterwards the room and
+ * session tables must agree with each other and with a replay of the journal.
+ * Rooms are small enough that some joins find them full.
+ *
+ * This is a correctness run only; throughput under contention is measured by
+ * RoomServiceBenchmark in the benchmarks profile, with {@code -t <threads>}.
+ */
+class RoomServiceConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int ROOMS = 8;
+    private static final int MAX_USERS_PER_ROOM = 3;
+    private static final int SESSIONS_PER_THREAD = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    private Path directory;
+    private ExpiryService expiry;
+    private RoomJournal journal;
+    private RoomService roomService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("room-journal");
+        expiry = Fixtures.expiryService(100);
+        journal = journal(directory);
+        journal.recover();
+        roomService = Fixtures.roomService(journal, expiry);
+        Fixtures.set(roomService, "maxUsersPerRoom", MAX_USERS_PER_ROOM);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        expiry.stop();
+        journal.shutdown();
+    }
+
+    @Test
+    void concurrentJoinsAndLeavesKeepRoomsConsistent() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Outcomes outcomes = new Outcomes();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    churn(thread, outcomes);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Worker failed: " + failures);
+
+        // Every operation either joined, left or was turned away, and all three happened
+        assertEquals(THREADS * OPERATIONS_PER_THREAD,
+                outcomes.joined.get() + outcomes.left.get() + outcomes.rejected.get());
+        assertTrue(outcomes.joined.get() > 0);
+        assertTrue(outcomes.left.get() > 0);
+        assertTrue(outcomes.rejected.get() > 0, "No join ever found a room full");
+
+        assertTablesAgree();
+        assertJournalReplaysToLiveState();
+    }
+
+    private static final class Outcomes {
+        final AtomicLong joined = new AtomicLong();
+        final AtomicLong left = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+    }
+
+    // Each session belongs to one thread, so a session's own operations never race with each other
+    private void churn(int thread, Outcomes outcomes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] sessionIds = new String[SESSIONS_PER_THREAD];
+        for (int session = 0; session < SESSIONS_PER_THREAD; session++) {
+            sessionIds[session] = UUID.randomUUID().toString();
+        }
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            int session = random.nextInt(SESSIONS_PER_THREAD);
+            String sessionId = sessionIds[session];
+            if (roomService.getUserSession(sessionId) != null && random.nextBoolean()) {
+                roomService.leaveRoom(sessionId);
+                outcomes.left.incrementAndGet();
+                continue;
+            }
+            int room = random.nextInt(ROOMS);
+            try {
+                roomService.joinRoom("room-" + room, sessionId, "user-" + thread + "-" + session,
+                        room % 4 == 0 ? "secret-" + room : null);
+                outcomes.joined.incrementAndGet();
+            } catch (Exception e) {
+                assertTrue(e.getMessage().startsWith("Room is full"), e.getMessage());
+                outcomes.rejected.incrementAndGet();
+            }
+        }
+    }
+
+    private void assertTablesAgree() {
+        int seated = 0;
+        for (Room room : roomService.getAllRooms()) {
+            assertTrue(room.getUserCount() > 0, "Empty room " + room.getRoomId() + " left behind");
+            assertTrue(room.getUserCount() <= MAX_USERS_PER_ROOM);
+            for (User user : room.getUsers()) {
+                RoomService.UserSession session = roomService.getUserSession(user.getId());
+                assertNotNull(session, "Member " + user.getId() + " has no session");
+                assertSame(room, session.getRoom());
+            }
+            seated += room.getUserCount();
+        }
+        assertEquals(seated, roomService.getSessionCount());
+    }
+
+    private void assertJournalReplaysToLiveState() throws Exception {
+        journal.shutdown();
+        RoomJournal replay = journal(directory);
+        try {
+            assertEquals(membership(roomService.getAllRooms()), membership(replay.recover()));
+        } finally {
+            replay.shutdown();
+        }
+    }
+
+    private static Map<String, Set<String>> membership(List<Room> rooms) {
+        Map<String, Set<String>> membership = new TreeMap<>();
+        for (Room room : rooms) {
+            if (!room.isEmpty()) {
+                membership.put(room.getRoomId() + (room.hasPassword() ? " (password)" : ""),
+                        room.getUsers().stream().map(User::getId).collect(Collectors.toCollection(TreeSet::new)));
+            }
+        }
+        return membership;
+    }
+
+    private static RoomJournal journal(Path directory) {
+        return Fixtures.journal(directory, 64);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.meetus.service;
+
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionTableTest {
+
+    private static final String ID = "12345678-9abc-def0-1234-56789abcdef0";
+
+    @Test
+    void findsSessionsByStringAndBinaryId() {
+        SessionTable<String> table = new SessionTable<>();
+        table.put(ID, "alice");
+
+        assertEquals("alice", table.get(ID));
+        assertEquals("alice", table.get(ID.toUpperCase()));
+        assertEquals("alice", table.get(UUID.fromString(ID)));
+        assertEquals("alice", table.remove(ID));
+        assertNull(table.get(ID));
+    }
+
+    // Character.digit and UUID.fromString both read fullwidth digits as hex; a client id must not
+    @Test
+    void refusesNonAsciiDigits() {
+        SessionTable<String> table = new SessionTable<>();
+        table.put(ID, "alice");
+        String fullwidth = "１" + ID.substring(1);
+
+        assertNull(table.get(fullwidth));
+        assertNull(table.get("１-2-3-4-5"));
+        assertNull(table.remove(fullwidth));
+        assertEquals("alice", table.get(ID));
+        assertThrows(IllegalArgumentException.class, () -> table.put(fullwidth, "mallory"));
+    }
+
+    @Test
+    void growsAndKeepsEveryEntryReachable() {
+        SessionTable<String> table = new SessionTable<>();
+        int initialCapacity = capacity(table);
+        List<String> ids = randomIds(50_000);
+        for (String id : ids) {
+            table.put(id, id);
+        }
+
+        assertEquals(ids.size(), table.size());
+        assertTrue(capacity(table) >= 2 * ids.size(), "capacity " + capacity(table));
+        assertTrue(capacity(table) > initialCapacity);
+        for (String id : ids) {
+            assertEquals(id, table.get(id));
+            assertEquals(id, table.get(UUID.fromString(id)));
+        }
+    }
+
+    @Test
+    void findsEntriesPastRemovedOnes() {
+        SessionTable<String> table = new SessionTable<>();
+        List<String> ids = randomIds(20_000);
+        ids.forEach(id -> table.put(id, id));
+        // Removing every other entry leaves tombstones inside most probe runs
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertEquals(ids.get(i), table.remove(ids.get(i)));
+        }
+
+        assertEquals(ids.size() / 2, table.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (i % 2 == 0) {
+                assertNull(table.get(ids.get(i)));
+                assertNull(table.remove(ids.get(i)));
+            } else {
+                assertEquals(ids.get(i), table.get(ids.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void reusesRemovedSlotsInsteadOfGrowingWithEveryIdSeen() {
+        SessionTable<String> table = new SessionTable<>();
+        int rounds = 50;
+        int liveAtOnce = 1_000;
+
+        // Many times the table's capacity in distinct ids, but never more than 1,000 live at once
+        for (int round = 0; round < rounds; round++) {
+            List<String> ids = randomIds(liveAtOnce);
+            ids.forEach(id -> table.put(id, id));
+            ids.forEach(id -> assertEquals(id, table.remove(id)));
+        }
+
+        assertEquals(0, table.size());
+        // A sweep keeps live entries at most a quarter of a segment, and rounds land unevenly on segments,
+        // hence the slack; kept tombstones would instead need two slots for each of the 50,000 ids
+        assertTrue(capacity(table) <= 16 * liveAtOnce, "capacity " + capacity(table));
+    }
+
+    @Test
+    void readdsAnEntryAfterRemovingIt() {
+        SessionTable<String> table = new SessionTable<>();
+        table.put(ID, "alice");
+        assertEquals("alice", table.remove(ID));
+        assertNull(table.put(ID, "bob"));
+        assertEquals("bob", table.get(ID));
+        assertEquals(1, table.size());
+
+        // Replacing keeps one entry, and a conditional remove only takes the current value
+        assertEquals("bob", table.put(ID, "carol"));
+        assertEquals(1, table.size());
+        assertNull(table.remove(ID, "bob"));
+        assertEquals("carol", table.get(ID));
+        assertEquals("carol", table.remove(ID, "carol"));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void concurrentPutsAndRemovesKeepEachWritersEntries() throws Exception {
+        SessionTable<String> table = new SessionTable<>();
+        int writers = 4;
+        List<List<String>> idsByWriter = new ArrayList<>();
+        List<Map<String, String>> expected = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            idsByWriter.add(randomIds(2_000));
+            expected.add(new HashMap<>());
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Throwable> failures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<String> ids = idsByWriter.get(w);
+            Map<String, String> live = expected.get(w);
+            String writer = "writer-" + w;
+            threads.add(thread(failures, start, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50_000; i++) {
+                    String id = ids.get(random.nextInt(ids.size()));
+                    if (random.nextBoolean()) {
+                        String value = writer + ":" + i;
+                        assertEquals(live.put(id, value), table.put(id, value));
+                    } else {
+                        assertEquals(live.remove(id), table.remove(id));
+                    }
+                }
+            }));
+        }
+        // Readers only ever see an absent entry or one its own writer put
+        for (int r = 0; r < 2; r++) {
+            threads.add(thread(failures, start, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get()) {
+                    int w = random.nextInt(writers);
+                    List<String> ids = idsByWriter.get(w);
+                    String value = table.get(ids.get(random.nextInt(ids.size())));
+                    assertTrue(value == null || value.startsWith("writer-" + w + ":"), value);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads.subList(0, writers)) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Thread failed: " + failures);
+
+        int live = 0;
+        for (int w = 0; w < writers; w++) {
+            for (String id : idsByWriter.get(w)) {
+                assertEquals(expected.get(w).get(id), table.get(id));
+            }
+            live += expected.get(w).size();
+        }
+        assertEquals(live, table.size());
+    }
+
+    private static Thread thread(List<Throwable> failures, CountDownLatch start, Runnable body) {
+        return new Thread(() -> {
+            try {
+                start.await();
+                body.run();
+            } catch (Throwable e) {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            }
+        });
+    }
+
+    private static List<String> randomIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids;
+    }
+
+    // Slots across all segments
+    private static int capacity(SessionTable<?> table) {
+        int capacity = 0;
+        for (Object segment : (Object[]) Fixtures.get(table, "segments")) {
+            Object slots = Fixtures.get(segment, "slots");
+            capacity += ((Object[]) Fixtures.get(slots, "values")).length;
+        }
+        return capacity;
+    }
+}
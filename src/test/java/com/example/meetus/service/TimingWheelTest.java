@@ -0,0 +1,90 @@
+package com.example.meetus.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final int TIMERS = 2_000_000;
+    // Deadlines spread over the first four levels and into the fifth
+    private static final int MAX_DELAY_BITS = 24;
+
+    // The wheel is advanced by hand, one tick a minute, so scheduling time is noise within the first tick
+    @Test
+    void firesMillionsOfTimersOnTheirTickExactlyOnce() {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MINUTES);
+        Random random = new Random(42);
+        long[] delays = new long[TIMERS];
+        long[] firedAt = new long[TIMERS];
+        int[] fired = new int[TIMERS];
+        long[] now = new long[1];
+        TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[TIMERS];
+
+        for (int i = 0; i < TIMERS; i++) {
+            int timer = i;
+            delays[i] = random.nextLong(1L << random.nextInt(MAX_DELAY_BITS + 1));
+            timeouts[i] = wheel.schedule(() -> {
+                fired[timer]++;
+                firedAt[timer] = now[0];
+            }, delays[i], TimeUnit.MINUTES);
+        }
+        for (int i = 0; i < TIMERS; i += 10) {
+            timeouts[i].cancel();
+        }
+        assertEquals(TIMERS, wheel.size());
+
+        long lastTick = (1L << MAX_DELAY_BITS) + 1;
+        for (long tick = 1; tick <= lastTick; tick++) {
+            now[0] = tick;
+            wheel.advanceTo(tick);
+        }
+
+        for (int i = 0; i < TIMERS; i++) {
+            if (i % 10 == 0) {
+                assertEquals(0, fired[i], "cancelled timer " + i + " fired");
+                continue;
+            }
+            assertEquals(1, fired[i], "timer " + i + " fired " + fired[i] + " times");
+            // Due at the first tick boundary after the delay, and past-due ones on the first tick
+            long due = Math.max(1, delays[i]);
+            assertTrue(firedAt[i] >= due && firedAt[i] <= due + 1,
+                    "timer " + i + " with delay " + delays[i] + " fired on tick " + firedAt[i]);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void slowTaskDoesNotHoldUpLaterTicks() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            TimingWheel wheel = new TimingWheel(1, TimeUnit.MINUTES, workers);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch later = new CountDownLatch(1);
+            wheel.schedule(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 1, TimeUnit.MINUTES);
+            wheel.schedule(later::countDown, 3, TimeUnit.MINUTES);
+
+            // Returns although the first task is still blocked
+            wheel.advanceTo(10);
+
+            assertTrue(later.await(5, TimeUnit.SECONDS));
+            assertEquals(0, wheel.size());
+            release.countDown();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
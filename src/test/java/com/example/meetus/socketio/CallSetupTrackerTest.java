@@ -0,0 +1,157 @@
+package com.example.meetus.socketio;
+
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.socketio.CallSetupTracker.MediaKind;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallSetupTrackerTest {
+
+    private static final long STUCK_AFTER_MS = 300;
+    private static final long IDLE_TTL_MS = 400;
+
+    private ExpiryService expiry;
+    private CallSetupTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        expiry = Fixtures.expiryService(10);
+        tracker = new CallSetupTracker(expiry);
+        Fixtures.set(tracker, "enabled", true);
+        Fixtures.set(tracker, "maxTracked", 100);
+        Fixtures.set(tracker, "stuckAfterMs", STUCK_AFTER_MS);
+        Fixtures.set(tracker, "idleTtlMs", IDLE_TTL_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiry.stop();
+    }
+
+    @Test
+    void timesAFullNegotiationFromTheOffer() {
+        tracker.offerRelayed("alice", "bob", MediaKind.CALL);
+        tracker.answerRelayed("bob", "alice", MediaKind.CALL);
+        // Candidates count in either direction
+        tracker.iceRelayed("bob", "alice", MediaKind.CALL);
+        tracker.iceRelayed("alice", "bob", MediaKind.CALL);
+        // Another kind between the same sessions is a different negotiation
+        tracker.answerRelayed("bob", "alice", MediaKind.VIDEO);
+        tracker.sessionEnded("bob");
+
+        Map<String, Object> stats = tracker.getStats();
+        assertEquals(0, stats.get("tracked"));
+        assertEquals(1L, stats.get("started"));
+        assertEquals(1L, stats.get("answered"));
+        assertEquals(1L, histogram(stats, "offerToAnswerMillis").get("count"));
+        assertEquals(1L, histogram(stats, "offerToFirstIceMillis").get("count"));
+        assertEquals(1L, histogram(stats, "offerToLastIceMillis").get("count"));
+    }
+
+    @Test
+    void flagsANegotiationStuckWithoutAnAnswerOrWithoutIce() throws Exception {
+        tracker.offerRelayed("alice", "bob", MediaKind.CALL);
+        tracker.offerRelayed("carol", "dave", MediaKind.VIDEO);
+        tracker.answerRelayed("dave", "carol", MediaKind.VIDEO);
+        tracker.offerRelayed("erin", "frank", MediaKind.CALL);
+        tracker.answerRelayed("frank", "erin", MediaKind.CALL);
+        tracker.iceRelayed("erin", "frank", MediaKind.CALL);
+
+        await(() -> recentStuck().size() == 2);
+        Map<String, Object> stats = tracker.getStats();
+        assertEquals(1L, stats.get("stuckAwaitingAnswer"));
+        assertEquals(1L, stats.get("stuckAwaitingIce"));
+        List<Map<String, Object>> stuck = recentStuck();
+        assertEquals(List.of("alice", "carol"), stuck.stream().map(entry -> entry.get("offerer")).sorted().toList());
+        Map<String, Object> video = stuck.stream().filter(entry -> "carol".equals(entry.get("offerer"))).findFirst()
+                .orElseThrow();
+        assertEquals("video", video.get("kind"));
+        assertEquals("awaiting-ice", video.get("phase"));
+        assertTrue((Long) video.get("ageMillis") >= STUCK_AFTER_MS);
+    }
+
+    @Test
+    void renegotiationRestartsTheStuckTimer() throws Exception {
+        tracker.offerRelayed("alice", "bob", MediaKind.CALL);
+        Thread.sleep(STUCK_AFTER_MS / 2);
+        long reofferedAt = System.currentTimeMillis();
+        tracker.offerRelayed("alice", "bob", MediaKind.CALL);
+
+        await(() -> !recentStuck().isEmpty());
+        Map<String, Object> stats = tracker.getStats();
+        assertEquals(1L, stats.get("renegotiated"));
+        assertEquals(1, stats.get("tracked"));
+        // Flagged a full stuck interval after the second offer, not the first
+        Map<String, Object> stuck = recentStuck().get(0);
+        assertTrue((Long) stuck.get("flaggedAt") - reofferedAt >= STUCK_AFTER_MS - 20, stuck.toString());
+        assertTrue((Long) stuck.get("ageMillis") >= STUCK_AFTER_MS);
+        Thread.sleep(STUCK_AFTER_MS);
+        assertEquals(1, recentStuck().size());
+    }
+
+    @Test
+    void expiresANegotiationOnlyOnceItGoesIdle() throws Exception {
+        tracker.offerRelayed("alice", "bob", MediaKind.CALL);
+        tracker.answerRelayed("bob", "alice", MediaKind.CALL);
+        long keepAliveUntil = System.currentTimeMillis() + 2 * IDLE_TTL_MS;
+        while (System.currentTimeMillis() < keepAliveUntil) {
+            tracker.iceRelayed("bob", "alice", MediaKind.CALL);
+            Thread.sleep(IDLE_TTL_MS / 8);
+        }
+        assertEquals(0L, tracker.getStats().get("expired"));
+        assertEquals(1, tracker.getStats().get("tracked"));
+
+        await(() -> (Long) tracker.getStats().get("expired") == 1L);
+        assertEquals(0, tracker.getStats().get("tracked"));
+        assertEquals(1L, histogram(tracker.getStats(), "offerToLastIceMillis").get("count"));
+        // Signaling after expiry finds nothing to update
+        tracker.answerRelayed("bob", "alice", MediaKind.CALL);
+        assertEquals(1L, tracker.getStats().get("answered"));
+    }
+
+    @Test
+    void stopsTrackingAtTheCap() {
+        Fixtures.set(tracker, "maxTracked", 2);
+        tracker.offerRelayed("alice", "bob", MediaKind.CALL);
+        tracker.offerRelayed("alice", "carol", MediaKind.CALL);
+        tracker.offerRelayed("alice", "dave", MediaKind.CALL);
+
+        Map<String, Object> stats = tracker.getStats();
+        assertEquals(2, stats.get("tracked"));
+        assertEquals(1L, stats.get("untracked"));
+
+        // Ending either side frees the slots
+        tracker.sessionEnded("alice");
+        tracker.offerRelayed("dave", "erin", MediaKind.CALL);
+        assertEquals(1, tracker.getStats().get("tracked"));
+    }
+
+    private List<Map<String, Object>> recentStuck() {
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> stuck = (List<Map<String, Object>>) tracker.getStats().get("recentStuck");
+        return stuck;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> histogram(Map<String, Object> stats, String name) {
+        return (Map<String, Object>) stats.get(name);
+    }
+
+    // Stuck checks and expiry run on the timing wheel
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.meetus.socketio;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("com.example.meetus.events");
+    private final Capture capture = new Capture();
+
+    // Collects the rendered lines; optionally holds the drainer inside its first write
+    private static final class Capture extends AppenderBase<ILoggingEvent> {
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch release;
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            lines.add(event.getFormattedMessage());
+            entered.countDown();
+            CountDownLatch gate = release;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<String> events(String event) {
+            return lines.stream().filter(line -> line.startsWith("event=" + event + " ")).toList();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        capture.start();
+        logger.addAppender(capture);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(capture);
+        logger.setLevel(null);
+        logger.setAdditive(true);
+    }
+
+    @Test
+    void rateLimitedLinesAreSummarised() throws Exception {
+        EventLog eventLog = eventLog("1000/1000", "ice-candidate:1/3", 8192);
+        for (int i = 0; i < 10; i++) {
+            eventLog.log("ice-candidate", "from", "alice", "to", "bob");
+        }
+        eventLog.log("offer", "from", "alice", "to", "bob");
+        eventLog.stop();
+
+        assertEquals(3, capture.events("ice-candidate").size());
+        assertEquals(1, capture.events("offer").size());
+        // Only the limited event shows up in the summary, logged when the drainer stops
+        assertEquals(List.of("event=log-suppressed interval_ms=60000 ice-candidate=7"),
+                capture.events("log-suppressed"));
+    }
+
+    @Test
+    void fullRingCountsWhatItDrops() throws Exception {
+        capture.release = new CountDownLatch(1);
+        EventLog eventLog = eventLog("1000/1000", "", 4);
+        eventLog.log("offer", "n", "0");
+        // The drainer has freed the first slot and is stuck writing it out
+        assertTrue(capture.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 7; i++) {
+            eventLog.log("offer", "n", String.valueOf(i));
+        }
+        capture.release.countDown();
+        eventLog.stop();
+
+        assertEquals(List.of("0", "1", "2", "3", "4"), capture.events("offer").stream()
+                .map(line -> line.substring(line.indexOf("n=") + 2, line.indexOf(" ts=")))
+                .toList());
+        assertEquals(List.of("event=log-suppressed interval_ms=60000 ring-full=3"), capture.events("log-suppressed"));
+    }
+
+    @Test
+    void logsNumbersWithoutBoxing() throws Exception {
+        EventLog eventLog = eventLog("1000000/1000000", "", 8192);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 1_000; i++) {
+            eventLog.log("chat-message", "from", "alice", "room", "room", "length", 1_000 + i);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1_000; i++) {
+            eventLog.log("chat-message", "from", "alice", "room", "room", "length", 1_000 + i);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        eventLog.stop();
+
+        // Boxing each length allocated 24 bytes per call, 24 KB here
+        assertTrue(allocated < 1_024, "allocated " + allocated + " bytes");
+        assertTrue(capture.events("chat-message").get(0).contains(" length=1000 "));
+    }
+
+    private static EventLog eventLog(String rate, String eventRates, int capacity) {
+        EventLog eventLog = new EventLog();
+        Fixtures.set(eventLog, "defaultRate", rate);
+        Fixtures.set(eventLog, "eventRates", eventRates);
+        Fixtures.set(eventLog, "queueCapacity", capacity);
+        Fixtures.set(eventLog, "batchSize", 256);
+        Fixtures.set(eventLog, "summaryIntervalMs", 60_000L);
+        eventLog.start();
+        return eventLog;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventMetricsTest {
+
+    private final SocketIOServer server = new SocketIOServer(new Configuration());
+    private final AtomicInteger handled = new AtomicInteger();
+    private final DataListener<String> handler = (client, data, ackSender) -> handled.incrementAndGet();
+
+    private ExpiryService expiry;
+    private RoomService roomService;
+    private EventMetrics metrics;
+    private FakeClient client;
+
+    @BeforeEach
+    void setUp() {
+        expiry = Fixtures.expiryService(100);
+        roomService = Fixtures.roomService(expiry);
+        metrics = new EventMetrics(server, roomService);
+        Fixtures.set(metrics, "enabled", true);
+        Fixtures.set(metrics, "latencySample", 16);
+        client = FakeClient.recording(server);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiry.stop();
+    }
+
+    @Test
+    void countsEveryArrivalButTimesOnlyASample() throws Exception {
+        DataListener<String> listener = metrics.received("chat-message", metrics.timed("chat-message", handler));
+        for (int i = 0; i < 16_000; i++) {
+            listener.onData(client, "hello", null);
+        }
+
+        Map<String, Object> chat = event("chat-message");
+        assertEquals(16_000, handled.get());
+        assertEquals(16_000L, chat.get("received"));
+        // One in 16 on average; the binomial spread here is about 30
+        long sampled = (Long) latency(chat).get("count");
+        assertTrue(sampled > 800 && sampled < 1_200, "sampled " + sampled);
+    }
+
+    @Test
+    void timesEveryEventWithASampleOfOne() throws Exception {
+        Fixtures.set(metrics, "latencySample", 1);
+        DataListener<String> listener = metrics.timed("offer", handler);
+        for (int i = 0; i < 100; i++) {
+            listener.onData(client, "sdp", null);
+        }
+
+        Map<String, Object> latency = latency(event("offer"));
+        assertEquals(100L, latency.get("count"));
+        assertTrue((Double) latency.get("max") >= (Double) latency.get("p50"));
+    }
+
+    @Test
+    void recordsRelaysFanOutAndFailedLookups() {
+        metrics.broadcast("chat-message", 3);
+        metrics.broadcast("chat-message", 5);
+        metrics.relayed("offer");
+        metrics.lookupFailed("offer");
+
+        Map<String, Object> chat = event("chat-message");
+        assertEquals(2L, chat.get("relayed"));
+        assertEquals(0L, chat.get("received"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fanOut = (Map<String, Object>) chat.get("fanOut");
+        assertEquals(2L, fanOut.get("count"));
+        assertEquals(4.0, fanOut.get("mean"));
+        assertEquals(5.0, fanOut.get("max"));
+        // Histograms only appear for what the event was used for
+        assertFalse(chat.containsKey("latencyMicros"));
+
+        Map<String, Object> offer = event("offer");
+        assertEquals(1L, offer.get("relayed"));
+        assertEquals(1L, offer.get("failedLookups"));
+        assertFalse(offer.containsKey("fanOut"));
+    }
+
+    @Test
+    void readsRoomAndSessionGaugesWhenSnapshotted() throws Exception {
+        String carol = UUID.randomUUID().toString();
+        roomService.joinRoom("one", UUID.randomUUID().toString(), "alice", null);
+        roomService.joinRoom("one", UUID.randomUUID().toString(), "bob", null);
+        roomService.joinRoom("two", carol, "carol", null);
+
+        Map<String, Object> stats = metrics.getStats();
+        assertEquals(1, stats.get("connectedSessions"));
+        assertEquals(3, stats.get("seatedSessions"));
+        assertEquals(2, stats.get("activeRooms"));
+        assertEquals(Map.of(1, 1, 2, 1), stats.get("roomsByUserCount"));
+
+        roomService.leaveRoom(carol);
+        assertEquals(Map.of(2, 1), metrics.getStats().get("roomsByUserCount"));
+    }
+
+    @Test
+    void scrapesTheSameCountersAsPrometheusText() throws Exception {
+        DataListener<String> listener = metrics.received("chat-message", handler);
+        listener.onData(client, "hello", null);
+        listener.onData(client, "again", null);
+        metrics.broadcast("chat-message", 4);
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("meetus_events_received_total{event=\"chat-message\"} 2\n"), scrape);
+        assertTrue(scrape.contains("meetus_events_relayed_total{event=\"chat-message\"} 1\n"), scrape);
+        assertTrue(scrape.contains("meetus_relay_fan_out{event=\"chat-message\",quantile=\"0.5\"} 4.0\n"), scrape);
+        assertTrue(scrape.contains("meetus_relay_fan_out_count{event=\"chat-message\"} 1\n"), scrape);
+    }
+
+    @Test
+    void leavesListenersUnwrappedWhenDisabled() {
+        Fixtures.set(metrics, "enabled", false);
+
+        assertSame(handler, metrics.received("chat-message", handler));
+        assertSame(handler, metrics.timed("chat-message", handler));
+        metrics.broadcast("chat-message", 3);
+        assertEquals(Map.of(), metrics.getStats().get("events"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> event(String name) {
+        return (Map<String, Object>) ((Map<String, Object>) metrics.getStats().get("events")).get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> latency(Map<String, Object> event) {
+        return (Map<String, Object>) event.get("latencyMicros");
+    }
+}
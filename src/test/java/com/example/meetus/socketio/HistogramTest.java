@@ -0,0 +1,118 @@
+package com.example.meetus.socketio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void valuesBelowThirtyTwoGetABucketEach() {
+        for (int value = 0; value < 32; value++) {
+            assertEquals(value, Histogram.indexOf(value));
+            assertEquals(value, Histogram.highestValueIn(value));
+        }
+    }
+
+    @Test
+    void splitsEveryPowerOfTwoIntoThirtyTwoSubBuckets() {
+        // 32..63 still one value wide
+        assertEquals(32, Histogram.indexOf(32));
+        assertEquals(63, Histogram.indexOf(63));
+        // 64..127 two values wide
+        assertEquals(64, Histogram.indexOf(64));
+        assertEquals(64, Histogram.indexOf(65));
+        assertEquals(65, Histogram.indexOf(66));
+        assertEquals(65, Histogram.highestValueIn(64));
+        assertEquals(127, Histogram.highestValueIn(95));
+        assertEquals(96, Histogram.indexOf(128));
+
+        for (int exponent = 6; exponent < 62; exponent++) {
+            long power = 1L << exponent;
+            int first = Histogram.indexOf(power);
+            assertEquals(power - 1, Histogram.highestValueIn(first - 1), "below 2^" + exponent);
+            assertEquals(first + 31, Histogram.indexOf(2 * power - 1), "within 2^" + exponent);
+            assertEquals(power + (power >> 5) - 1, Histogram.highestValueIn(first), "width at 2^" + exponent);
+        }
+    }
+
+    @Test
+    void bucketsTileTheRangeAndStayWithinThreePercent() {
+        for (int index = 0; index < Histogram.indexOf(1L << 40); index++) {
+            long highest = Histogram.highestValueIn(index);
+            assertEquals(index, Histogram.indexOf(highest));
+            assertEquals(index + 1, Histogram.indexOf(highest + 1));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong(1L << 50);
+            long reported = Histogram.highestValueIn(Histogram.indexOf(value));
+            assertTrue(reported >= value && reported - value <= value / 32, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void clampsValuesAboveTheMaximumIntoTheTopBucket() {
+        Histogram histogram = new Histogram(1_000);
+        histogram.record(1_000);
+        histogram.record(5_000);
+        histogram.record(1_000_000);
+
+        Map<String, Object> snapshot = histogram.snapshot(1.0);
+        assertEquals(3L, snapshot.get("count"));
+        // The top bucket is the one holding 1000, i.e. 992..1007
+        assertEquals(1_007.0, snapshot.get("p50"));
+        assertEquals(1_007.0, snapshot.get("p999"));
+        // Mean and max are exact, not bucketed
+        assertEquals(335_333.0, (double) snapshot.get("mean"), 1.0);
+        assertEquals(1_000_000.0, snapshot.get("max"));
+    }
+
+    @Test
+    void recordsNegativeValuesAsZero() {
+        Histogram histogram = new Histogram(1_000);
+        histogram.record(-7);
+
+        Map<String, Object> snapshot = histogram.snapshot(1.0);
+        assertEquals(1L, snapshot.get("count"));
+        assertEquals(0.0, snapshot.get("p50"));
+        assertEquals(0.0, snapshot.get("mean"));
+        assertEquals(0.0, snapshot.get("max"));
+    }
+
+    @Test
+    void readsPercentilesBackFromTheBuckets() {
+        Histogram histogram = new Histogram(1_000_000);
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        Map<String, Object> snapshot = histogram.snapshot(1.0);
+        assertEquals(100L, snapshot.get("count"));
+        assertEquals(50.5, snapshot.get("mean"));
+        assertEquals(50.0, snapshot.get("p50"));
+        // 90 shares the bucket 90..91
+        assertEquals(91.0, snapshot.get("p90"));
+        assertEquals(99.0, snapshot.get("p99"));
+        assertEquals(101.0, snapshot.get("p999"));
+        assertEquals(100.0, snapshot.get("max"));
+
+        Map<String, Object> scaled = histogram.snapshot(10.0);
+        assertEquals(5.05, scaled.get("mean"));
+        assertEquals(5.0, scaled.get("p50"));
+        assertEquals(10.0, scaled.get("max"));
+    }
+
+    @Test
+    void reportsZerosWhenEmpty() {
+        Map<String, Object> snapshot = new Histogram(1_000).snapshot(1_000.0);
+        assertEquals(0L, snapshot.get("count"));
+        assertEquals(0.0, snapshot.get("mean"));
+        assertEquals(0.0, snapshot.get("p99"));
+        assertEquals(0.0, snapshot.get("max"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.meetus.cluster.ClusterRelay;
+import com.example.meetus.cluster.InMemoryClusterBus;
+import com.example.meetus.cluster.InMemoryClusterDirectory;
+import com.example.meetus.model.OutboundEvents.IceCandidates;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IceCandidateBatcherTest {
+
+    private ExpiryService expiry;
+    private ClusterRelay clusterRelay;
+    private CallSetupTracker callSetupTracker;
+    private FakeClient target;
+    private String targetId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        expiry = Fixtures.expiryService(100);
+        SocketIOServer server = new SocketIOServer(new Configuration());
+        RoomService roomService = Fixtures.roomService(expiry);
+        EventMetrics eventMetrics = new EventMetrics(server, roomService);
+        clusterRelay = new ClusterRelay(server, InMemoryClusterBus.shared(), InMemoryClusterDirectory.shared(),
+                new OutboundQueues(server), roomService, eventMetrics);
+
+        callSetupTracker = new CallSetupTracker(expiry);
+        Fixtures.set(callSetupTracker, "enabled", true);
+        Fixtures.set(callSetupTracker, "maxTracked", 100);
+        Fixtures.set(callSetupTracker, "stuckAfterMs", 60_000L);
+        Fixtures.set(callSetupTracker, "idleTtlMs", 60_000L);
+
+        target = FakeClient.recording(server);
+        targetId = target.getSessionId().toString();
+        roomService.joinRoom("room", targetId, "bob", null, target);
+    }
+
+    @AfterEach
+    void tearDown() {
+        expiry.stop();
+    }
+
+    @Test
+    void sendsFullBatchAtOnceAndRemainderAfterWindow() throws Exception {
+        IceCandidateBatcher batcher = batcher(true, 50, 3);
+        try {
+            for (int i = 0; i < 4; i++) {
+                batcher.add("ice-candidates", "alice", targetId, "candidate-" + i);
+            }
+            // Duplicates within a window are dropped
+            batcher.add("ice-candidates", "alice", targetId, "candidate-3");
+
+            List<Object> sent = target.payloadsOf("ice-candidates");
+            assertEquals(1, sent.size());
+            assertEquals(List.of("candidate-0", "candidate-1", "candidate-2"), ((IceCandidates) sent.get(0)).candidates());
+
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (target.payloadsOf("ice-candidates").size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            sent = target.payloadsOf("ice-candidates");
+            assertEquals(2, sent.size());
+            assertEquals(List.of("candidate-3"), ((IceCandidates) sent.get(1)).candidates());
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void countsIceForCallSetupOnlyWhenRelayed() throws Exception {
+        IceCandidateBatcher batcher = batcher(true, 50, 1);
+        try {
+            String missing = "00000000-0000-0000-0000-000000000001";
+            callSetupTracker.offerRelayed("alice", missing, CallSetupTracker.MediaKind.CALL);
+            callSetupTracker.offerRelayed("alice", targetId, CallSetupTracker.MediaKind.CALL);
+
+            batcher.add("ice-candidates", "alice", missing, "candidate-0");
+            assertEquals(0L, firstIceCount());
+
+            batcher.add("ice-candidates", "alice", targetId, "candidate-0");
+            assertEquals(1L, firstIceCount());
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long firstIceCount() {
+        Map<String, Object> firstIce = (Map<String, Object>) callSetupTracker.getStats().get("offerToFirstIceMillis");
+        return (long) firstIce.get("count");
+    }
+
+    @Test
+    void startsNoFlusherWhenDisabled() {
+        IceCandidateBatcher batcher = batcher(false, 50, 3);
+        assertNull(Fixtures.get(batcher, "flusher"));
+        assertTrue(target.getSent().isEmpty());
+        batcher.shutdown();
+    }
+
+    private IceCandidateBatcher batcher(boolean enabled, long windowMs, int maxBatchSize) {
+        IceCandidateBatcher batcher = new IceCandidateBatcher(clusterRelay, callSetupTracker);
+        Fixtures.set(batcher, "enabled", enabled);
+        Fixtures.set(batcher, "windowMs", windowMs);
+        Fixtures.set(batcher, "maxBatchSize", maxBatchSize);
+        batcher.start();
+        return batcher;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.meetus.model.OutboundEvents.UserPresence;
+import com.example.meetus.model.RawJson;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.FakeClient.Sent;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundQueuesTest {
+
+    private static final SocketIOServer server = new SocketIOServer(new Configuration());
+
+    private static final int HIGH_WATERMARK = 4;
+    private static final int LOW_WATERMARK = 2;
+
+    private final OutboundQueues outboundQueues = new OutboundQueues(server);
+
+    @AfterEach
+    void tearDown() {
+        outboundQueues.stop();
+    }
+
+    @Test
+    void encodesOnceForEveryRecipientWhenTheExcludedClientHasLeft() {
+        FakeClient first = member("room-left");
+        FakeClient second = member("room-left");
+        // e.g. user-left after a disconnect: the leaver is excluded but no longer in the room
+        FakeClient leaver = FakeClient.recording(server);
+
+        int recipients = outboundQueues.sendToRoom("room-left", "user-left",
+                new UserPresence(leaver.getSessionId().toString(), "carol"), leaver);
+
+        assertEquals(2, recipients);
+        Object sentToFirst = first.payloadsOf("user-left").get(0);
+        assertInstanceOf(RawJson.class, sentToFirst);
+        assertSame(sentToFirst, second.payloadsOf("user-left").get(0));
+        assertEquals(List.of(), leaver.getSent());
+    }
+
+    @Test
+    void sendsTheRecordItselfToASingleRecipient() {
+        FakeClient sender = member("room-pair");
+        FakeClient other = member("room-pair");
+        UserPresence presence = new UserPresence(sender.getSessionId().toString(), "alice");
+
+        assertEquals(1, outboundQueues.sendToRoom("room-pair", "user-joined", presence, sender));
+        assertEquals(List.of(presence), other.payloadsOf("user-joined"));
+        assertEquals(List.of(), sender.getSent());
+    }
+
+    @Test
+    void congestionStartsAtTheHighWatermarkAndEndsAtTheLowWatermark() {
+        start("drop-oldest-chat", 100);
+        FakeClient client = FakeClient.recording(server);
+        client.setWritable(false);
+
+        sendAll(client, "chat-message", "1", "2", "3", "4");
+        assertEquals(0, stat("congestedSessions"));
+        // The fifth frame finds the queue at the high watermark
+        outboundQueues.send(client, "chat-message", "5");
+        assertEquals(1, stat("congestedSessions"));
+        assertEquals(1L, stat("droppedFrames"));
+
+        // Drained to 3, still above the low watermark, so chat is still evicted
+        client.setWritableFor(1);
+        outboundQueues.drainAll();
+        assertEquals(1, stat("congestedSessions"));
+        outboundQueues.send(client, "chat-message", "6");
+        assertEquals(2L, stat("droppedFrames"));
+
+        // Drained to 2, the low watermark, so the next frame is simply queued
+        client.setWritableFor(1);
+        outboundQueues.drainAll();
+        assertEquals(0, stat("congestedSessions"));
+        outboundQueues.send(client, "chat-message", "7");
+        assertEquals(2L, stat("droppedFrames"));
+
+        client.setWritable(true);
+        outboundQueues.drainAll();
+        assertEquals(List.of("2", "4", "5", "6", "7"), client.payloadsOf("chat-message"));
+        assertEquals(0, stat("queuedSessions"));
+        assertEquals(0L, stat("queuedFrames"));
+    }
+
+    @Test
+    void coalescePolicyKeepsOnlyTheNewestStateFrame() {
+        start("coalesce", 100);
+        FakeClient client = FakeClient.recording(server);
+        client.setWritable(false);
+
+        sendAll(client, "chat-message", "1", "2", "3", "4");
+        outboundQueues.send(client, "room-list", "list-1");
+        outboundQueues.send(client, "offer", "offer-1");
+        outboundQueues.send(client, "room-list", "list-2");
+        outboundQueues.send(client, "chat-message", "5");
+        outboundQueues.send(client, "ice-candidate", "ice-1");
+
+        client.setWritable(true);
+        outboundQueues.drainAll();
+        // Signaling first, then bulk in order, with only the newest room list
+        assertEquals(List.of(
+                new Sent("offer", "offer-1"), new Sent("ice-candidate", "ice-1"),
+                new Sent("chat-message", "1"), new Sent("chat-message", "2"),
+                new Sent("chat-message", "3"), new Sent("chat-message", "4"),
+                new Sent("room-list", "list-2"), new Sent("chat-message", "5")), client.getSent());
+        assertEquals(1L, stat("coalescedFrames"));
+        assertEquals(0L, stat("droppedFrames"));
+    }
+
+    @Test
+    void dropOldestChatPolicyEvictsChatButNeverSignaling() {
+        start("drop-oldest-chat", 100);
+        FakeClient client = FakeClient.recording(server);
+        client.setWritable(false);
+
+        sendAll(client, "chat-message", "1", "2", "3", "4");
+        sendAll(client, "offer", "offer-1", "offer-2", "offer-3");
+        outboundQueues.send(client, "chat-message", "5");
+        outboundQueues.send(client, "user-joined", "carol");
+        sendAll(client, "ice-candidate", "ice-1", "ice-2");
+
+        client.setWritable(true);
+        outboundQueues.drainAll();
+        assertEquals(List.of("offer-1", "offer-2", "offer-3"), client.payloadsOf("offer"));
+        assertEquals(List.of("ice-1", "ice-2"), client.payloadsOf("ice-candidate"));
+        // Each bulk frame sent while congested evicted the oldest chat
+        assertEquals(List.of("3", "4", "5"), client.payloadsOf("chat-message"));
+        assertEquals(List.of("carol"), client.payloadsOf("user-joined"));
+        assertEquals(2L, stat("droppedFrames"));
+    }
+
+    @Test
+    void disconnectPolicyDropsTheSessionAtTheHighWatermark() {
+        start("disconnect", 100);
+        FakeClient client = FakeClient.recording(server);
+        client.setWritable(false);
+
+        sendAll(client, "chat-message", "1", "2", "3", "4");
+        assertTrue(client.isChannelOpen());
+        outboundQueues.send(client, "offer", "offer-1");
+
+        assertFalse(client.isChannelOpen());
+        assertEquals(1L, stat("slowConsumerDisconnects"));
+        assertEquals(4L, stat("droppedFrames"));
+        assertEquals(0L, stat("queuedFrames"));
+        assertEquals(0, stat("queuedSessions"));
+        client.setWritable(true);
+        outboundQueues.drainAll();
+        assertEquals(List.of(), client.getSent());
+    }
+
+    @Test
+    void signalingThatReachesTheHardLimitDisconnectsEvenWhenCoalescing() {
+        start("coalesce", 6);
+        FakeClient client = FakeClient.recording(server);
+        client.setWritable(false);
+
+        sendAll(client, "ice-candidate", "1", "2", "3", "4", "5", "6");
+        // Nothing signaling can be dropped to make room, so the seventh frame ends the session
+        assertTrue(client.isChannelOpen());
+        assertEquals(0L, stat("droppedFrames"));
+        outboundQueues.send(client, "ice-candidate", "7");
+
+        assertFalse(client.isChannelOpen());
+        assertEquals(1L, stat("slowConsumerDisconnects"));
+        assertEquals(6L, stat("droppedFrames"));
+    }
+
+    // The drain tick is pushed out of the way; tests drain by hand
+    private void start(String policy, int maxQueued) {
+        Fixtures.set(outboundQueues, "policyName", policy);
+        Fixtures.set(outboundQueues, "highWatermark", HIGH_WATERMARK);
+        Fixtures.set(outboundQueues, "lowWatermark", LOW_WATERMARK);
+        Fixtures.set(outboundQueues, "maxQueued", maxQueued);
+        Fixtures.set(outboundQueues, "drainIntervalMs", 60_000L);
+        outboundQueues.start();
+    }
+
+    private void sendAll(FakeClient client, String event, String... payloads) {
+        for (String payload : payloads) {
+            outboundQueues.send(client, event, payload);
+        }
+    }
+
+    private Object stat(String name) {
+        return outboundQueues.getStats().get(name);
+    }
+
+    private static FakeClient member(String room) {
+        FakeClient client = FakeClient.recording(server);
+        client.joinRoom(room);
+        return client;
+    }
+}
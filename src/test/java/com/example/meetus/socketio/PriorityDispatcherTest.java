@@ -0,0 +1,285 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.listener.DisconnectListener;
+import com.example.meetus.model.Room;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityDispatcherTest {
+
+    private static final int FLOOD_MESSAGES = 1000;
+    private static final long CHAT_WORK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private static final SocketIOServer server = new SocketIOServer(new Configuration());
+
+    @Test
+    void answersAheadOfAChatFlood() throws Exception {
+        long behindFlood = timeToAnswer(dispatcher(false, false));
+        long withPriority = timeToAnswer(dispatcher(true, false));
+
+        // Without priority the offer waits for the whole flood on the event loop
+        assertTrue(behindFlood >= FLOOD_MESSAGES * CHAT_WORK_NANOS, "without priority: " + behindFlood + " ns");
+        assertTrue(withPriority < behindFlood / 10,
+                "with priority: " + withPriority + " ns, without: " + behindFlood + " ns");
+    }
+
+    @Test
+    void holdsSignalingBehindAPendingJoinOnBulkLanes() throws Exception {
+        assertOfferRunsAfterJoin(dispatcher(true, false));
+    }
+
+    @Test
+    void holdsSignalingBehindAPendingJoinOnVirtualThreads() throws Exception {
+        assertOfferRunsAfterJoin(dispatcher(true, true));
+    }
+
+    // The join goes to a room shard while the offer would run inline on the event loop
+    @Test
+    void holdsSignalingBehindAPendingJoinOnRoomShards() throws Exception {
+        RoomShards roomShards = new RoomShards();
+        Fixtures.set(roomShards, "enabled", true);
+        Fixtures.set(roomShards, "shardCount", 2);
+        roomShards.start();
+        PriorityDispatcher dispatcher = dispatcher(false, false);
+        Fixtures.set(dispatcher, "roomActors", true);
+        try {
+            assertOfferRunsAfterJoin(dispatcher,
+                    listener -> roomShards.joining(roomId -> roomId, sessionId -> "room", listener));
+        } finally {
+            roomShards.stop();
+        }
+    }
+
+    @Test
+    void dropsLateEventsInsteadOfRecreatingTheSessionExecutor() throws Exception {
+        PriorityDispatcher dispatcher = dispatcher(false, true);
+        try {
+            FakeClient client = FakeClient.recording(server);
+            AtomicInteger handled = new AtomicInteger();
+            CompletableFuture<Void> disconnected = new CompletableFuture<>();
+            DataListener<String> chat = dispatcher.bulk((sender, message, ackSender) -> handled.incrementAndGet());
+            DisconnectListener disconnect = dispatcher.bulk((DisconnectListener) closed -> disconnected.complete(null));
+
+            chat.onData(client, "before", null);
+            disconnect.onDisconnect(client);
+            disconnected.get(5, TimeUnit.SECONDS);
+            chat.onData(client, "after", null);
+            Thread.sleep(50);
+
+            assertEquals(1, handled.get());
+            assertTrue(Fixtures.<Map<?, ?>>get(dispatcher, "sessionExecutors").isEmpty());
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    // With room actors the disconnect runs on a room shard instead of the session's executor
+    @Test
+    void retiresTheSessionExecutorOnADisconnectRunElsewhere() throws Exception {
+        PriorityDispatcher dispatcher = dispatcher(false, true);
+        try {
+            FakeClient client = FakeClient.recording(server);
+            AtomicInteger handled = new AtomicInteger();
+            DataListener<String> offer = dispatcher.signaling((caller, sdp, ackSender) -> handled.incrementAndGet());
+            DisconnectListener disconnect = dispatcher.retiring(closed -> {
+            });
+
+            offer.onData(client, "offer-1", null);
+            awaitCount(handled, 1);
+            assertEquals(1, Fixtures.<Map<?, ?>>get(dispatcher, "sessionExecutors").size());
+
+            disconnect.onDisconnect(client);
+            offer.onData(client, "offer-2", null);
+            Thread.sleep(50);
+
+            assertEquals(1, handled.get());
+            assertTrue(Fixtures.<Map<?, ?>>get(dispatcher, "sessionExecutors").isEmpty());
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void handlersWaitingForARoomDoNotPinCarrierThreads() throws Exception {
+        PriorityDispatcher dispatcher = dispatcher(false, true);
+        Room room = new Room("room");
+        int waiting = 4 * Runtime.getRuntime().availableProcessors() + 4;
+        AtomicInteger entered = new AtomicInteger();
+        DataListener<String> join = dispatcher.bulk((client, roomId, ackSender) -> {
+            room.lock().lock();
+            try {
+                entered.incrementAndGet();
+            } finally {
+                room.lock().unlock();
+            }
+        });
+        CompletableFuture<Void> unrelated = new CompletableFuture<>();
+        DataListener<String> chat = dispatcher.bulk((client, message, ackSender) -> unrelated.complete(null));
+
+        room.lock().lock();
+        try {
+            for (int i = 0; i < waiting; i++) {
+                join.onData(FakeClient.recording(server), "room", null);
+            }
+            Thread.sleep(100);
+            // With a monitor every carrier would be pinned by a waiter and this would never run
+            chat.onData(FakeClient.recording(server), "hello", null);
+            unrelated.get(5, TimeUnit.SECONDS);
+            assertEquals(0, entered.get());
+        } finally {
+            room.lock().unlock();
+        }
+        awaitCount(entered, waiting);
+        dispatcher.stop();
+    }
+
+    @Test
+    void keepsTheEventLoopFreeWhileHandlersWait() throws Exception {
+        long inline = eventLoopStall(dispatcher(false, false));
+        long virtual = eventLoopStall(dispatcher(false, true));
+
+        // 200 handlers waiting 1 ms each on the room stall the loop for at least 200 ms when run inline
+        assertTrue(inline >= TimeUnit.MILLISECONDS.toNanos(200), "inline: " + inline + " ns");
+        assertTrue(virtual < inline / 4, "virtual threads: " + virtual + " ns, inline: " + inline + " ns");
+    }
+
+    // Time the event loop spends delivering 200 events whose handlers each wait 1 ms for a busy room
+    private long eventLoopStall(PriorityDispatcher dispatcher) throws Exception {
+        ExecutorService eventLoop = Executors.newSingleThreadExecutor();
+        try {
+            Room room = new Room("room");
+            AtomicInteger handled = new AtomicInteger();
+            DataListener<String> join = dispatcher.bulk((client, roomId, ackSender) -> {
+                room.lock().lock();
+                try {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    handled.incrementAndGet();
+                } finally {
+                    room.lock().unlock();
+                }
+            });
+            List<FakeClient> clients = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                clients.add(FakeClient.recording(server));
+            }
+            long stall = eventLoop.submit(() -> {
+                long start = System.nanoTime();
+                for (FakeClient client : clients) {
+                    dispatch(join, client, "room");
+                }
+                return System.nanoTime() - start;
+            }).get(30, TimeUnit.SECONDS);
+            awaitCount(handled, clients.size());
+            return stall;
+        } finally {
+            eventLoop.shutdown();
+            dispatcher.stop();
+        }
+    }
+
+    private void assertOfferRunsAfterJoin(PriorityDispatcher dispatcher) throws Exception {
+        assertOfferRunsAfterJoin(dispatcher, listener -> dispatcher.bulk(listener));
+    }
+
+    private void assertOfferRunsAfterJoin(PriorityDispatcher dispatcher,
+                                          UnaryOperator<DataListener<String>> dispatch) throws Exception {
+        try {
+            FakeClient client = FakeClient.recording(server);
+            List<String> order = new CopyOnWriteArrayList<>();
+            DataListener<String> join = dispatcher.joining((joiner, roomId, ackSender) -> {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                order.add("join");
+            }, dispatch);
+            DataListener<String> offer = dispatcher.signaling((caller, sdp, ackSender) -> order.add(sdp));
+
+            join.onData(client, "room", null);
+            offer.onData(client, "offer-1", null);
+            offer.onData(client, "offer-2", null);
+            awaitSize(order, 3);
+            assertEquals(List.of("join", "offer-1", "offer-2"), order);
+
+            // Nothing is held once the join has run
+            offer.onData(client, "offer-3", null);
+            awaitSize(order, 4);
+            assertEquals("offer-3", order.get(3));
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    // Time from an offer reaching the event loop, right behind a chat flood from another session, to its handler
+    private long timeToAnswer(PriorityDispatcher dispatcher) throws Exception {
+        ExecutorService eventLoop = Executors.newSingleThreadExecutor();
+        try {
+            FakeClient chatter = FakeClient.recording(server);
+            FakeClient caller = FakeClient.recording(server);
+            // Parking stands in for the handler's work without competing for the CPU
+            DataListener<String> chat = dispatcher.bulk((client, message, ackSender) -> LockSupport.parkNanos(CHAT_WORK_NANOS));
+            CompletableFuture<Long> answered = new CompletableFuture<>();
+            DataListener<Long> offer = dispatcher.signaling(
+                    (client, sentAt, ackSender) -> answered.complete(System.nanoTime() - sentAt));
+
+            for (int i = 0; i < FLOOD_MESSAGES; i++) {
+                eventLoop.execute(() -> dispatch(chat, chatter, "hello"));
+            }
+            long sentAt = System.nanoTime();
+            eventLoop.execute(() -> dispatch(offer, caller, sentAt));
+            return answered.get(30, TimeUnit.SECONDS);
+        } finally {
+            eventLoop.shutdown();
+            dispatcher.stop();
+        }
+    }
+
+    private static <T> void dispatch(DataListener<T> listener, FakeClient client, T data) {
+        try {
+            listener.onData(client, data, null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (list.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(size, list.size(), list::toString);
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (count.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, count.get());
+    }
+
+    private static PriorityDispatcher dispatcher(boolean enabled, boolean virtualThreads) {
+        PriorityDispatcher dispatcher = new PriorityDispatcher();
+        Fixtures.set(dispatcher, "enabled", enabled);
+        Fixtures.set(dispatcher, "bulkLaneCount", 1);
+        Fixtures.set(dispatcher, "virtualThreads", virtualThreads);
+        dispatcher.start();
+        return dispatcher;
+    }
+}
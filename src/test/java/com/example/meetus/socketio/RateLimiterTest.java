@@ -0,0 +1,91 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.example.meetus.model.OutboundEvents.RateLimited;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private final SocketIOServer server = new SocketIOServer(new Configuration());
+    private RateLimiter rateLimiter;
+    private FakeClient client;
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new RateLimiter(new OutboundQueues(server));
+        Fixtures.set(rateLimiter, "enabled", true);
+        Fixtures.set(rateLimiter, "defaultLimit", "1/3");
+        Fixtures.set(rateLimiter, "eventLimits", "");
+        Fixtures.set(rateLimiter, "perIpLimit", "500/1000");
+        Fixtures.set(rateLimiter, "globalLimit", "20000/40000");
+        rateLimiter.start();
+        client = FakeClient.recording(server);
+    }
+
+    @Test
+    void rejectsRatesOfZeroOrLess() {
+        for (String spec : List.of("0/10", "-5/10", "0", "NaN/1", "10/0")) {
+            assertThrows(IllegalArgumentException.class, () -> RateLimiter.Limit.parse(spec), spec);
+        }
+        assertEquals(100_000_000L, RateLimiter.Limit.parse("10/1").intervalNanos());
+    }
+
+    @Test
+    void answersAThrottledJoinWithAJoinError() throws Exception {
+        DataListener<String> join = registered("join-room");
+
+        for (int i = 0; i < 5; i++) {
+            join.onData(client, "room", null);
+        }
+
+        assertEquals(3, handled.get());
+        List<Object> errors = client.payloadsOf("join-error");
+        assertEquals(2, errors.size());
+        assertTrue(((String) errors.get(0)).startsWith("Too many requests"), errors::toString);
+    }
+
+    @Test
+    void noticesAThrottledRunOnceAndAcksEveryThrottledRequest() throws Exception {
+        DataListener<String> chat = registered("chat-message");
+
+        for (int i = 0; i < 10; i++) {
+            chat.onData(client, "hello", null);
+        }
+        List<Object> notices = client.payloadsOf("rate-limited");
+        assertEquals(1, notices.size());
+        RateLimited notice = (RateLimited) notices.get(0);
+        assertEquals("chat-message", notice.event());
+        assertTrue(notice.retryAfterMs() > 0 && notice.retryAfterMs() <= 1001, notice::toString);
+
+        Packet request = new Packet(PacketType.MESSAGE, EngineIOVersion.V4);
+        request.setAckId(7L);
+        chat.onData(client, "hello", new AckRequest(request, client));
+        List<Object> acks = client.payloadsOf("ack");
+        assertEquals(1, acks.size());
+        assertEquals("chat-message", ((RateLimited) acks.get(0)).event());
+        assertEquals(3, handled.get());
+    }
+
+    private DataListener<String> registered(String event) {
+        DataListener<String> listener = rateLimiter.limit(event, (client, data, ackSender) -> handled.incrementAndGet());
+        rateLimiter.sessionConnected(client);
+        return listener;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.protocol.Event;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.example.meetus.model.OutboundEvents.Chat;
+import com.example.meetus.model.OutboundEvents.Offer;
+import com.example.meetus.model.RawJson;
+import com.example.meetus.socketio.SocketIOHandler.SignalingData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RawJsonSupportTest {
+
+    // Escapes, non-ASCII text, nesting and odd spacing all have to survive byte for byte
+    private static final String OFFER = "{\"type\":\"offer\", \"sdp\":\"v=0\\r\\no=- 46 2 IN IP4 127.0.0.1\\r\\ns=café \\\"☃\\\"\\r\\n\","
+            + " \"extra\":[1, 2.5, {\"nested\":[true,null]}]}";
+
+    private final RawJsonSupport jsonSupport = new RawJsonSupport();
+
+    @Test
+    void slicesRelayedPayloadsOutOfTheFrame() throws IOException {
+        SignalingData data = readEvent("[\"offer\",{\"to\":\"abc\",\"offer\":" + OFFER + "}]");
+
+        assertEquals("abc", data.getTo());
+        assertEquals(OFFER, data.getOffer().getJson());
+    }
+
+    @Test
+    void writesSlicedPayloadsBackVerbatim() throws IOException {
+        SignalingData data = readEvent("[\"offer\",{\"offer\":" + OFFER + ",\"to\":\"abc\"}]");
+
+        ByteBuf out = Unpooled.buffer();
+        jsonSupport.writeValue(new ByteBufOutputStream(out), new Offer("me", data.getOffer(), "alice"));
+
+        assertEquals("{\"from\":\"me\",\"offer\":" + OFFER + ",\"username\":\"alice\"}",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void copiesTokensWithoutAFrame() throws IOException {
+        SignalingData data = new ObjectMapper().readValue("{\"candidate\":{\"candidate\" : \"aé\"}}", SignalingData.class);
+
+        assertEquals("{\"candidate\":\"aé\"}", data.getCandidate().getJson());
+    }
+
+    @Test
+    void acceptsScalarAndNullPayloads() throws IOException {
+        SignalingData data = readEvent("[\"offer\",{\"to\":\"abc\",\"candidate\":\"candidate:1 1 udp\",\"offer\":null}]");
+
+        assertEquals("\"candidate:1 1 udp\"", data.getCandidate().getJson());
+        assertNull(data.getOffer());
+    }
+
+    @Test
+    void encodesOnceToTheSameBytes() throws IOException {
+        RawJson offer = new RawJson(OFFER);
+        RawJson encoded = RawJson.encode(new Offer("me", offer, "alice"));
+
+        assertEquals("{\"from\":\"me\",\"offer\":" + OFFER + ",\"username\":\"alice\"}", encoded.getJson());
+    }
+
+    // A broadcast is pre-encoded by RawJson and a single send by the socket's encoder; both must agree
+    @Test
+    void encodesLikeTheSocketEncoder() throws IOException {
+        Chat chat = new Chat("alice", "hi", null);
+
+        ByteBuf out = Unpooled.buffer();
+        new JacksonJsonSupport().writeValue(new ByteBufOutputStream(out), chat);
+
+        assertEquals("{\"username\":\"alice\",\"message\":\"hi\"}", out.toString(StandardCharsets.UTF_8));
+        assertEquals(out.toString(StandardCharsets.UTF_8), RawJson.encode(chat).getJson());
+    }
+
+    private SignalingData readEvent(String json) throws IOException {
+        jsonSupport.addEventMapping("", "offer", SignalingData.class);
+        ByteBuf frame = Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+        Event event = jsonSupport.readValue("", new ByteBufInputStream(frame), Event.class);
+        return (SignalingData) event.getArgs().get(0);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.meetus.socketio;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+import com.corundumstudio.socketio.listener.DisconnectListener;
+import com.example.meetus.support.FakeClient;
+import com.example.meetus.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomShardsTest {
+
+    private static final SocketIOServer server = new SocketIOServer(new Configuration());
+    private static final int SHARDS = 4;
+
+    private RoomShards roomShards;
+    // Stands in for RoomService: the room each session is seated in
+    private final Map<UUID, String> seated = new ConcurrentHashMap<>();
+    private final List<String> ranOn = new CopyOnWriteArrayList<>();
+    private DataListener<String> join;
+    private DataListener<String> chat;
+
+    @BeforeEach
+    void setUp() {
+        roomShards = new RoomShards();
+        Fixtures.set(roomShards, "enabled", true);
+        Fixtures.set(roomShards, "shardCount", SHARDS);
+        roomShards.start();
+        // Rooms whose name starts with "locked" refuse the join
+        join = roomShards.joining(roomId -> roomId, seated::get, (client, roomId, ackSender) -> {
+            ranOn.add(roomId + "@" + Thread.currentThread().getName());
+            if (!roomId.startsWith("locked")) {
+                seated.put(client.getSessionId(), roomId);
+            }
+        });
+        chat = roomShards.inSessionRoom((client, message, ackSender) -> {
+            Thread.sleep(1);
+            ranOn.add(message + "@" + Thread.currentThread().getName());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomShards.stop();
+    }
+
+    @Test
+    void routesToTheNewRoomOnlyOnceTheJoinHasRun() throws Exception {
+        FakeClient client = FakeClient.recording(server);
+        String first = roomOnShard(0, "room");
+        String second = roomOnShard(1, "room");
+
+        join.onData(client, first, null);
+        chat.onData(client, "hello", null);
+        join.onData(client, second, null);
+        chat.onData(client, "again", null);
+        awaitSize(4);
+
+        assertEquals(List.of(first + "@room-shard-0", "hello@room-shard-0", second + "@room-shard-1",
+                "again@room-shard-1"), ranOn);
+    }
+
+    @Test
+    void keepsTheRouteWhenAJoinFails() throws Exception {
+        FakeClient client = FakeClient.recording(server);
+        String open = roomOnShard(0, "room");
+        String locked = roomOnShard(2, "locked");
+
+        join.onData(client, open, null);
+        join.onData(client, locked, null);
+        chat.onData(client, "hello", null);
+        awaitSize(3);
+
+        // The refused join ran on the locked room's shard, but the chat stays with the room the session is in
+        assertEquals(List.of(open + "@room-shard-0", locked + "@room-shard-2", "hello@room-shard-0"), ranOn);
+    }
+
+    @Test
+    void dropsEventsThatArriveAfterTheDisconnect() throws Exception {
+        FakeClient client = FakeClient.recording(server);
+        roomShards.inSessionRoom((DisconnectListener) closed -> ranOn.add("disconnect")).onDisconnect(client);
+        awaitSize(1);
+
+        join.onData(client, roomOnShard(0, "room"), null);
+        chat.onData(client, "late", null);
+        Thread.sleep(50);
+
+        assertEquals(List.of("disconnect"), ranOn);
+        assertTrue(Fixtures.<Map<?, ?>>get(roomShards, "chains").isEmpty());
+        assertTrue(Fixtures.<Map<?, ?>>get(roomShards, "routes").isEmpty());
+    }
+
+    private static String roomOnShard(int shard, String prefix) {
+        for (int i = 0; ; i++) {
+            String roomId = prefix + "-" + i;
+            if (Math.floorMod(roomId.hashCode(), SHARDS) == shard) {
+                return roomId;
+            }
+        }
+    }
+
+    private void awaitSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (ranOn.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(size, ranOn.size(), ranOn::toString);
+    }
+}
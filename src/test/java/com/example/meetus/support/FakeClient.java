@@ -0,0 +1,242 @@
+package com.example.meetus.support;
+
+import com.corundumstudio.socketio.*;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory {@link SocketIOClient} attached to the default namespace of an
+ * unstarted {@link SocketIOServer}, so room operations and client lookups go
+ * through netty-socketio's own bookkeeping without a socket.
+ *
+ * Sent events are either recorded, for assertions, or encoded into a pooled
+ * buffer the way the packet encoder would, for benchmarks.
+ */
+public class FakeClient implements SocketIOClient {
+
+    public record Sent(String event, Object payload) {
+    }
+
+    private final UUID sessionId = UUID.randomUUID();
+    private final Namespace namespace;
+    private final JsonSupport encoder;
+    private final SocketAddress remoteAddress;
+    private final List<Sent> sent = new CopyOnWriteArrayList<>();
+    private final Map<String, Object> store = new ConcurrentHashMap<>();
+    private volatile boolean writable = true;
+    // Frames left before the client turns unwritable, or -1 for no limit
+    private volatile int writesLeft = -1;
+    private volatile boolean open = true;
+    private long bytesWritten;
+
+    private FakeClient(Namespace namespace, JsonSupport encoder, SocketAddress remoteAddress) {
+        this.namespace = namespace;
+        this.encoder = encoder;
+        this.remoteAddress = remoteAddress;
+        namespace.addClient(this);
+    }
+
+    /**
+     * A client that records what it is sent.
+     */
+    public static FakeClient recording(SocketIOServer server) {
+        return new FakeClient(defaultNamespace(server), null, new InetSocketAddress("127.0.0.1", 40000));
+    }
+
+    /**
+     * A client that encodes what it is sent with the given JSON support and drops it.
+     */
+    public static FakeClient encoding(SocketIOServer server, JsonSupport encoder) {
+        return new FakeClient(defaultNamespace(server), encoder, new InetSocketAddress("127.0.0.1", 40000));
+    }
+
+    public static Namespace defaultNamespace(SocketIOServer server) {
+        return (Namespace) server.getNamespace(Namespace.DEFAULT_NAME);
+    }
+
+    public List<Sent> getSent() {
+        return sent;
+    }
+
+    public List<Object> payloadsOf(String event) {
+        List<Object> payloads = new ArrayList<>();
+        for (Sent frame : sent) {
+            if (frame.event().equals(event)) {
+                payloads.add(frame.payload());
+            }
+        }
+        return payloads;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void setWritable(boolean writable) {
+        this.writable = writable;
+        this.writesLeft = -1;
+    }
+
+    /**
+     * Makes the client writable for the next {@code frames} frames only, as a
+     * channel whose buffer fills up again part way through a drain.
+     */
+    public void setWritableFor(int frames) {
+        this.writable = frames > 0;
+        this.writesLeft = frames;
+    }
+
+    @Override
+    public void sendEvent(String name, Object... data) {
+        Object payload = data.length == 1 ? data[0] : Arrays.asList(data);
+        if (writesLeft > 0 && --writesLeft == 0) {
+            writable = false;
+        }
+        if (encoder == null) {
+            sent.add(new Sent(name, payload));
+            return;
+        }
+        // Same shape as the packet encoder: ["event", payload] written straight into a pooled buffer
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            encoder.writeValue(out, List.of(name, payload));
+            bytesWritten += buffer.readableBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public void sendEvent(String name, AckCallback<?> ackCallback, Object... data) {
+        sendEvent(name, data);
+    }
+
+    // Broadcast operations hand every client the same event packet; acks have no name and are recorded as "ack"
+    @Override
+    public void send(Packet packet) {
+        List<?> data = packet.getData();
+        sendEvent(packet.getSubType() == PacketType.ACK ? "ack" : packet.getName(), data.toArray());
+    }
+
+    @Override
+    public void send(Packet packet, AckCallback<?> ackCallback) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void disconnect() {
+        open = false;
+        namespace.onDisconnect(this);
+    }
+
+    @Override
+    public HandshakeData getHandshakeData() {
+        return null;
+    }
+
+    @Override
+    public Transport getTransport() {
+        return Transport.WEBSOCKET;
+    }
+
+    @Override
+    public EngineIOVersion getEngineIOVersion() {
+        return EngineIOVersion.V4;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public SocketIONamespace getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public UUID getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public boolean isChannelOpen() {
+        return open;
+    }
+
+    @Override
+    public void joinRoom(String room) {
+        namespace.joinRoom(room, sessionId);
+    }
+
+    @Override
+    public void joinRooms(Set<String> rooms) {
+        namespace.joinRooms(rooms, sessionId);
+    }
+
+    @Override
+    public void leaveRoom(String room) {
+        namespace.leaveRoom(room, sessionId);
+    }
+
+    @Override
+    public void leaveRooms(Set<String> rooms) {
+        namespace.leaveRooms(rooms, sessionId);
+    }
+
+    @Override
+    public Set<String> getAllRooms() {
+        return namespace.getRooms(this);
+    }
+
+    @Override
+    public int getCurrentRoomSize(String room) {
+        int size = 0;
+        for (SocketIOClient ignored : namespace.getRoomClients(room)) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        store.put(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        return (T) store.get(key);
+    }
+
+    @Override
+    public boolean has(String key) {
+        return store.containsKey(key);
+    }
+
+    @Override
+    public void del(String key) {
+        store.remove(key);
+    }
+}
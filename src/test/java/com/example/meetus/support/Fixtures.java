@@ -0,0 +1,71 @@
+package com.example.meetus.support;
+
+import com.example.meetus.persistence.ChatArchive;
+import com.example.meetus.persistence.RoomJournal;
+import com.example.meetus.service.ExpiryService;
+import com.example.meetus.service.RoomService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+/**
+ * Builds services outside a Spring context, with the same defaults as
+ * application.properties unless overridden. Used by tests and benchmarks.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    public static ExpiryService expiryService(long tickMs) {
+        ExpiryService expiry = new ExpiryService();
+        ReflectionTestUtils.setField(expiry, "tickMs", tickMs);
+        ReflectionTestUtils.setField(expiry, "workerThreads", 2);
+        expiry.start();
+        return expiry;
+    }
+
+    public static RoomService roomService(ExpiryService expiry) {
+        return roomService(new RoomJournal(), expiry);
+    }
+
+    public static RoomService roomService(RoomJournal journal, ExpiryService expiry) {
+        RoomService roomService = new RoomService(journal, expiry);
+        ReflectionTestUtils.setField(roomService, "resumeGraceMs", 60_000L);
+        ReflectionTestUtils.setField(roomService, "passwordTtlMs", 1_800_000L);
+        return roomService;
+    }
+
+    public static RoomJournal journal(Path directory, int segmentSizeMb) {
+        RoomJournal journal = new RoomJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", segmentSizeMb);
+        ReflectionTestUtils.setField(journal, "snapshotIntervalMs", 60_000L);
+        return journal;
+    }
+
+    public static ChatArchive chatArchive(Path directory, int shards, int indexInterval) {
+        ChatArchive archive = new ChatArchive();
+        ReflectionTestUtils.setField(archive, "enabled", true);
+        ReflectionTestUtils.setField(archive, "directory", directory.toString());
+        ReflectionTestUtils.setField(archive, "shardCount", shards);
+        ReflectionTestUtils.setField(archive, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(archive, "indexInterval", indexInterval);
+        ReflectionTestUtils.setField(archive, "queueCapacity", 65536);
+        ReflectionTestUtils.setField(archive, "maxSegmentsPerShard", 32);
+        ReflectionTestUtils.setField(archive, "retentionHours", 168L);
+        ReflectionTestUtils.setField(archive, "readerThreads", 1);
+        return archive;
+    }
+
+    public static <T> T set(T target, String field, Object value) {
+        ReflectionTestUtils.setField(target, field, value);
+        return target;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Object target, String field) {
+        return (T) ReflectionTestUtils.getField(target, field);
+    }
+}